@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.benchmark;
+
+import java.security.Key;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+import dev.cn.common.sensitive_data.util.CryptUtils;
+
+/**
+ * CryptUtils加解密和秘钥派生的性能测试
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptUtilsBenchmark {
+
+    /**
+     * 明文长度(字符数)
+     */
+    @Param({ "16", "256", "4096" })
+    public int payloadSize;
+
+    private String plaintext;
+    private String ciphertext;
+    private String prefixedCiphertext;
+    private CryptoEngine engine;
+
+    @Setup
+    public void setUp() throws Exception {
+        plaintext = SyntheticData.plaintext(payloadSize, 0);
+        ciphertext = CryptUtils.encrypt(plaintext, SyntheticData.KEY, SyntheticData.KEY_ALGORITHM,
+                SyntheticData.CIPHER_ALGORITHM);
+        prefixedCiphertext = ValueHelper.prefixEncryptedValue(ciphertext);
+        engine = CryptoEngine.getInstance(SyntheticData.KEY, SyntheticData.KEY_ALGORITHM,
+                SyntheticData.CIPHER_ALGORITHM);
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+        return CryptUtils.encrypt(plaintext, SyntheticData.KEY, SyntheticData.KEY_ALGORITHM,
+                SyntheticData.CIPHER_ALGORITHM);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+        return CryptUtils.decrypt(ciphertext, SyntheticData.KEY, SyntheticData.KEY_ALGORITHM,
+                SyntheticData.CIPHER_ALGORITHM);
+    }
+
+    /**
+     * 拦截器使用的带前缀格式, 与encrypt对比分配量
+     */
+    @Benchmark
+    public String encryptPrefixed() throws Exception {
+        return engine.encryptPrefixed(plaintext);
+    }
+
+    @Benchmark
+    public String decryptPrefixed() throws Exception {
+        return engine.decryptPrefixed(prefixedCiphertext);
+    }
+
+    @Benchmark
+    public Key getSecretKey() throws Exception {
+        return CryptUtils.getSecretKey(SyntheticData.KEY, SyntheticData.KEY_ALGORITHM);
+    }
+}
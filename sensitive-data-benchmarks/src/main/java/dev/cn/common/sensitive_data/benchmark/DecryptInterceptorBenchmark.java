@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.benchmark;
+
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.plugin.Invocation;
+import org.openjdk.jmh.annotations.*;
+
+import dev.cn.common.sensitive_data.component.DecryptInterceptor;
+
+/**
+ * 解密拦截器的性能测试, 使用桩ResultSetHandler, 不需要数据库
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecryptInterceptorBenchmark {
+
+    /**
+     * 不同密文的数量
+     */
+    private static final int DISTINCT_VALUES = 1024;
+
+    /**
+     * 每个实体的敏感字段数
+     */
+    @Param({ "1", "4", "8" })
+    public int fieldCount;
+
+    /**
+     * 结果集行数
+     */
+    @Param({ "1", "100", "10000" })
+    public int rowCount;
+
+    private DecryptInterceptor interceptor;
+    private Invocation invocation;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("enabled", true);
+        properties.put("key", SyntheticData.KEY);
+        properties.put("keyAlgorithm", SyntheticData.KEY_ALGORITHM);
+        properties.put("cipherAlgorithm", SyntheticData.CIPHER_ALGORITHM);
+        interceptor = SyntheticData.configure(new DecryptInterceptor(), properties);
+
+        String[][] values = new String[DISTINCT_VALUES][fieldCount];
+        for (int i = 0; i < DISTINCT_VALUES; i++) {
+            for (int j = 0; j < fieldCount; j++) {
+                values[i][j] = SyntheticData.prefixedEncrypt(SyntheticData.plaintext(11, i * fieldCount + j));
+            }
+        }
+
+        Method handleResultSets = ResultSetHandler.class.getMethod("handleResultSets", Statement.class);
+        invocation = new Invocation(new StubResultSetHandler(fieldCount, rowCount, values), handleResultSets,
+                new Object[] { null });
+    }
+
+    @Benchmark
+    public Object decrypt() throws Throwable {
+        return interceptor.intercept(invocation);
+    }
+
+    @TearDown
+    public void tearDown() {
+        interceptor.destroy();
+    }
+
+    /**
+     * 每次调用都像MyBatis一样新建结果对象, 字段为带前缀的密文
+     */
+    static final class StubResultSetHandler implements ResultSetHandler {
+
+        private final int fieldCount;
+        private final int rowCount;
+        private final String[][] values;
+
+        StubResultSetHandler(int fieldCount, int rowCount, String[][] values) {
+            this.fieldCount = fieldCount;
+            this.rowCount = rowCount;
+            this.values = values;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <E> List<E> handleResultSets(Statement stmt) {
+            List<Object> rows = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(SyntheticData.newEntity(fieldCount, values[i & (DISTINCT_VALUES - 1)]));
+            }
+            return (List<E>) rows;
+        }
+
+        @Override
+        public <E> Cursor<E> handleCursorResultSets(Statement stmt) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void handleOutputParameters(CallableStatement cs) {
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.benchmark;
+
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.plugin.Invocation;
+import org.openjdk.jmh.annotations.*;
+
+import dev.cn.common.sensitive_data.component.EncryptInterceptor;
+
+/**
+ * 加密拦截器的性能测试, 使用桩ParameterHandler, 不需要数据库
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptInterceptorBenchmark {
+
+    /**
+     * 不同明文的数量
+     */
+    private static final int DISTINCT_VALUES = 1024;
+
+    /**
+     * 每个实体的敏感字段数
+     */
+    @Param({ "1", "4", "8" })
+    public int fieldCount;
+
+    /**
+     * 每次操作执行的语句数, 每条语句写入一行
+     */
+    @Param({ "1", "100" })
+    public int rowCount;
+
+    private EncryptInterceptor interceptor;
+    private Method setParameters;
+    private String[][] values;
+    private int cursor;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("enabled", true);
+        properties.put("key", SyntheticData.KEY);
+        properties.put("keyAlgorithm", SyntheticData.KEY_ALGORITHM);
+        properties.put("cipherAlgorithm", SyntheticData.CIPHER_ALGORITHM);
+        interceptor = SyntheticData.configure(new EncryptInterceptor(), properties);
+        setParameters = ParameterHandler.class.getMethod("setParameters", PreparedStatement.class);
+
+        values = new String[DISTINCT_VALUES][fieldCount];
+        for (int i = 0; i < DISTINCT_VALUES; i++) {
+            for (int j = 0; j < fieldCount; j++) {
+                values[i][j] = SyntheticData.plaintext(11, i * fieldCount + j);
+            }
+        }
+    }
+
+    @Benchmark
+    public int encrypt() throws Throwable {
+        int count = 0;
+        for (int i = 0; i < rowCount; i++) {
+            // 每条语句都使用新的实体, 否则加密后的字段会被直接跳过
+            Object entity = SyntheticData.newEntity(fieldCount, values[cursor++ & (DISTINCT_VALUES - 1)]);
+            interceptor.intercept(new Invocation(new StubParameterHandler(entity), setParameters,
+                    new Object[] { null }));
+            count++;
+        }
+        return count;
+    }
+
+    @TearDown
+    public void tearDown() {
+        interceptor.destroy();
+    }
+
+    static final class StubParameterHandler implements ParameterHandler {
+
+        private final Object parameterObject;
+
+        StubParameterHandler(Object parameterObject) {
+            this.parameterObject = parameterObject;
+        }
+
+        @Override
+        public Object getParameterObject() {
+            return parameterObject;
+        }
+
+        @Override
+        public void setParameters(PreparedStatement ps) {
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+import dev.cn.common.sensitive_data.util.CryptUtils;
+
+/**
+ * 性能测试使用的合成数据和实体
+ */
+final class SyntheticData {
+
+    static final String KEY = "benchmark-key-123456";
+    static final String KEY_ALGORITHM = "AES";
+    static final String CIPHER_ALGORITHM = "AES/ECB/PKCS5Padding";
+
+    private SyntheticData() {
+    }
+
+    /**
+     * 生成指定长度的明文, 不同的seed得到不同的明文
+     */
+    static String plaintext(int length, int seed) {
+        StringBuilder builder = new StringBuilder(length);
+        String prefix = Integer.toString(seed);
+        builder.append(prefix, 0, Math.min(prefix.length(), length));
+        while (builder.length() < length) {
+            builder.append((char) ('0' + builder.length() % 10));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 加密并加上前缀, 与拦截器写入数据库的格式一致
+     */
+    static String encrypt(String plaintext) throws Exception {
+        return CryptUtils.encrypt(plaintext, KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+    }
+
+    static String prefixedEncrypt(String plaintext) throws Exception {
+        return ValueHelper.prefixEncryptedValue(encrypt(plaintext));
+    }
+
+    /**
+     * 按敏感字段数创建实体, 模拟MyBatis为每一行新建结果对象
+     */
+    static Object newEntity(int fieldCount, String[] values) {
+        switch (fieldCount) {
+            case 1:
+                return new OneFieldEntity(values);
+            case 4:
+                return new FourFieldEntity(values);
+            case 8:
+                return new EightFieldEntity(values);
+            default:
+                throw new IllegalArgumentException("不支持的字段数: " + fieldCount);
+        }
+    }
+
+    /**
+     * 不经过Spring直接设置拦截器的配置字段
+     */
+    static <T> T configure(T interceptor, Map<String, Object> properties) throws Exception {
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            Field field = interceptor.getClass().getDeclaredField(entry.getKey());
+            field.setAccessible(true);
+            field.set(interceptor, entry.getValue());
+        }
+        return interceptor;
+    }
+
+    @SensitiveData
+    static class OneFieldEntity {
+
+        @SensitiveField
+        String field1;
+
+        String name = "name";
+
+        OneFieldEntity(String[] values) {
+            field1 = values[0];
+        }
+    }
+
+    @SensitiveData
+    static class FourFieldEntity {
+
+        @SensitiveField
+        String field1;
+        @SensitiveField
+        String field2;
+        @SensitiveField
+        String field3;
+        @SensitiveField
+        String field4;
+
+        String name = "name";
+
+        FourFieldEntity(String[] values) {
+            field1 = values[0];
+            field2 = values[1];
+            field3 = values[2];
+            field4 = values[3];
+        }
+    }
+
+    @SensitiveData
+    static class EightFieldEntity {
+
+        @SensitiveField
+        String field1;
+        @SensitiveField
+        String field2;
+        @SensitiveField
+        String field3;
+        @SensitiveField
+        String field4;
+        @SensitiveField
+        String field5;
+        @SensitiveField
+        String field6;
+        @SensitiveField
+        String field7;
+        @SensitiveField
+        String field8;
+
+        String name = "name";
+
+        EightFieldEntity(String[] values) {
+            field1 = values[0];
+            field2 = values[1];
+            field3 = values[2];
+            field4 = values[3];
+            field5 = values[4];
+            field6 = values[5];
+            field7 = values[6];
+            field8 = values[7];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+/**
+ * 密文前缀处理的性能测试
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueHelperBenchmark {
+
+    private String plaintext;
+    private String encryptedValue;
+    private String prefixedEncryptedValue;
+
+    @Setup
+    public void setUp() throws Exception {
+        plaintext = SyntheticData.plaintext(16, 0);
+        encryptedValue = SyntheticData.encrypt(plaintext);
+        prefixedEncryptedValue = ValueHelper.prefixEncryptedValue(encryptedValue);
+    }
+
+    @Benchmark
+    public boolean isEncryptedPlaintext() {
+        return ValueHelper.isEncrypted(plaintext);
+    }
+
+    @Benchmark
+    public boolean isEncryptedCiphertext() {
+        return ValueHelper.isEncrypted(prefixedEncryptedValue);
+    }
+
+    @Benchmark
+    public String prefixEncryptedValue() {
+        return ValueHelper.prefixEncryptedValue(encryptedValue);
+    }
+
+    @Benchmark
+    public String unprefixEncryptedValue() {
+        return ValueHelper.unprefixEncryptedValue(prefixedEncryptedValue);
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * 为@SensitiveData实体生成SensitiveCodec的注解处理器
+ *
+ * 生成的编解码器与实体在同一个包中, 类名为"实体简单类名_SensitiveCodec"(嵌套类用"_"连接外部类名),
+ * 通过getter/setter(或非private字段)直接读写@SensitiveField注解的String字段,
+ * 并注册到META-INF/services/dev.cn.common.sensitive_data.support.SensitiveCodec.
+ * 实体的所有敏感字段都是String时, 还会生成@SensitiveData和@SensitiveField的属性以及盲索引和主键的访问方法,
+ * 运行时直接由编解码器构建元数据, 不再读取字段和注解.
+ * 无法生成的实体只会给出警告, 运行时回退到反射.
+ *
+ * @since 1.2.0
+ */
+@SupportedAnnotationTypes(SensitiveCodecProcessor.SENSITIVE_DATA)
+public class SensitiveCodecProcessor extends AbstractProcessor {
+
+    static final String SENSITIVE_DATA = "dev.cn.common.sensitive_data.annotation.SensitiveData";
+    static final String SENSITIVE_FIELD = "dev.cn.common.sensitive_data.annotation.SensitiveField";
+    static final String SENSITIVE_CODEC = "dev.cn.common.sensitive_data.support.SensitiveCodec";
+    static final String SENSITIVE_CODEC_ATTRIBUTES = "dev.cn.common.sensitive_data.support.SensitiveCodecAttributes";
+    static final String CODEC_SUFFIX = "_SensitiveCodec";
+
+    private static final String LOMBOK_DATA = "lombok.Data";
+    private static final String LOMBOK_GETTER = "lombok.Getter";
+    private static final String LOMBOK_SETTER = "lombok.Setter";
+
+    /**
+     * 所有轮次中生成的编解码器全名, 在最后一轮写入服务注册文件
+     */
+    private final Set<String> generatedCodecs = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT) || type.getModifiers().contains(Modifier.PRIVATE)
+                || (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))
+                || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            return;
+        }
+
+        List<VariableElement> fields = sensitiveFields(type);
+        List<String> fieldNames = new ArrayList<>();
+        List<String> getters = new ArrayList<>();
+        List<String> setters = new ArrayList<>();
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            String getter = accessor(type, field, true);
+            String setter = accessor(type, field, false);
+            if (getter == null || setter == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "无法为敏感字段" + name + "生成编解码器, 缺少可访问的getter/setter, 运行时将使用反射", field);
+                return;
+            }
+            fieldNames.add(name);
+            getters.add(getter);
+            setters.add(setter);
+        }
+        if (fieldNames.isEmpty()) {
+            return;
+        }
+
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String codecName = codecSimpleName(type);
+        String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+        String qualifiedCodecName = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+
+        Attributes attributes = attributes(type, fields);
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedCodecName, type).openWriter()) {
+            writer.write(render(packageName, codecName, typeName, fieldNames, getters, setters, attributes));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "生成编解码器失败: " + e, type);
+            return;
+        }
+        generatedCodecs.add(qualifiedCodecName);
+    }
+
+    /**
+     * 收集类及其父类中被@SensitiveField注解的非静态String字段
+     */
+    private List<VariableElement> sensitiveFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        for (TypeElement current = type; current != null; current = superclassOf(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) {
+                    continue;
+                }
+                if (hasAnnotation(field, SENSITIVE_FIELD) && isString(field.asType())) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 收集注解属性以及盲索引和主键的访问表达式, 实体中有非String的敏感字段或无法访问盲索引、主键字段时返回null
+     */
+    private Attributes attributes(TypeElement type, List<VariableElement> fields) {
+        //依赖的sensitive-data版本较旧时没有注解属性
+        if (processingEnv.getElementUtils().getTypeElement(SENSITIVE_CODEC_ATTRIBUTES) == null) {
+            return null;
+        }
+        for (TypeElement current = type; current != null; current = superclassOf(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (hasAnnotation(field, SENSITIVE_FIELD) && !field.getModifiers().contains(Modifier.STATIC)
+                        && !field.getModifiers().contains(Modifier.FINAL) && !isString(field.asType())) {
+                    return null;
+                }
+            }
+        }
+
+        Attributes attributes = new Attributes();
+        AnnotationMirror sensitiveData = null;
+        for (TypeElement current = type; current != null && sensitiveData == null; current = superclassOf(current)) {
+            sensitiveData = annotation(current, SENSITIVE_DATA);
+        }
+        String table = attributeValue(sensitiveData, "table", "");
+        String idField = attributeValue(sensitiveData, "idField", "id");
+        attributes.initializer.append("new ").append(SENSITIVE_CODEC_ATTRIBUTES).append('(').append(literal(table))
+                .append(", ").append(literal(idField)).append(", ")
+                .append(literal(attributeValue(sensitiveData, "idColumn", ""))).append(')');
+
+        for (VariableElement field : fields) {
+            AnnotationMirror sensitiveField = annotation(field, SENSITIVE_FIELD);
+            String blindIndex = attributeValue(sensitiveField, "blindIndex", "");
+            attributes.initializer.append("\n                    .field(")
+                    .append(literal(attributeValue(sensitiveField, "column", ""))).append(", ")
+                    .append(attributeValue(sensitiveField, "lazy", Boolean.FALSE)).append(", ")
+                    .append(literal(blindIndex)).append(", ")
+                    .append(literal(attributeValue(sensitiveField, "keyAlias", ""))).append(", ")
+                    .append(literal(attributeValue(sensitiveField, "profile", ""))).append(')');
+
+            String blindIndexSetter = null;
+            if (!blindIndex.isEmpty()) {
+                VariableElement blindIndexField = findField(type, blindIndex, true);
+                blindIndexSetter = blindIndexField == null || !isString(blindIndexField.asType()) ? null
+                        : accessor(type, blindIndexField, false);
+                if (blindIndexSetter == null) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                            "无法访问盲索引字段" + blindIndex + ", 运行时将使用反射", field);
+                    return null;
+                }
+            }
+            attributes.blindIndexSetters.add(blindIndexSetter);
+        }
+
+        if (!table.isEmpty()) {
+            VariableElement idElement = findField(type, idField, false);
+            attributes.idGetter = idElement == null ? null : accessor(type, idElement, true);
+            if (attributes.idGetter == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "无法访问主键字段" + idField + ", 运行时将使用反射", type);
+                return null;
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * 在类及其父类中按字段名(或按列名, 用于盲索引)查找非静态字段
+     */
+    private VariableElement findField(TypeElement type, String name, boolean matchColumn) {
+        for (TypeElement current = type; current != null; current = superclassOf(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                String fieldName = field.getSimpleName().toString();
+                if (modifiers.contains(Modifier.STATIC) || (matchColumn && modifiers.contains(Modifier.FINAL))) {
+                    continue;
+                }
+                if (fieldName.equals(name) || (matchColumn && toColumnName(fieldName).equals(name))) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 生成读取或写入字段的表达式模板, "$e"代表实体, "$v"代表写入的值
+     */
+    private String accessor(TypeElement type, VariableElement field, boolean getter) {
+        String name = field.getSimpleName().toString();
+        String methodName = (getter ? "get" : "set") + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getSimpleName().contentEquals(methodName) || method.getModifiers().contains(Modifier.PRIVATE)
+                    || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            if (getter && method.getParameters().isEmpty()
+                    && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+                return "$e." + methodName + "()";
+            }
+            if (!getter && method.getParameters().size() == 1
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType())) {
+                return "$e." + methodName + "($v)";
+            }
+        }
+
+        // Lombok在同一轮编译中生成的方法未必对其他注解处理器可见
+        TypeElement owner = (TypeElement) field.getEnclosingElement();
+        String lombok = getter ? LOMBOK_GETTER : LOMBOK_SETTER;
+        if (hasAnnotation(owner, LOMBOK_DATA) || hasAnnotation(owner, lombok) || hasAnnotation(field, lombok)) {
+            return getter ? "$e." + methodName + "()" : "$e." + methodName + "($v)";
+        }
+
+        // 同包且非private的字段可以直接访问
+        if (!field.getModifiers().contains(Modifier.PRIVATE) && packageOf(owner).equals(packageOf(type))) {
+            return getter ? "$e." + name : "$e." + name + " = $v";
+        }
+        return null;
+    }
+
+    private String render(String packageName, String codecName, String typeName, List<String> fieldNames,
+            List<String> getters, List<String> setters, Attributes attributes) {
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * 由SensitiveCodecProcessor生成, 请勿修改\n */\n");
+        source.append("public final class ").append(codecName)
+                .append(" implements ").append(SENSITIVE_CODEC).append('<').append(typeName).append("> {\n\n");
+
+        source.append("    private static final String[] FIELD_NAMES = {");
+        for (int i = 0; i < fieldNames.size(); i++) {
+            source.append(i == 0 ? "" : ", ").append('"').append(fieldNames.get(i)).append('"');
+        }
+        source.append("};\n\n");
+        if (attributes != null) {
+            source.append("    private static final ").append(SENSITIVE_CODEC_ATTRIBUTES).append(" ATTRIBUTES =\n            ")
+                    .append(attributes.initializer).append(";\n\n");
+        }
+
+        source.append("    @Override\n    public Class<").append(typeName).append("> getType() {\n")
+                .append("        return ").append(typeName).append(".class;\n    }\n\n");
+
+        source.append("    @Override\n    public String[] getFieldNames() {\n")
+                .append("        return FIELD_NAMES.clone();\n    }\n\n");
+
+        source.append("    @Override\n    public String get(").append(typeName).append(" entity, int index) {\n")
+                .append("        switch (index) {\n");
+        for (int i = 0; i < getters.size(); i++) {
+            source.append("            case ").append(i).append(":\n                return ")
+                    .append(getters.get(i).replace("$e", "entity")).append(";\n");
+        }
+        source.append("            default:\n                throw new IndexOutOfBoundsException(String.valueOf(index));\n")
+                .append("        }\n    }\n\n");
+
+        source.append("    @Override\n    public void set(").append(typeName)
+                .append(" entity, int index, String value) {\n        switch (index) {\n");
+        for (int i = 0; i < setters.size(); i++) {
+            source.append("            case ").append(i).append(":\n                ")
+                    .append(setters.get(i).replace("$e", "entity").replace("$v", "value")).append(";\n")
+                    .append("                return;\n");
+        }
+        source.append("            default:\n                throw new IndexOutOfBoundsException(String.valueOf(index));\n")
+                .append("        }\n    }\n");
+        if (attributes != null) {
+            renderAttributes(source, typeName, attributes);
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private void renderAttributes(StringBuilder source, String typeName, Attributes attributes) {
+        source.append("\n    @Override\n    public ").append(SENSITIVE_CODEC_ATTRIBUTES).append(" getAttributes() {\n")
+                .append("        return ATTRIBUTES;\n    }\n");
+
+        if (attributes.blindIndexSetters.stream().anyMatch(setter -> setter != null)) {
+            source.append("\n    @Override\n    public void setBlindIndex(").append(typeName)
+                    .append(" entity, int index, String value) {\n        switch (index) {\n");
+            for (int i = 0; i < attributes.blindIndexSetters.size(); i++) {
+                String setter = attributes.blindIndexSetters.get(i);
+                if (setter != null) {
+                    source.append("            case ").append(i).append(":\n                ")
+                            .append(setter.replace("$e", "entity").replace("$v", "value")).append(";\n")
+                            .append("                return;\n");
+                }
+            }
+            source.append("            default:\n")
+                    .append("                throw new IndexOutOfBoundsException(String.valueOf(index));\n")
+                    .append("        }\n    }\n");
+        }
+
+        if (attributes.idGetter != null) {
+            source.append("\n    @Override\n    public Object getId(").append(typeName).append(" entity) {\n")
+                    .append("        return ").append(attributes.idGetter.replace("$e", "entity")).append(";\n    }\n");
+        }
+    }
+
+    private void writeServiceFile() {
+        if (generatedCodecs.isEmpty()) {
+            return;
+        }
+        String path = "META-INF/services/" + SENSITIVE_CODEC;
+        //增量编译时只处理变化的实体, 需要保留之前编译注册的编解码器
+        Set<String> codecs = new LinkedHashSet<>(existingCodecs(path));
+        codecs.addAll(generatedCodecs);
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
+            try (Writer writer = file.openWriter()) {
+                for (String codec : codecs) {
+                    writer.write(codec);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "写入编解码器注册文件失败: " + e);
+        }
+    }
+
+    /**
+     * 读取输出目录中已有的注册文件, 忽略已经不存在的编解码器
+     */
+    private List<String> existingCodecs(String path) {
+        List<String> codecs = new ArrayList<>();
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
+            try (BufferedReader reader = new BufferedReader(file.openReader(true))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    int comment = line.indexOf('#');
+                    String codec = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                    if (!codec.isEmpty() && processingEnv.getElementUtils().getTypeElement(codec) != null) {
+                        codecs.add(codec);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // 首次编译时还没有注册文件
+        }
+        return codecs;
+    }
+
+    private String codecSimpleName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement;
+                enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, enclosing.getSimpleName());
+        }
+        return name.append(CODEC_SUFFIX).toString();
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private PackageElement packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element);
+    }
+
+    private boolean isString(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.String");
+    }
+
+    private String literal(String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    /**
+     * 读取注解属性, 包含默认值; 注解或属性不存在时返回defaultValue
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T attributeValue(AnnotationMirror mirror, String name, T defaultValue) {
+        if (mirror == null) {
+            return defaultValue;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv.getElementUtils()
+                .getElementValuesWithDefaults(mirror).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return (T) entry.getValue().getValue();
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 驼峰命名转为下划线命名, 与运行时按列名匹配盲索引字段的规则相同
+     */
+    private static String toColumnName(String fieldName) {
+        StringBuilder column = new StringBuilder(fieldName.length() + 4);
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    column.append('_');
+                }
+                column.append(Character.toLowerCase(c));
+            } else {
+                column.append(c);
+            }
+        }
+        return column.toString();
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName) {
+        return annotation(element, annotationName) != null;
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 生成的注解属性初始化表达式, 以及盲索引(下标与敏感字段相同, 没有盲索引时为null)和主键的访问表达式
+     */
+    private static final class Attributes {
+
+        private final StringBuilder initializer = new StringBuilder();
+        private final List<String> blindIndexSetters = new ArrayList<>();
+        private String idGetter;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+public class SensitiveCodecProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGeneratesCodecForSensitiveEntity() throws Exception {
+        Path sources = tempDir.resolve("src");
+        Path classes = tempDir.resolve("classes");
+        Files.createDirectories(classes);
+
+        List<Path> files = new ArrayList<>();
+        files.add(write(sources, "dev/cn/common/sensitive_data/annotation/SensitiveData.java",
+                "package dev.cn.common.sensitive_data.annotation;\n"
+                        + "@java.lang.annotation.Inherited\n"
+                        + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                        + "public @interface SensitiveData {}\n"));
+        files.add(write(sources, "dev/cn/common/sensitive_data/annotation/SensitiveField.java",
+                "package dev.cn.common.sensitive_data.annotation;\n"
+                        + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                        + "public @interface SensitiveField {}\n"));
+        files.add(write(sources, "dev/cn/common/sensitive_data/support/SensitiveCodec.java",
+                "package dev.cn.common.sensitive_data.support;\n"
+                        + "public interface SensitiveCodec<T> {\n"
+                        + "    Class<T> getType();\n"
+                        + "    String[] getFieldNames();\n"
+                        + "    String get(T entity, int index);\n"
+                        + "    void set(T entity, int index, String value);\n"
+                        + "}\n"));
+        files.add(write(sources, "demo/BasePO.java",
+                "package demo;\n"
+                        + "import dev.cn.common.sensitive_data.annotation.*;\n"
+                        + "public class BasePO {\n"
+                        + "    @SensitiveField String idCard;\n"
+                        + "}\n"));
+        files.add(write(sources, "demo/UserPO.java",
+                "package demo;\n"
+                        + "import dev.cn.common.sensitive_data.annotation.*;\n"
+                        + "@SensitiveData\n"
+                        + "public class UserPO extends BasePO {\n"
+                        + "    @SensitiveField private String tel;\n"
+                        + "    @SensitiveField private Long age;\n"
+                        + "    private String name;\n"
+                        + "    public String getTel() { return tel; }\n"
+                        + "    public void setTel(String tel) { this.tel = tel; }\n"
+                        + "}\n"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-d", classes.toString(), "-s", classes.toString());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(toFiles(files)));
+            task.setProcessors(Arrays.asList(new SensitiveCodecProcessor()));
+            assertTrue(task.call());
+        }
+
+        String service = new String(Files.readAllBytes(
+                classes.resolve("META-INF/services/dev.cn.common.sensitive_data.support.SensitiveCodec")),
+                StandardCharsets.UTF_8);
+        assertEquals("demo.UserPO_SensitiveCodec", service.trim());
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL() })) {
+            Class<?> entityClass = classLoader.loadClass("demo.UserPO");
+            Object entity = entityClass.getDeclaredConstructor().newInstance();
+            Object codec = classLoader.loadClass("demo.UserPO_SensitiveCodec").getDeclaredConstructor().newInstance();
+
+            String[] fieldNames = (String[]) codec.getClass().getMethod("getFieldNames").invoke(codec);
+            assertArrayEquals(new String[] { "tel", "idCard" }, fieldNames);
+
+            codec.getClass().getMethod("set", entityClass, int.class, String.class).invoke(codec, entity, 0, "13800138000");
+            codec.getClass().getMethod("set", entityClass, int.class, String.class).invoke(codec, entity, 1, "110101");
+            assertEquals("13800138000", entityClass.getMethod("getTel").invoke(entity));
+            assertEquals("110101", codec.getClass().getMethod("get", entityClass, int.class).invoke(codec, entity, 1));
+        }
+    }
+
+    @Test
+    public void testGeneratesAnnotationAttributes() throws Exception {
+        Path sources = tempDir.resolve("src");
+        Path classes = tempDir.resolve("classes");
+        Files.createDirectories(classes);
+
+        List<Path> files = new ArrayList<>();
+        files.add(write(sources, "dev/cn/common/sensitive_data/annotation/SensitiveData.java",
+                "package dev.cn.common.sensitive_data.annotation;\n"
+                        + "@java.lang.annotation.Inherited\n"
+                        + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                        + "public @interface SensitiveData {\n"
+                        + "    String table() default \"\";\n"
+                        + "    String idField() default \"id\";\n"
+                        + "    String idColumn() default \"\";\n"
+                        + "}\n"));
+        files.add(write(sources, "dev/cn/common/sensitive_data/annotation/SensitiveField.java",
+                "package dev.cn.common.sensitive_data.annotation;\n"
+                        + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                        + "public @interface SensitiveField {\n"
+                        + "    boolean lazy() default false;\n"
+                        + "    String column() default \"\";\n"
+                        + "    String blindIndex() default \"\";\n"
+                        + "    String keyAlias() default \"\";\n"
+                        + "    String profile() default \"\";\n"
+                        + "}\n"));
+        files.add(write(sources, "dev/cn/common/sensitive_data/support/SensitiveCodec.java",
+                "package dev.cn.common.sensitive_data.support;\n"
+                        + "public interface SensitiveCodec<T> {\n"
+                        + "    Class<T> getType();\n"
+                        + "    String[] getFieldNames();\n"
+                        + "    String get(T entity, int index);\n"
+                        + "    void set(T entity, int index, String value);\n"
+                        + "    default SensitiveCodecAttributes getAttributes() { return null; }\n"
+                        + "    default void setBlindIndex(T entity, int index, String value) {}\n"
+                        + "    default Object getId(T entity) { return null; }\n"
+                        + "}\n"));
+        files.add(write(sources, "dev/cn/common/sensitive_data/support/SensitiveCodecAttributes.java",
+                "package dev.cn.common.sensitive_data.support;\n"
+                        + "public final class SensitiveCodecAttributes {\n"
+                        + "    private final StringBuilder text = new StringBuilder();\n"
+                        + "    public SensitiveCodecAttributes(String table, String idField, String idColumn) {\n"
+                        + "        text.append(table).append(',').append(idField).append(',').append(idColumn);\n"
+                        + "    }\n"
+                        + "    public SensitiveCodecAttributes field(String column, boolean lazy, String blindIndex,\n"
+                        + "            String keyAlias, String profile) {\n"
+                        + "        text.append(';').append(column).append(',').append(lazy).append(',').append(blindIndex)\n"
+                        + "                .append(',').append(keyAlias).append(',').append(profile);\n"
+                        + "        return this;\n"
+                        + "    }\n"
+                        + "    public String toString() { return text.toString(); }\n"
+                        + "}\n"));
+        files.add(write(sources, "demo/AccountPO.java",
+                "package demo;\n"
+                        + "import dev.cn.common.sensitive_data.annotation.*;\n"
+                        + "@SensitiveData(table = \"t_account\", idField = \"accountId\")\n"
+                        + "public class AccountPO {\n"
+                        + "    private long accountId;\n"
+                        + "    @SensitiveField(blindIndex = \"tel_bidx\", keyAlias = \"phone\") private String tel;\n"
+                        + "    @SensitiveField(column = \"\\\"remark\\\"\", profile = \"lookup\") String remark;\n"
+                        + "    private String telBidx;\n"
+                        + "    public long getAccountId() { return accountId; }\n"
+                        + "    public void setAccountId(long accountId) { this.accountId = accountId; }\n"
+                        + "    public String getTel() { return tel; }\n"
+                        + "    public void setTel(String tel) { this.tel = tel; }\n"
+                        + "    public String getTelBidx() { return telBidx; }\n"
+                        + "    public void setTelBidx(String telBidx) { this.telBidx = telBidx; }\n"
+                        + "}\n"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-d", classes.toString(), "-s", classes.toString());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(toFiles(files)));
+            task.setProcessors(Arrays.asList(new SensitiveCodecProcessor()));
+            assertTrue(task.call());
+        }
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL() })) {
+            Class<?> entityClass = classLoader.loadClass("demo.AccountPO");
+            Object entity = entityClass.getDeclaredConstructor().newInstance();
+            Object codec = classLoader.loadClass("demo.AccountPO_SensitiveCodec").getDeclaredConstructor().newInstance();
+
+            assertEquals("t_account,accountId,;,false,tel_bidx,phone,;\"remark\",false,,,lookup",
+                    codec.getClass().getMethod("getAttributes").invoke(codec).toString());
+
+            entityClass.getMethod("setAccountId", long.class).invoke(entity, 42L);
+            assertEquals(42L, codec.getClass().getMethod("getId", entityClass).invoke(codec, entity));
+            codec.getClass().getMethod("setBlindIndex", entityClass, int.class, String.class)
+                    .invoke(codec, entity, 0, "bidx");
+            assertEquals("bidx", entityClass.getMethod("getTelBidx").invoke(entity));
+            assertThrows(Exception.class, () -> codec.getClass()
+                    .getMethod("setBlindIndex", entityClass, int.class, String.class).invoke(codec, entity, 1, "x"));
+        }
+    }
+
+    @Test
+    public void testMergesServiceFileInIncrementalBuild() throws Exception {
+        Path sources = tempDir.resolve("src");
+        Path classes = tempDir.resolve("classes");
+        Files.createDirectories(classes);
+
+        List<Path> files = new ArrayList<>();
+        files.add(write(sources, "dev/cn/common/sensitive_data/annotation/SensitiveData.java",
+                "package dev.cn.common.sensitive_data.annotation;\n"
+                        + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                        + "public @interface SensitiveData {}\n"));
+        files.add(write(sources, "dev/cn/common/sensitive_data/annotation/SensitiveField.java",
+                "package dev.cn.common.sensitive_data.annotation;\n"
+                        + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                        + "public @interface SensitiveField {}\n"));
+        files.add(write(sources, "dev/cn/common/sensitive_data/support/SensitiveCodec.java",
+                "package dev.cn.common.sensitive_data.support;\n"
+                        + "public interface SensitiveCodec<T> {\n"
+                        + "    Class<T> getType();\n"
+                        + "    String[] getFieldNames();\n"
+                        + "    String get(T entity, int index);\n"
+                        + "    void set(T entity, int index, String value);\n"
+                        + "}\n"));
+        files.add(write(sources, "demo/UserPO.java",
+                "package demo;\n"
+                        + "import dev.cn.common.sensitive_data.annotation.*;\n"
+                        + "@SensitiveData\n"
+                        + "public class UserPO {\n"
+                        + "    @SensitiveField String tel;\n"
+                        + "}\n"));
+        compile(files, classes);
+
+        // 增量编译只重新编译了另一个实体, 已有的注册不能丢失
+        Path order = write(sources, "demo/OrderPO.java",
+                "package demo;\n"
+                        + "import dev.cn.common.sensitive_data.annotation.*;\n"
+                        + "@SensitiveData\n"
+                        + "public class OrderPO {\n"
+                        + "    @SensitiveField String address;\n"
+                        + "}\n");
+        compile(Arrays.asList(order), classes);
+
+        String service = new String(Files.readAllBytes(
+                classes.resolve("META-INF/services/dev.cn.common.sensitive_data.support.SensitiveCodec")),
+                StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("demo.UserPO_SensitiveCodec", "demo.OrderPO_SensitiveCodec"),
+                Arrays.asList(service.trim().split("\n")));
+    }
+
+    private static void compile(List<Path> files, Path classes) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-d", classes.toString(), "-s", classes.toString(),
+                    "-cp", classes.toString());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(toFiles(files)));
+            task.setProcessors(Arrays.asList(new SensitiveCodecProcessor()));
+            assertTrue(task.call());
+        }
+    }
+
+    private static List<File> toFiles(List<Path> paths) {
+        List<File> files = new ArrayList<>();
+        for (Path path : paths) {
+            files.add(path.toFile());
+        }
+        return files;
+    }
+
+    private static Path write(Path root, String name, String content) throws IOException {
+        Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -27,15 +27,34 @@ import org.springframework.context.annotation.Import;
 
 import dev.cn.common.sensitive_data.component.DecryptInterceptor;
 import dev.cn.common.sensitive_data.component.EncryptInterceptor;
+import dev.cn.common.sensitive_data.component.TransparentCryptRegistrar;
 
 import java.lang.annotation.*;
 
 /**
  * 在项目入口处添加该注解，启用数据透明加解密功能.
+ *
+ * 启动完成前会扫描指定包中的{@link SensitiveData}类, 预先解析元数据并预热加解密引擎.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
 @Documented
-@Import({ EncryptInterceptor.class, DecryptInterceptor.class })
+@Import({ EncryptInterceptor.class, DecryptInterceptor.class, TransparentCryptRegistrar.class })
 public @interface EnableTransparentCrypt {
+
+    /**
+     * 需要扫描的包, 与{@link #basePackageClasses()}都未指定时扫描该注解所在类的包
+     *
+     * @return 包名
+     * @since 1.2.0
+     */
+    String[] basePackages() default {};
+
+    /**
+     * 以这些类所在的包作为扫描的包
+     *
+     * @return 类
+     * @since 1.2.0
+     */
+    Class<?>[] basePackageClasses() default {};
 }
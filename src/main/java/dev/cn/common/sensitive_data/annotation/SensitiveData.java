@@ -33,5 +33,28 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface SensitiveData {
-    
+
+    /**
+     * 表名. 秘钥轮换时, 查询到旧秘钥加密的值会按此表名在后台重新加密并回写, 为空时不回写.
+     *
+     * @since 1.2.0
+     * @return 表名
+     */
+    String table() default "";
+
+    /**
+     * 主键字段名, 回写时用于定位行
+     *
+     * @since 1.2.0
+     * @return 主键字段名
+     */
+    String idField() default "id";
+
+    /**
+     * 主键列名, 为空时按主键字段名由驼峰转为下划线
+     *
+     * @since 1.2.0
+     * @return 主键列名
+     */
+    String idColumn() default "";
 }
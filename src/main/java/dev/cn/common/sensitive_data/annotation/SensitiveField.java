@@ -31,5 +31,47 @@ import java.lang.annotation.Target;
 @Target(ElementType.FIELD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface SensitiveField {
-    
+
+    /**
+     * 是否延迟解密. 只对SensitiveValue类型的字段有效, 查询时保留密文, 首次调用SensitiveValue.get()时才解密.
+     *
+     * @since 1.2.0
+     * @return 是否延迟解密
+     */
+    boolean lazy() default false;
+
+    /**
+     * 列名, 秘钥轮换回写时使用, 为空时按字段名由驼峰转为下划线
+     *
+     * @since 1.2.0
+     * @return 列名
+     */
+    String column() default "";
+
+    /**
+     * 盲索引字段. 写入时由加密拦截器把明文的盲索引(HMAC)写入该字段, 可以填写字段名或列名, 为空时不生成.
+     * 盲索引字段必须是String类型, 查询时配合mapper参数上的{@link BlindIndex}使用.
+     *
+     * @since 1.2.0
+     * @return 盲索引字段
+     */
+    String blindIndex() default "";
+
+    /**
+     * 秘钥别名. 为空时使用表对应的秘钥; 否则按sensitive-data.data-crypt.key-aliases配置的秘钥编号加密,
+     * 信封加密时由KeyProvider按该名称选择数据秘钥. 秘钥编号写在密文首部, 解密不需要指定.
+     *
+     * @since 1.2.0
+     * @return 秘钥别名
+     */
+    String keyAlias() default "";
+
+    /**
+     * 算法配置. 为空时使用全局的加密算法策略; 否则按sensitive-data.data-crypt.profiles配置的加密算法策略加密,
+     * 也可以直接填写策略名称, 如ECB(确定性, 可用于等值查询)、GCM(随机IV)、CTR(适合长文本).
+     *
+     * @since 1.2.0
+     * @return 算法配置
+     */
+    String profile() default "";
 }
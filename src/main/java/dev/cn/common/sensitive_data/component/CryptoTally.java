@@ -0,0 +1,54 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一条语句中处理的字段数和密文字节数, 并行解密时会被多个线程同时累加
+ *
+ * @since 1.2.0
+ */
+class CryptoTally {
+
+    private final LongAdder fieldCount = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    void add(String encryptedValue) {
+        add(encryptedValue.length());
+    }
+
+    void add(int encryptedLength) {
+        fieldCount.increment();
+        bytes.add(encryptedLength);
+    }
+
+    int getFieldCount() {
+        return fieldCount.intValue();
+    }
+
+    long getBytes() {
+        return bytes.sum();
+    }
+}
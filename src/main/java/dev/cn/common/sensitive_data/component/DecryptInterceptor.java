@@ -23,30 +23,66 @@
  */
 package dev.cn.common.sensitive_data.component;
 
-import java.lang.reflect.Field;
 import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.annotation.AnnotationUtils;
 
-import dev.cn.common.sensitive_data.annotation.SensitiveData;
-import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.crypto.CryptCache;
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoProfiles;
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+import dev.cn.common.sensitive_data.crypto.KeyProvider;
+import dev.cn.common.sensitive_data.metrics.CryptoMetrics;
+import dev.cn.common.sensitive_data.support.ParallelRowProcessor;
+import dev.cn.common.sensitive_data.support.ParallelRowProcessor.RowAction;
+import dev.cn.common.sensitive_data.support.Constants;
+import dev.cn.common.sensitive_data.support.SensitiveClassMetadata;
+import dev.cn.common.sensitive_data.support.TraversalPlan;
 import dev.cn.common.sensitive_data.support.ValueHelper;
-import dev.cn.common.sensitive_data.util.CryptUtils;
+import dev.cn.common.sensitive_data.type.SensitiveValue;
 
 /**
  * 这里是对找出来的字符串结果集进行解密所以是ResultSetHandler
  * args是指定预编译语句
+ * 流式查询: Cursor在逐行取出时解密, ResultHandler则在Executor层包装为逐行解密的ResultHandler
  */
 @Intercepts({
-        @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class})
+        @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class}),
+        @Signature(type = ResultSetHandler.class, method = "handleCursorResultSets", args = {Statement.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
 })
-public class DecryptInterceptor implements Interceptor {
+public class DecryptInterceptor implements Interceptor, InitializingBean, DisposableBean {
+
+    private static final String CURSOR_METHOD = "handleCursorResultSets";
+    private static final int RESULT_HANDLER_ARG = 3;
+    private static final String ALL_COLUMNS = "*";
 
     @Value("${sensitive-data.data-crypt.enabled:false}")
     private boolean enabled;
@@ -54,47 +90,245 @@ public class DecryptInterceptor implements Interceptor {
     private String keyAlgorithm;
     @Value("${sensitive-data.data-crypt.cipher-algorithm:AES/ECB/PKCS5Padding}")
     private String cipherAlgorithm;
+    @Value("${sensitive-data.data-crypt.cipher-strategy:}")
+    private String cipherStrategy;
     @Value("${sensitive-data.data-crypt.key:dummy-key}")
     private String key;
+    @Value("${sensitive-data.data-crypt.keys:}")
+    private String keys;
+    @Value("${sensitive-data.data-crypt.active-key-id:0}")
+    private int activeKeyId;
+    @Value("${sensitive-data.data-crypt.mode:" + Constants.MODE_INTERCEPTOR + "}")
+    private String mode;
+    @Value("${sensitive-data.data-crypt.parallel.enabled:false}")
+    private boolean parallelEnabled;
+    @Value("${sensitive-data.data-crypt.parallel.threshold:2000}")
+    private int parallelThreshold;
+    @Value("${sensitive-data.data-crypt.parallel.chunk-size:256}")
+    private int parallelChunkSize;
+    @Value("${sensitive-data.data-crypt.parallel.parallelism:0}")
+    private int parallelism;
+    @Value("${sensitive-data.data-crypt.decrypt-cache.enabled:false}")
+    private boolean decryptCacheEnabled;
+    @Value("${sensitive-data.data-crypt.decrypt-cache.max-entries:10000}")
+    private int decryptCacheMaxEntries;
+    @Value("${sensitive-data.data-crypt.decrypt-cache.max-bytes:16777216}")
+    private long decryptCacheMaxBytes;
+    @Value("${sensitive-data.data-crypt.decrypt-cache.off-heap:false}")
+    private boolean decryptCacheOffHeap;
+    @Value("${sensitive-data.data-crypt.key-rotation.enabled:false}")
+    private boolean keyRotationEnabled;
+    @Value("${sensitive-data.data-crypt.key-rotation.queue-capacity:10000}")
+    private int keyRotationQueueCapacity;
+    @Value("${sensitive-data.data-crypt.key-rotation.batch-size:100}")
+    private int keyRotationBatchSize;
+    @Value("${sensitive-data.data-crypt.key-rotation.max-rows-per-second:200}")
+    private int keyRotationMaxRowsPerSecond;
+    @Value("${sensitive-data.data-crypt.map-result.columns:}")
+    private String mapResultColumns;
+    @Value("${sensitive-data.data-crypt.data-key.ttl-seconds:300}")
+    private long dataKeyTtlSeconds;
+    @Value("${sensitive-data.data-crypt.key-aliases:}")
+    private String keyAliases;
+    @Value("${sensitive-data.data-crypt.profiles:}")
+    private String profiles;
+    @Autowired(required = false)
+    private CryptoMetrics cryptoMetrics;
+    @Autowired(required = false)
+    private KeyProvider keyProvider;
+    @Autowired(required = false)
+    private ObjectProvider<DataSource> dataSources;
+
+    /**
+     * 与另一个拦截器共享的加解密引擎, 首次使用时创建
+     */
+    private volatile CryptoEngine cryptoEngine;
+    /**
+     * 按字段选择秘钥和算法, 首次使用时创建
+     */
+    private volatile CryptoProfiles cryptoProfiles;
+
+    /**
+     * 大结果集的并行解密线程池, 首次需要并行解密时创建
+     */
+    private volatile ParallelRowProcessor parallelRowProcessor;
+
+    /**
+     * 以密文为键的明文缓存, 首次解密时创建
+     */
+    private volatile CryptCache decryptCache;
+
+    /**
+     * 秘钥轮换的后台回写器, 首次发现旧秘钥加密的值时创建
+     */
+    private volatile KeyRotationWriter keyRotationWriter;
+
+    /**
+     * Map结果中需要解密的列名(小写), 首次使用时解析
+     */
+    private volatile Set<String> mapColumns;
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
-        if(!enabled) {
+        //类型处理器模式下在读写列值时加解密, 拦截器不再处理
+        if(!enabled || Constants.MODE_TYPE_HANDLER.equals(mode)) {
             return invocation.proceed();
         }
 
+        if (invocation.getTarget() instanceof Executor) {
+            //基于ResultHandler的流式查询
+            return wrapResultHandler(invocation);
+        }
+        if (CURSOR_METHOD.equals(invocation.getMethod().getName())) {
+            //基于Cursor的流式查询
+            Cursor<?> cursor = (Cursor<?>) invocation.proceed();
+            return cursor == null ? null : new DecryptingCursor<>(cursor, rowDecrypter(invocation.getTarget()));
+        }
+
         //取出查询的结果
         Object resultObject = invocation.proceed();
         if (Objects.isNull(resultObject)) {
             return null;
         }
+        //启用指标时统计本条语句解密的字段数和耗时
+        CryptoMetrics metrics = cryptoMetrics;
+        CryptoTally tally = metrics == null ? null : new CryptoTally();
+        long start = metrics == null ? 0 : System.nanoTime();
         if (resultObject instanceof List) {
-            //基于selectList
+            //基于selectList, 逐行按各自的类处理, 列表中可能有不同类的对象(如discriminator)
             List<?> resultList = (List<?>) resultObject;
-            if (!resultList.isEmpty() && needToDecrypt(resultList.get(0))) {
-                for (Object result : resultList) {
-                    //逐一解密
-                    decrypt(result);
+            if (needToDecrypt(resultList)) {
+                if (parallelEnabled && resultList.size() >= parallelThreshold) {
+                    //大结果集分块并行解密, 全部完成后返回
+                    getParallelRowProcessor().forEach(resultList, row -> decryptRow(row, tally));
+                } else {
+                    for (Object result : resultList) {
+                        //逐一解密
+                        decryptRow(result, tally);
+                    }
                 }
             }
         } else {
             //基于selectOne
-            if (needToDecrypt(resultObject)) {
-                decrypt(resultObject);
-            }
+            decryptRow(resultObject, tally);
+        }
+        if (tally != null && tally.getFieldCount() > 0) {
+            metrics.record(CryptoMetrics.Operation.DECRYPT, StatementIds.of(invocation.getTarget()),
+                    tally.getFieldCount(), tally.getBytes(), System.nanoTime() - start);
         }
         return resultObject;
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object wrapResultHandler(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        Object resultHandler = args[RESULT_HANDLER_ARG];
+        //没有ResultHandler的普通查询在handleResultSets中解密
+        if (resultHandler != null && !(resultHandler instanceof DecryptingResultHandler)) {
+            args[RESULT_HANDLER_ARG] = new DecryptingResultHandler((ResultHandler) resultHandler,
+                    rowDecrypter(args[0]));
+        }
+        return invocation.proceed();
+    }
+
     /**
-     * 对单个结果集判空的一个方法
-     * @param object
+     * 流式查询的逐行解密逻辑, 启用指标时按行记录
+     * @param target ResultSetHandler或MappedStatement
+     * @return 逐行解密逻辑
+     */
+    private RowAction rowDecrypter(Object target) {
+        CryptoMetrics metrics = cryptoMetrics;
+        if (metrics == null) {
+            return row -> decryptRow(row, null);
+        }
+        String statementId = StatementIds.of(target);
+        return row -> {
+            CryptoTally tally = new CryptoTally();
+            long start = System.nanoTime();
+            decryptRow(row, tally);
+            if (tally.getFieldCount() > 0) {
+                metrics.record(CryptoMetrics.Operation.DECRYPT, statementId, tally.getFieldCount(),
+                        tally.getBytes(), System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * 解密单行, 按行对象的类的遍历计划解密其中所有的敏感对象, Map行按配置的列解密
+     * @param row
+     * @param tally 指标统计, 未启用指标时为null
+     * @throws Exception
+     */
+    private void decryptRow(Object row, CryptoTally tally) throws Exception {
+        if (row == null) {
+            return;
+        }
+        if (row instanceof Map) {
+            decryptMap((Map<?, ?>) row, tally);
+            return;
+        }
+        TraversalPlan plan = TraversalPlan.forClass(row.getClass());
+        if (!plan.isEmpty()) {
+            plan.visit(row, (entity, metadata) -> decrypt(entity, metadata, tally));
+        }
+    }
+
+    /**
+     * 结果中是否有需要解密的行, 通常第一行即可判断
+     * @param rows
      * @return
      */
-    private boolean needToDecrypt(Object object) {
-        Class<?> objectClass = object.getClass();
-        SensitiveData sensitiveData = AnnotationUtils.findAnnotation(objectClass, SensitiveData.class);
-        return Objects.nonNull(sensitiveData);
+    private boolean needToDecrypt(List<?> rows) {
+        for (Object row : rows) {
+            if (row instanceof Map ? !getMapColumns().isEmpty()
+                    : row != null && !TraversalPlan.forClass(row.getClass()).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解密resultType为map的行
+     * @param row
+     * @param tally 指标统计, 未启用指标时为null
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    private void decryptMap(Map<?, ?> row, CryptoTally tally) throws Exception {
+        Set<String> columns = getMapColumns();
+        if (columns.isEmpty()) {
+            return;
+        }
+        boolean allColumns = columns.contains(ALL_COLUMNS);
+        for (Map.Entry<?, Object> entry : ((Map<?, Object>) row).entrySet()) {
+            Object value = entry.getValue();
+            //列名的大小写取决于数据库驱动
+            if (value instanceof String && ValueHelper.isEncrypted((String) value) && (allColumns
+                    || columns.contains(String.valueOf(entry.getKey()).toLowerCase(Locale.ROOT)))) {
+                entry.setValue(decryptValue((String) value));
+                if (tally != null) {
+                    tally.add((String) value);
+                }
+            }
+        }
+    }
+
+    private Set<String> getMapColumns() {
+        Set<String> columns = mapColumns;
+        if (columns == null) {
+            columns = new HashSet<>();
+            if (mapResultColumns != null) {
+                for (String column : mapResultColumns.split(",")) {
+                    if (!column.trim().isEmpty()) {
+                        columns.add(column.trim().toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            columns = columns.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(columns);
+            mapColumns = columns;
+        }
+        return columns;
     }
 
     /**
@@ -107,40 +341,247 @@ public class DecryptInterceptor implements Interceptor {
         return Plugin.wrap(target, this);
     }
 
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (enabled) {
+            if (Constants.MODE_TYPE_HANDLER.equals(mode) && keyRotationEnabled) {
+                //回写需要实体的表名和主键, 类型处理器拿不到
+                throw new IllegalStateException("类型处理器模式不支持key-rotation, 请使用拦截器模式");
+            }
+            //类型处理器由MyBatis创建, 通过全局引擎获取配置
+            CryptoEngineHolder.set(getCryptoEngine());
+        }
+    }
+
+    /**
+     * 预热: 创建加解密引擎, 并用样本密文反复解密, 让JIT提前编译解密路径.
+     * 不经过解密缓存, 样本不会进入缓存.
+     * @param iterations 解密次数, 小于等于0时只创建引擎
+     * @return 实际执行的解密次数
+     * @throws Exception 配置错误
+     */
+    int warmUp(int iterations) throws Exception {
+        if (!enabled) {
+            return 0;
+        }
+        CryptoEngine engine = getCryptoEngine();
+        int samples = Math.min(iterations, SensitiveDataWarmer.SAMPLES.length);
+        String[] prefixed = new String[samples];
+        byte[][] binary = new byte[samples][];
+        for (int i = 0; i < samples; i++) {
+            prefixed[i] = engine.encryptPrefixed(SensitiveDataWarmer.SAMPLES[i]);
+            binary[i] = engine.encryptToBinary(SensitiveDataWarmer.SAMPLES[i]);
+        }
+        int count = 0;
+        for (int i = 0; i < iterations; i++) {
+            engine.decryptPrefixed(prefixed[i % samples]);
+            engine.decryptBinary(binary[i % samples]);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void destroy() {
+        ParallelRowProcessor processor = parallelRowProcessor;
+        if (processor != null) {
+            processor.close();
+        }
+        CryptCache cache = decryptCache;
+        if (cache != null) {
+            cache.clear();
+        }
+        KeyRotationWriter writer = keyRotationWriter;
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * 获取解密缓存, 可用于查看命中率等统计信息
+     * @return 解密缓存, 未启用时返回null
+     */
+    public CryptCache getDecryptCache() {
+        if (!decryptCacheEnabled) {
+            return null;
+        }
+        CryptCache cache = decryptCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = decryptCache;
+                if (cache == null) {
+                    cache = new CryptCache(decryptCacheMaxEntries, decryptCacheMaxBytes, decryptCacheOffHeap);
+                    decryptCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
     /**
      * 解密
      *
      * @param result
+     * @param metadata result所属类的元数据, 其中只包含被SensitiveField注解的字段(含父类字段)
+     * @param tally 指标统计, 未启用指标时为null
      * @param <T>
      * @return
      * @throws IllegalAccessException
      */
-    private <T> T decrypt(T result) throws Exception {
-        //取出resultType的类
-        Class<?> resultClass = result.getClass();
-        Field[] declaredFields = resultClass.getDeclaredFields();
-        for (Field declaredField : declaredFields) {
-            //去除所有被EncryptDecryptField注解的字段
-            SensitiveField sensitiveField = declaredField.getAnnotation(SensitiveField.class);
-            if (!Objects.isNull(sensitiveField)) {
-                //将此对象的 accessible 标志设置为指示的布尔值。值为 true 则指示反射的对象在使用时应该取消 Java 语言访问检查。
-                declaredField.setAccessible(true);
-                //这里的result就相当于是字段的访问器
-                Object object = declaredField.get(result);
-                //只支持String解密
-                if (object instanceof String) {
-                    String value = (String) object;
-                    //修改：没有标识则不解密
-                    if(ValueHelper.isEncrypted(value)) {
-                        value = ValueHelper.unprefixEncryptedValue(value);
-                        value = CryptUtils.decrypt(value, key, keyAlgorithm, cipherAlgorithm);
-                    }
+    private <T> T decrypt(T result, SensitiveClassMetadata metadata, CryptoTally tally) throws Exception {
+        for (SensitiveClassMetadata.FieldAccessor field : metadata.getFields()) {
+            Object object = field.get(result);
+            if (object instanceof String) {
+                String value = (String) object;
+                //修改：没有标识则不解密
+                if(ValueHelper.isEncrypted(value)) {
                     //对注解在这段进行逐一解密
-                    declaredField.set(result, value);
+                    field.set(result, decryptValue(value));
+                    if (tally != null) {
+                        tally.add(value);
+                    }
+                    rotate(result, metadata, field, value);
+                }
+            } else if (object instanceof byte[]) {
+                byte[] value = (byte[]) object;
+                if (ValueHelper.isEncrypted(value)) {
+                    field.set(result, getCryptoEngine().decryptBinary(value, field.<byte[]>getCodec()));
+                    if (tally != null) {
+                        tally.add(value.length);
+                    }
+                }
+            } else if (object instanceof SensitiveValue) {
+                SensitiveValue value = (SensitiveValue) object;
+                value.bind(this::decryptValue);
+                //非延迟字段立即解密, 延迟字段在首次访问时解密
+                if (!field.isLazy()) {
+                    value.get();
+                    if (tally != null && value.isEncrypted()) {
+                        tally.add(value.getEncryptedValue());
+                    }
+                }
+                if (value.isEncrypted()) {
+                    rotate(result, metadata, field, value.getEncryptedValue());
                 }
             }
         }
         return result;
     }
 
+    /**
+     * 旧秘钥加密的值提交到后台重新加密并回写
+     * @param result
+     * @param metadata
+     * @param field
+     * @param encryptedValue 数据库中的密文
+     * @throws Exception
+     */
+    private void rotate(Object result, SensitiveClassMetadata metadata, SensitiveClassMetadata.FieldAccessor field,
+            String encryptedValue) throws Exception {
+        if (!keyRotationEnabled || metadata.getTable() == null) {
+            return;
+        }
+        //按表和字段上的配置判断是否为当前秘钥加密
+        CryptoEngine engine = getCryptoProfiles().engineFor(field, getCryptoEngine().forKeyName(metadata.getTable()),
+                field.getKeyAlias(), field.getProfile());
+        if (!engine.isStale(encryptedValue)) {
+            return;
+        }
+        KeyRotationWriter writer = getKeyRotationWriter();
+        Object id = metadata.getId(result);
+        if (writer != null && id != null) {
+            writer.submit(metadata.getTable(), metadata.getIdColumn(), id, field.getColumn(), encryptedValue, engine);
+        }
+    }
+
+    /**
+     * 获取秘钥轮换的后台回写器, 可用于查看回写进度
+     * @return 回写器, 未启用或没有唯一的数据源时返回null
+     * @throws Exception
+     */
+    public KeyRotationWriter getKeyRotationWriter() throws Exception {
+        if (!keyRotationEnabled) {
+            return null;
+        }
+        KeyRotationWriter writer = keyRotationWriter;
+        if (writer == null) {
+            synchronized (this) {
+                writer = keyRotationWriter;
+                if (writer == null) {
+                    DataSource dataSource = dataSources == null ? null : dataSources.getIfUnique();
+                    if (dataSource == null) {
+                        return null;
+                    }
+                    writer = new KeyRotationWriter(dataSource, getCryptoEngine(), keyRotationQueueCapacity,
+                            keyRotationBatchSize, keyRotationMaxRowsPerSecond);
+                    keyRotationWriter = writer;
+                }
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * 解密带前缀的密文
+     * @param prefixedEncryptedValue
+     * @return
+     * @throws Exception
+     */
+    private String decryptValue(String prefixedEncryptedValue) throws Exception {
+        CryptCache cache = getDecryptCache();
+        if (cache == null) {
+            return getCryptoEngine().decryptPrefixed(prefixedEncryptedValue);
+        }
+
+        //相同的密文直接使用缓存中的明文
+        String value = cache.get(prefixedEncryptedValue);
+        if (value == null) {
+            value = getCryptoEngine().decryptPrefixed(prefixedEncryptedValue);
+            cache.put(prefixedEncryptedValue, value);
+        }
+        return value;
+    }
+
+    private CryptoProfiles getCryptoProfiles() {
+        CryptoProfiles profiles = cryptoProfiles;
+        if (profiles == null) {
+            synchronized (this) {
+                profiles = cryptoProfiles;
+                if (profiles == null) {
+                    profiles = new CryptoProfiles(keyAliases, this.profiles, keyProvider);
+                    cryptoProfiles = profiles;
+                }
+            }
+        }
+        return profiles;
+    }
+
+    private ParallelRowProcessor getParallelRowProcessor() {
+        ParallelRowProcessor processor = parallelRowProcessor;
+        if (processor == null) {
+            synchronized (this) {
+                processor = parallelRowProcessor;
+                if (processor == null) {
+                    processor = new ParallelRowProcessor(parallelThreshold, parallelChunkSize, parallelism,
+                            "sensitive-data-decrypt");
+                    parallelRowProcessor = processor;
+                }
+            }
+        }
+        return processor;
+    }
+
+    private CryptoEngine getCryptoEngine() throws Exception {
+        CryptoEngine engine = cryptoEngine;
+        if (engine == null) {
+            //相同配置的加解密拦截器拿到的是同一个引擎
+            engine = keyProvider == null
+                    ? CryptoEngine.getInstance(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, activeKeyId)
+                    : CryptoEngine.getInstance(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, keyProvider,
+                            TimeUnit.SECONDS.toMillis(dataKeyTtlSeconds));
+            cryptoEngine = engine;
+        }
+        return engine;
+    }
+
 }
\ No newline at end of file
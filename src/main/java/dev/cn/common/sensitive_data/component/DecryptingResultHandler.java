@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import dev.cn.common.sensitive_data.support.ParallelRowProcessor.RowAction;
+
+/**
+ * 逐行解密的ResultHandler, 每行交给调用方的ResultHandler前先解密该行
+ *
+ * @since 1.2.0
+ * @param <T> 行类型
+ */
+class DecryptingResultHandler<T> implements ResultHandler<T> {
+
+    private final ResultHandler<T> delegate;
+    private final RowAction decrypter;
+
+    DecryptingResultHandler(ResultHandler<T> delegate, RowAction decrypter) {
+        this.delegate = delegate;
+        this.decrypter = decrypter;
+    }
+
+    @Override
+    public void handleResult(ResultContext<? extends T> resultContext) {
+        try {
+            decrypter.apply(resultContext.getResultObject());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("解密失败", e);
+        }
+        delegate.handleResult(resultContext);
+    }
+}
@@ -23,22 +23,48 @@
  */
 package dev.cn.common.sensitive_data.component;
 
-import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.StringUtils;
 
-import dev.cn.common.sensitive_data.annotation.SensitiveData;
-import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.crypto.BlindIndexer;
+import dev.cn.common.sensitive_data.crypto.CipherStrategy;
+import dev.cn.common.sensitive_data.crypto.CryptCache;
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoProfiles;
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+import dev.cn.common.sensitive_data.crypto.KeyProvider;
+import dev.cn.common.sensitive_data.metrics.CryptoMetrics;
+import dev.cn.common.sensitive_data.support.ParallelRowProcessor;
+import dev.cn.common.sensitive_data.support.Constants;
+import dev.cn.common.sensitive_data.support.SensitiveClassMetadata;
 import dev.cn.common.sensitive_data.support.ValueHelper;
-import dev.cn.common.sensitive_data.util.CryptUtils;
+import dev.cn.common.sensitive_data.type.SensitiveValue;
 
 /**
  * Intercepts注解开启拦截器
@@ -50,7 +76,11 @@ import dev.cn.common.sensitive_data.util.CryptUtils;
         //@Signature注解定义拦截器的实际类型
         @Signature(type = ParameterHandler.class, method = "setParameters", args = PreparedStatement.class),
 })
-public class EncryptInterceptor implements Interceptor {
+public class EncryptInterceptor implements Interceptor, InitializingBean, DisposableBean {
+
+    private static final Log LOG = LogFactory.getLog(EncryptInterceptor.class);
+
+    private static final String BOUND_SQL = "boundSql";
 
     @Value("${sensitive-data.data-crypt.enabled:false}")
     private boolean enabled;
@@ -58,12 +88,80 @@ public class EncryptInterceptor implements Interceptor {
     private String keyAlgorithm;
     @Value("${sensitive-data.data-crypt.cipher-algorithm:AES/ECB/PKCS5Padding}")
     private String cipherAlgorithm;
+    @Value("${sensitive-data.data-crypt.cipher-strategy:}")
+    private String cipherStrategy;
     @Value("${sensitive-data.data-crypt.key:dummy-key}")
     private String key;
+    @Value("${sensitive-data.data-crypt.keys:}")
+    private String keys;
+    @Value("${sensitive-data.data-crypt.active-key-id:0}")
+    private int activeKeyId;
+    @Value("${sensitive-data.data-crypt.mode:" + Constants.MODE_INTERCEPTOR + "}")
+    private String mode;
+    @Value("${sensitive-data.data-crypt.encrypt-cache.enabled:false}")
+    private boolean encryptCacheEnabled;
+    @Value("${sensitive-data.data-crypt.encrypt-cache.max-entries:10000}")
+    private int encryptCacheMaxEntries;
+    @Value("${sensitive-data.data-crypt.encrypt-cache.max-bytes:16777216}")
+    private long encryptCacheMaxBytes;
+    @Value("${sensitive-data.data-crypt.skip-unchanged.enabled:false}")
+    private boolean skipUnchangedEnabled;
+    @Value("${sensitive-data.data-crypt.parallel.enabled:false}")
+    private boolean parallelEnabled;
+    @Value("${sensitive-data.data-crypt.parallel.threshold:2000}")
+    private int parallelThreshold;
+    @Value("${sensitive-data.data-crypt.parallel.chunk-size:256}")
+    private int parallelChunkSize;
+    @Value("${sensitive-data.data-crypt.parallel.parallelism:0}")
+    private int parallelism;
+    @Value("${sensitive-data.data-crypt.blind-index.key:}")
+    private String blindIndexKey;
+    @Value("${sensitive-data.data-crypt.blind-index.length:16}")
+    private int blindIndexLength;
+    @Value("${sensitive-data.data-crypt.data-key.ttl-seconds:300}")
+    private long dataKeyTtlSeconds;
+    @Value("${sensitive-data.data-crypt.key-aliases:}")
+    private String keyAliases;
+    @Value("${sensitive-data.data-crypt.profiles:}")
+    private String profiles;
+    @Autowired(required = false)
+    private CryptoMetrics cryptoMetrics;
+    @Autowired(required = false)
+    private KeyProvider keyProvider;
+
+    /**
+     * 与另一个拦截器共享的加解密引擎, 首次使用时创建
+     */
+    private volatile CryptoEngine cryptoEngine;
+    /**
+     * 按字段选择秘钥和算法, 首次使用时创建
+     */
+    private volatile CryptoProfiles cryptoProfiles;
+    /**
+     * 明文到密文的缓存, 仅在开启且确定性加密模式下创建, 键是明文
+     */
+    private volatile CryptCache encryptCache;
+    /**
+     * 批量写入的并行加密线程池, 首次需要并行加密时创建
+     */
+    private volatile ParallelRowProcessor parallelRowProcessor;
+    /**
+     * 盲索引计算器, 首次使用时创建
+     */
+    private volatile BlindIndexer blindIndexer;
+    /**
+     * 已加密且未被修改的对象登记表
+     */
+    private final EncryptedObjects encryptedObjects = new EncryptedObjects();
+    /**
+     * 本拦截器生成的二进制密文. 二进制值没有可靠的前缀, 不按内容判断是否已加密
+     */
+    private final EncryptedObjects encryptedValues = new EncryptedObjects();
     
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
-        if(!enabled) {
+        //类型处理器模式下在读写列值时加解密, 拦截器不再处理
+        if(!enabled || Constants.MODE_TYPE_HANDLER.equals(mode)) {
             return invocation.proceed();
         }
 
@@ -71,22 +169,25 @@ public class EncryptInterceptor implements Interceptor {
         //若指定ResultSetHandler ，这里则能强转为ResultSetHandler
         ParameterHandler parameterHandler = (ParameterHandler) invocation.getTarget();
         //获取参数对象，即mapper中paramsType的实例
-        Field paramsField = parameterHandler.getClass().getDeclaredField("parameterObject");
-        //将此对象的 accessible 标志设置为指示的布尔值。值为 true 则指示反射的对象在使用时应该取消 Java 语言访问检查。
-        paramsField.setAccessible(true);
-        //取出实例
-        Object parameterObject = paramsField.get(parameterHandler);
+        Object parameterObject = parameterHandler.getParameterObject();
         if (parameterObject != null) {
-            if (parameterObject instanceof ParamMap) {
-                ParamMap<?> paramMap = (ParamMap<?>) parameterObject;
-                for (Map.Entry<String, ?> entry : paramMap.entrySet()) {
-                    if (entry.getValue() != null) {
-                        tryEncrypting(entry.getValue());
-                    }
-                }
+            //启用指标时统计本条语句加密的字段数和耗时
+            CryptoMetrics metrics = cryptoMetrics;
+            CryptoTally tally = metrics == null ? null : new CryptoTally();
+            long start = metrics == null ? 0 : System.nanoTime();
+            if (isContainer(parameterObject)) {
+                //ParamMap、foreach批量插入的List等容器, 先找出其中所有的敏感实体再作为一批加密
+                List<Object> entities = new ArrayList<>();
+                collectEntities(parameterObject, entities, Collections.newSetFromMap(new IdentityHashMap<>()));
+                encryptBatch(entities, tally);
             } else {
-                tryEncrypting(parameterObject);
+                tryEncrypting(parameterObject, tally);
+            }
+            if (tally != null && tally.getFieldCount() > 0) {
+                metrics.record(CryptoMetrics.Operation.ENCRYPT, StatementIds.of(parameterHandler),
+                        tally.getFieldCount(), tally.getBytes(), System.nanoTime() - start);
             }
+            rewriteParameters(parameterHandler, parameterObject);
         }
         //获取原方法的返回值
         return invocation.proceed();
@@ -107,48 +208,396 @@ public class EncryptInterceptor implements Interceptor {
 
     }
 
-    private void tryEncrypting(Object parameterObject) throws Exception {
-        Class<?> parameterObjectClass = parameterObject.getClass();
-        //校验该实例的类是否被@SensitiveData所注解
-        SensitiveData sensitiveData = AnnotationUtils.findAnnotation(parameterObjectClass, SensitiveData.class);
-        if (Objects.nonNull(sensitiveData)) {
-            //取出当前类的所有字段，传入加密方法
-            Field[] declaredFields = parameterObjectClass.getDeclaredFields();
-            encrypt(declaredFields, parameterObject);
+    /**
+     * 把mapper方法中被{@link dev.cn.common.sensitive_data.annotation.BlindIndex}注解的参数替换为盲索引,
+     * 被{@link dev.cn.common.sensitive_data.annotation.SensitiveParam}注解的参数替换为密文.
+     * 替换值放在BoundSql的附加参数中, 不修改调用方传入的参数对象
+     * @param parameterHandler 参数处理器
+     * @param parameterObject 参数对象
+     * @throws Exception 加密或计算盲索引异常
+     */
+    private void rewriteParameters(ParameterHandler parameterHandler, Object parameterObject) throws Exception {
+        MetaObject handler = StatementIds.unwrap(parameterHandler);
+        MappedStatement mappedStatement = StatementIds.mappedStatement(handler);
+        if (mappedStatement == null) {
+            return;
+        }
+        MapperParameters parameters = MapperParameters.forStatement(mappedStatement);
+        if (parameters.isEmpty() || !handler.hasGetter(BOUND_SQL)) {
+            return;
+        }
+
+        BoundSql boundSql = (BoundSql) handler.getValue(BOUND_SQL);
+        boolean scalar = mappedStatement.getConfiguration().getTypeHandlerRegistry()
+                .hasTypeHandler(parameterObject.getClass());
+        //同一参数在SQL中出现多次时只替换一次, 否则foreach元素会被重复加密或计算盲索引
+        Set<String> rewritten = new HashSet<>();
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            String property = mapping.getProperty();
+            //只处理直接引用参数或foreach元素的占位符, 如#{tel}、#{item}, 不处理#{user.tel}
+            if (mapping.getMode() == ParameterMode.OUT || property.indexOf('.') >= 0 || property.indexOf('[') >= 0
+                    || !rewritten.add(property)) {
+                continue;
+            }
+            //foreach元素和<bind>等已经是附加参数
+            if (boundSql.hasAdditionalParameter(property)) {
+                if (!property.startsWith(ForEachSqlNode.ITEM_PREFIX) || scalar) {
+                    continue;
+                }
+                //IN查询中foreach生成的参数, 按foreach遍历的参数确定处理方式
+                MapperParameters.Kind kind = parameters.kindOfItem(property);
+                Object value = boundSql.getAdditionalParameter(property);
+                if (kind != null && value instanceof String) {
+                    boundSql.setAdditionalParameter(property, rewrite(kind, (String) value));
+                }
+                continue;
+            }
+
+            MapperParameters.Kind kind = parameters.kindOf(property, scalar);
+            if (kind == null) {
+                continue;
+            }
+            Object value;
+            if (scalar) {
+                value = parameterObject;
+            } else if (parameterObject instanceof Map && ((Map<?, ?>) parameterObject).containsKey(property)) {
+                value = ((Map<?, ?>) parameterObject).get(property);
+            } else {
+                continue;
+            }
+            if (value instanceof String) {
+                boundSql.setAdditionalParameter(property, rewrite(kind, (String) value));
+            }
+        }
+    }
+
+    private String rewrite(MapperParameters.Kind kind, String value) throws Exception {
+        if (kind == MapperParameters.Kind.BLIND_INDEX) {
+            return getBlindIndexer().index(value);
+        }
+        if (ValueHelper.isEncrypted(value)) {
+            //调用方传入的已经是密文时保持不变
+            return value;
+        }
+        //查询参数没有对应的表, 使用默认秘钥或参数上指定的秘钥和算法
+        return encryptValue(getCryptoProfiles().engineFor(kind, getCryptoEngine(), kind.getKeyAlias(),
+                kind.getProfile()), value);
+    }
+
+    private static boolean isContainer(Object object) {
+        return object instanceof Map || object instanceof Collection || object instanceof Object[];
+    }
+
+    /**
+     * 递归找出参数中的敏感实体, 支持Map、Collection、数组及其嵌套
+     * @param object 参数
+     * @param entities 找到的敏感实体
+     * @param visited 已遍历的容器和实体, ParamMap中同一个对象会以param1、et、@Param名等多个键出现
+     */
+    private void collectEntities(Object object, List<Object> entities, Set<Object> visited) {
+        if (object == null) {
+            return;
+        }
+        if (!isContainer(object)) {
+            //同一条语句中每个实体只加密一次
+            if (SensitiveClassMetadata.forClass(object.getClass()).isSensitive() && visited.add(object)) {
+                entities.add(object);
+            }
+            return;
+        }
+        if (!visited.add(object)) {
+            return;
+        }
+        Iterable<?> elements;
+        if (object instanceof Map) {
+            elements = ((Map<?, ?>) object).values();
+        } else if (object instanceof Collection) {
+            elements = (Collection<?>) object;
+        } else {
+            elements = Arrays.asList((Object[]) object);
+        }
+        for (Object element : elements) {
+            collectEntities(element, entities, visited);
+        }
+    }
+
+    /**
+     * 加密一批敏感实体, 数量达到阈值时并行加密
+     * @param entities 敏感实体
+     * @param tally 指标统计, 未启用指标时为null
+     * @throws Exception 加密异常
+     */
+    private void encryptBatch(List<Object> entities, CryptoTally tally) throws Exception {
+        if (parallelEnabled && entities.size() >= parallelThreshold) {
+            getParallelRowProcessor().forEach(entities, entity -> tryEncrypting(entity, tally));
+        } else {
+            for (Object entity : entities) {
+                tryEncrypting(entity, tally);
+            }
+        }
+    }
+
+    private void tryEncrypting(Object parameterObject, CryptoTally tally) throws Exception {
+        //校验该实例的类是否被@SensitiveData所注解, 非敏感类只需一次缓存查找
+        SensitiveClassMetadata metadata = SensitiveClassMetadata.forClass(parameterObject.getClass());
+        if (!metadata.isSensitive()) {
+            return;
+        }
+        if (!skipUnchangedEnabled) {
+            encrypt(metadata, parameterObject, tally);
+            return;
+        }
+        //重试或批量复用参数时, 已加密且未被修改的对象直接跳过
+        if (!encryptedObjects.isUnchanged(metadata, parameterObject)) {
+            encrypt(metadata, parameterObject, tally);
+            encryptedObjects.register(metadata, parameterObject);
         }
     }
 
     /**
      *
-     * @param aesFields paramsObject所申明的字段
+     * @param metadata paramsObject所属类的元数据
      * @param paramsObject mapper中paramsType的实例
+     * @param tally 指标统计, 未启用指标时为null
      * @param <T>
      * @return
-     * @throws IllegalAccessException 字段不可访问的异常
-     */
-    private <T> T encrypt(Field[] aesFields, T paramsObject) throws Exception {
-        for (Field aesField : aesFields) {
-            //取出所有被EncryptDecryptField注解的字段
-            SensitiveField Field = aesField.getAnnotation(SensitiveField.class);
-            if (!Objects.isNull(Field)) {
-                //将此对象的 accessible 标志设置为指示的布尔值。值为 true 则指示反射的对象在使用时应该取消 Java 语言访问检查。
-                aesField.setAccessible(true);
-                Object object = aesField.get(paramsObject);
-                //这里暂时只对String类型来加密
-                if (object instanceof String) {
-                    String value = (String) object;
-                    String encrypt = value;
-                    //修改: 如果有标识则不加密，没有则加密并加上标识前缀
-                    if(!ValueHelper.isEncrypted(value)) {
-                        encrypt = CryptUtils.encrypt(value, key, keyAlgorithm, cipherAlgorithm);
-                        encrypt = ValueHelper.prefixEncryptedValue(encrypt);
-                    }
+     * @throws Exception 加密异常
+     */
+    private <T> T encrypt(SensitiveClassMetadata metadata, T paramsObject, CryptoTally tally) throws Exception {
+        //信封加密时按表选择数据秘钥
+        CryptoEngine tableEngine = getCryptoEngine().forKeyName(metadata.getTable());
+        CryptoProfiles profiles = getCryptoProfiles();
+        //元数据中只有被SensitiveField注解的字段(含父类字段)
+        for (SensitiveClassMetadata.FieldAccessor field : metadata.getFields()) {
+            Object object = field.get(paramsObject);
+            if (object == null) {
+                continue;
+            }
+            //字段单独配置了秘钥或算法时使用对应的引擎
+            CryptoEngine engine = profiles.engineFor(field, tableEngine, field.getKeyAlias(), field.getProfile());
+            if (object instanceof String) {
+                String value = (String) object;
+                //修改: 如果有标识则不加密，没有则加密并加上标识前缀
+                if(!ValueHelper.isEncrypted(value)) {
                     //开始对字段加密使用自定义的AES加密工具
-                    aesField.set(paramsObject, encrypt);
+                    String encryptedValue = encryptValue(engine, value);
+                    field.set(paramsObject, encryptedValue);
+                    if (field.hasBlindIndex()) {
+                        field.setBlindIndex(paramsObject, getBlindIndexer().index(value));
+                    }
+                    if (tally != null) {
+                        tally.add(encryptedValue);
+                    }
+                }
+            } else if (object instanceof byte[]) {
+                byte[] value = (byte[]) object;
+                //二进制字段直接加密为二进制格式, 不经过String; 除了本拦截器加密过的实例, 实体中的值都视为明文
+                if (!encryptedValues.isRegisteredValue(value)) {
+                    byte[] encryptedValue = engine.<byte[]>encryptToBinary(value, field.getCodec());
+                    encryptedValues.registerValue(encryptedValue);
+                    field.set(paramsObject, encryptedValue);
+                    if (tally != null) {
+                        tally.add(encryptedValue.length);
+                    }
+                }
+            } else if (object instanceof SensitiveValue) {
+                SensitiveValue value = (SensitiveValue) object;
+                //密文保存在SensitiveValue内部, 实体中的明文保持不变
+                if (!value.isEncrypted()) {
+                    value.encrypted(encryptValue(engine, value.get()));
+                    if (field.hasBlindIndex()) {
+                        field.setBlindIndex(paramsObject, getBlindIndexer().index(value.get()));
+                    }
+                    if (tally != null) {
+                        tally.add(value.getEncryptedValue());
+                    }
                 }
             }
         }
         return paramsObject;
     }
 
+    /**
+     * 加密并加上标识前缀
+     * @param engine 加密使用的引擎
+     * @param value
+     * @return
+     * @throws Exception
+     */
+    private String encryptValue(CryptoEngine engine, String value) throws Exception {
+        CryptCache cache = getEncryptCache();
+        if (cache == null || !engine.isDeterministic()) {
+            return engine.encryptPrefixed(value);
+        }
+
+        //确定性加密下相同的明文总是得到相同的密文, 直接使用缓存; 其他秘钥或算法的密文不同, 键中带上秘钥编号和算法
+        CipherStrategy strategy = engine.getCipherStrategy();
+        String cacheKey = engine == getCryptoEngine() ? value
+                : engine.getActiveKeyId() + ":" + (strategy == null ? "" : strategy.getName()) + ":" + value;
+        String encryptedValue = cache.get(cacheKey);
+        if (encryptedValue == null) {
+            encryptedValue = engine.encryptPrefixed(value);
+            cache.put(cacheKey, encryptedValue);
+        }
+        return encryptedValue;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (enabled) {
+            if (Constants.MODE_TYPE_HANDLER.equals(mode)) {
+                checkTypeHandlerMode();
+            }
+            //类型处理器由MyBatis创建, 通过全局引擎获取配置
+            CryptoEngineHolder.set(getCryptoEngine());
+        }
+    }
+
+    /**
+     * 类型处理器只能拿到列值, 按字段或按表选择秘钥等依赖实体的功能在该模式下不生效
+     */
+    private void checkTypeHandlerMode() {
+        if (StringUtils.hasText(keyAliases) || StringUtils.hasText(profiles)) {
+            throw new IllegalStateException("类型处理器模式不支持key-aliases和profiles, 请使用拦截器模式");
+        }
+        if (keyProvider != null) {
+            LOG.warn("类型处理器模式不按表选择数据秘钥, 所有列都使用启动时" + KeyProvider.DEFAULT_KEY_NAME + "对应的数据秘钥加密");
+        }
+        if (cryptoMetrics != null) {
+            LOG.warn("类型处理器模式不会回调CryptoMetrics");
+        }
+    }
+
+    /**
+     * 预热: 创建加解密引擎和盲索引计算器, 并用样本数据反复加密, 让JIT提前编译加密路径.
+     * 不经过加密缓存, 样本不会进入缓存.
+     * @param iterations 加密次数, 小于等于0时只创建引擎
+     * @return 实际执行的加密次数
+     * @throws Exception 配置错误
+     */
+    int warmUp(int iterations) throws Exception {
+        if (!enabled) {
+            return 0;
+        }
+        CryptoEngine engine = getCryptoEngine();
+        BlindIndexer indexer = getBlindIndexer();
+        int count = 0;
+        for (int i = 0; i < iterations; i++) {
+            String sample = SensitiveDataWarmer.SAMPLES[i % SensitiveDataWarmer.SAMPLES.length];
+            engine.encryptPrefixed(sample);
+            engine.encryptToBinary(sample);
+            indexer.index(sample);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void destroy() {
+        ParallelRowProcessor processor = parallelRowProcessor;
+        if (processor != null) {
+            processor.close();
+        }
+        CryptCache cache = encryptCache;
+        if (cache != null) {
+            cache.clear();
+        }
+        encryptedObjects.clear();
+        encryptedValues.clear();
+    }
+
+    /**
+     * 获取加密缓存, 可用于查看命中率等统计信息.
+     * 加密模式不是确定性的(如GCM、CBC等使用随机IV的模式)时自动禁用, 避免改变密文的随机性.
+     * 缓存的键是明文, 需要通过encrypt-cache.enabled显式开启.
+     * @return 加密缓存, 未启用或加密模式不是确定性时返回null
+     * @throws Exception 创建加解密引擎失败
+     */
+    public CryptCache getEncryptCache() throws Exception {
+        if (!encryptCacheEnabled) {
+            return null;
+        }
+        CryptCache cache = encryptCache;
+        if (cache == null) {
+            if (!getCryptoEngine().isDeterministic()) {
+                return null;
+            }
+            synchronized (this) {
+                cache = encryptCache;
+                if (cache == null) {
+                    //缓存的值是密文, 不需要保存在堆外
+                    cache = new CryptCache(encryptCacheMaxEntries, encryptCacheMaxBytes, false);
+                    encryptCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 获取盲索引计算器, 也可用于在业务代码中自行计算盲索引
+     * @return 盲索引计算器
+     * @throws Exception 创建失败
+     */
+    public BlindIndexer getBlindIndexer() throws Exception {
+        BlindIndexer indexer = blindIndexer;
+        if (indexer == null) {
+            synchronized (this) {
+                indexer = blindIndexer;
+                if (indexer == null) {
+                    //未单独配置时从加密秘钥派生
+                    indexer = new BlindIndexer(blindIndexKey.isEmpty() ? key : blindIndexKey, blindIndexLength);
+                    blindIndexer = indexer;
+                }
+            }
+        }
+        return indexer;
+    }
+
+    /**
+     * 获取按字段选择秘钥和算法的配置, 明文数据迁移需要使用相同的配置
+     * @return 按字段选择秘钥和算法的配置
+     */
+    public CryptoProfiles getCryptoProfiles() {
+        CryptoProfiles profiles = cryptoProfiles;
+        if (profiles == null) {
+            synchronized (this) {
+                profiles = cryptoProfiles;
+                if (profiles == null) {
+                    profiles = new CryptoProfiles(keyAliases, this.profiles, keyProvider);
+                    cryptoProfiles = profiles;
+                }
+            }
+        }
+        return profiles;
+    }
+
+    private ParallelRowProcessor getParallelRowProcessor() {
+        ParallelRowProcessor processor = parallelRowProcessor;
+        if (processor == null) {
+            synchronized (this) {
+                processor = parallelRowProcessor;
+                if (processor == null) {
+                    processor = new ParallelRowProcessor(parallelThreshold, parallelChunkSize, parallelism,
+                            "sensitive-data-encrypt");
+                    parallelRowProcessor = processor;
+                }
+            }
+        }
+        return processor;
+    }
+
+    private CryptoEngine getCryptoEngine() throws Exception {
+        CryptoEngine engine = cryptoEngine;
+        if (engine == null) {
+            //相同配置的加解密拦截器拿到的是同一个引擎
+            engine = keyProvider == null
+                    ? CryptoEngine.getInstance(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, activeKeyId)
+                    : CryptoEngine.getInstance(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, keyProvider,
+                            TimeUnit.SECONDS.toMillis(dataKeyTtlSeconds));
+            cryptoEngine = engine;
+        }
+        return engine;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import dev.cn.common.sensitive_data.support.SensitiveClassMetadata;
+
+/**
+ * 已加密对象的登记表, 按对象identity弱引用登记, 对象被回收后自动清除
+ *
+ * 登记的是加密完成时各敏感字段的值引用. 再次遇到同一个对象(重试、批量复用参数等)时,
+ * 只要所有敏感字段仍是登记时的同一个引用, 就说明没有被修改过, 可以整体跳过而不必逐个检查前缀.
+ * 也可以登记单个值(如拦截器生成的二进制密文), 再次遇到同一个实例时不重复加密.
+ *
+ * @since 1.2.0
+ */
+class EncryptedObjects {
+
+    private static final Object[] NO_FIELDS = new Object[0];
+
+    private final ConcurrentMap<Object, Object[]> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    /**
+     * 对象自登记后敏感字段是否都没有被修改过
+     */
+    boolean isUnchanged(SensitiveClassMetadata metadata, Object object) {
+        Object[] values = entries.get(new LookupKey(object));
+        if (values == null) {
+            return false;
+        }
+        int i = 0;
+        for (SensitiveClassMetadata.FieldAccessor field : metadata.getFields()) {
+            if (field.get(object) != values[i++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 登记加密完成后的敏感字段值
+     */
+    void register(SensitiveClassMetadata metadata, Object object) {
+        expunge();
+        Object[] values = new Object[metadata.getFields().size()];
+        int i = 0;
+        for (SensitiveClassMetadata.FieldAccessor field : metadata.getFields()) {
+            values[i++] = field.get(object);
+        }
+        entries.put(new WeakKey(object, queue), values);
+    }
+
+    /**
+     * 登记单个值
+     */
+    void registerValue(Object value) {
+        expunge();
+        entries.put(new WeakKey(value, queue), NO_FIELDS);
+    }
+
+    /**
+     * 值是否已登记
+     */
+    boolean isRegisteredValue(Object value) {
+        return entries.containsKey(new LookupKey(value));
+    }
+
+    int size() {
+        expunge();
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private void expunge() {
+        Object key;
+        while ((key = queue.poll()) != null) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * 登记用的弱引用键, 按identity比较
+     */
+    private static final class WeakKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        WeakKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WeakKey)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((WeakKey) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 查找用的强引用键, 避免每次查找都创建弱引用
+     */
+    private static final class LookupKey {
+
+        private final Object referent;
+
+        LookupKey(Object referent) {
+            this.referent = referent;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof WeakKey && ((WeakKey) o).get() == referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(referent);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+
+/**
+ * 秘钥轮换的后台回写器
+ *
+ * 解密拦截器发现旧秘钥加密的值时提交到有界队列, 由单个后台线程用当前秘钥重新加密, 按批执行JDBC更新,
+ * 并限制每秒回写的行数. 更新语句带有旧密文作为条件, 行在此期间被修改时不会覆盖新值.
+ * 队列满时直接丢弃, 下次查询到该行时会再次提交. 每条语句执行后单独提交事务, 不依赖连接池的自动提交配置.
+ * 失败时每个表和列只记录第一次的日志, 之后只计入失败数.
+ *
+ * @since 1.2.0
+ */
+public class KeyRotationWriter implements AutoCloseable {
+
+    private static final Log LOG = LogFactory.getLog(KeyRotationWriter.class);
+    private static final AtomicInteger THREAD_SEQUENCE = new AtomicInteger();
+    private static final long POLL_MILLIS = 100;
+
+    private final DataSource dataSource;
+    private final CryptoEngine cryptoEngine;
+    private final int batchSize;
+    private final int maxRowsPerSecond;
+    private final BlockingQueue<Task> queue;
+    /**
+     * 已在队列中或正在回写的任务, 避免同一个值被重复提交
+     */
+    private final Set<Task> pending = ConcurrentHashMap.newKeySet();
+    private final Thread thread;
+    private volatile boolean running = true;
+    /**
+     * 已记录过失败日志的表和列, 只在后台线程中访问
+     */
+    private final Set<String> reported = new HashSet<>();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rewritten = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * @param dataSource 数据源
+     * @param cryptoEngine 加解密引擎, 使用其当前秘钥重新加密
+     * @param queueCapacity 队列容量
+     * @param batchSize 每批回写的行数
+     * @param maxRowsPerSecond 每秒最多回写的行数, 小于等于0时不限制
+     */
+    public KeyRotationWriter(DataSource dataSource, CryptoEngine cryptoEngine, int queueCapacity, int batchSize,
+            int maxRowsPerSecond) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+        this.cryptoEngine = Objects.requireNonNull(cryptoEngine, "cryptoEngine");
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.thread = new Thread(this::run, "sensitive-data-key-rotation-" + THREAD_SEQUENCE.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 提交需要重新加密的值, 不会阻塞
+     *
+     * @param table 表名
+     * @param idColumn 主键列名
+     * @param id 主键
+     * @param column 列名
+     * @param encryptedValue 当前保存的带前缀的密文
+     * @return 是否已加入队列, 已在队列中、队列已满或已关闭时返回false
+     */
+    public boolean submit(String table, String idColumn, Object id, String column, String encryptedValue) {
+        return submit(table, idColumn, id, column, encryptedValue, null);
+    }
+
+    /**
+     * 提交需要用指定引擎重新加密的值, 不会阻塞
+     *
+     * @param table 表名
+     * @param idColumn 主键列名
+     * @param id 主键
+     * @param column 列名
+     * @param encryptedValue 当前保存的带前缀的密文
+     * @param engine 重新加密使用的引擎, 如字段单独配置了秘钥或算法时; 为null时按表选择
+     * @return 是否已加入队列, 已在队列中、队列已满或已关闭时返回false
+     * @since 1.2.0
+     */
+    public boolean submit(String table, String idColumn, Object id, String column, String encryptedValue,
+            CryptoEngine engine) {
+        if (!running) {
+            return false;
+        }
+        Task task = new Task(table, idColumn, id, column, encryptedValue, engine);
+        if (!pending.add(task)) {
+            return false;
+        }
+        if (!queue.offer(task)) {
+            pending.remove(task);
+            dropped.increment();
+            return false;
+        }
+        submitted.increment();
+        return true;
+    }
+
+    /**
+     * 停止接收新任务, 等待队列中已有的任务回写完成
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 已提交的任务数
+     *
+     * @return 已提交的任务数
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * 已重新加密并回写的行数
+     *
+     * @return 已回写的行数
+     */
+    public long getRewrittenCount() {
+        return rewritten.sum();
+    }
+
+    /**
+     * 回写时行已被修改或删除而跳过的行数
+     *
+     * @return 跳过的行数
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    /**
+     * 因队列已满而丢弃的任务数
+     *
+     * @return 丢弃的任务数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 重新加密或回写失败的行数
+     *
+     * @return 失败的行数
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * 队列中等待回写的任务数
+     *
+     * @return 等待回写的任务数
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Task> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            Task first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            try {
+                write(batch);
+            } finally {
+                pending.removeAll(batch);
+            }
+            if (!throttle(batch.size(), start)) {
+                break;
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Task> batch) {
+        //同一个表和列的任务使用同一条语句
+        Map<String, List<Task>> statements = new LinkedHashMap<>();
+        for (Task task : batch) {
+            statements.computeIfAbsent(task.sql(), sql -> new ArrayList<>()).add(task);
+        }
+
+        //已交给单条语句处理(包括计入失败数)的行数
+        int handled = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, List<Task>> entry : statements.entrySet()) {
+                    handled += entry.getValue().size();
+                    write(connection, entry.getKey(), entry.getValue());
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            failed.add(batch.size() - handled);
+            report(batch.get(0), e);
+        }
+    }
+
+    private void write(Connection connection, String sql, List<Task> tasks) throws SQLException {
+        //重新加密失败的行已单独计数
+        int rejected = 0;
+        int[] counts;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Task task : tasks) {
+                String value;
+                try {
+                    String plaintext = cryptoEngine.decryptPrefixed(task.encryptedValue);
+                    CryptoEngine engine = task.engine != null ? task.engine : cryptoEngine.forKeyName(task.table);
+                    value = engine.encryptPrefixed(plaintext);
+                } catch (Exception e) {
+                    failed.increment();
+                    rejected++;
+                    report(task, e);
+                    continue;
+                }
+                statement.setString(1, value);
+                statement.setObject(2, task.id);
+                statement.setString(3, task.encryptedValue);
+                statement.addBatch();
+            }
+            if (rejected == tasks.size()) {
+                return;
+            }
+            counts = statement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            failed.add(tasks.size() - rejected);
+            report(tasks.get(0), e);
+            //回滚后继续执行其他表和列的语句
+            connection.rollback();
+            return;
+        }
+        for (int count : counts) {
+            if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                rewritten.increment();
+            } else {
+                skipped.increment();
+            }
+        }
+    }
+
+    private void report(Task task, Exception e) {
+        if (reported.add(task.table + "." + task.column)) {
+            LOG.error("秘钥轮换回写失败, 该列之后的失败不再记录: " + task.table + "." + task.column, e);
+        }
+    }
+
+    /**
+     * 按每秒行数限制等待
+     *
+     * @return 是否继续运行
+     */
+    private boolean throttle(int rows, long start) {
+        if (maxRowsPerSecond <= 0) {
+            return true;
+        }
+        long remaining = TimeUnit.SECONDS.toNanos(rows) / maxRowsPerSecond - (System.nanoTime() - start);
+        if (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Task {
+
+        private final String table;
+        private final String idColumn;
+        private final Object id;
+        private final String column;
+        private final String encryptedValue;
+        private final CryptoEngine engine;
+
+        Task(String table, String idColumn, Object id, String column, String encryptedValue, CryptoEngine engine) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.id = id;
+            this.column = column;
+            this.encryptedValue = encryptedValue;
+            this.engine = engine;
+        }
+
+        String sql() {
+            return "UPDATE " + table + " SET " + column + " = ? WHERE " + idColumn + " = ? AND " + column + " = ?";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Task)) {
+                return false;
+            }
+            Task that = (Task) o;
+            return table.equals(that.table) && column.equals(that.column) && id.equals(that.id)
+                    && encryptedValue.equals(that.encryptedValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(table, column, id, encryptedValue);
+        }
+    }
+}
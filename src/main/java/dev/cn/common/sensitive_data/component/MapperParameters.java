@@ -0,0 +1,267 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import dev.cn.common.sensitive_data.annotation.BlindIndex;
+import dev.cn.common.sensitive_data.annotation.SensitiveParam;
+
+/**
+ * mapper方法参数上的敏感注解, 按MappedStatement解析一次后缓存
+ *
+ * 参数名与MyBatis的ParamNameResolver保持一致: {@code @Param}的值或实际参数名, 以及param1、param2等通用名.
+ * 集合参数的元素在foreach中以附加参数{@code __frch_<item>_<n>}的形式出现,
+ * 按动态SQL中foreach的collection找到所属的参数, 不按元素的值匹配.
+ *
+ * @since 1.2.0
+ */
+final class MapperParameters {
+
+    /**
+     * 参数的处理方式
+     */
+    static final class Kind {
+
+        /**
+         * 替换为盲索引
+         */
+        static final Kind BLIND_INDEX = new Kind(null, null);
+        /**
+         * 用默认的秘钥和算法替换为密文
+         */
+        static final Kind ENCRYPT = new Kind(null, null);
+
+        private final String keyAlias;
+        private final String profile;
+
+        private Kind(String keyAlias, String profile) {
+            this.keyAlias = keyAlias;
+            this.profile = profile;
+        }
+
+        /**
+         * 用指定的秘钥和算法替换为密文
+         */
+        static Kind encrypt(SensitiveParam annotation) {
+            if (annotation.keyAlias().isEmpty() && annotation.profile().isEmpty()) {
+                return ENCRYPT;
+            }
+            return new Kind(annotation.keyAlias().isEmpty() ? null : annotation.keyAlias(),
+                    annotation.profile().isEmpty() ? null : annotation.profile());
+        }
+
+        String getKeyAlias() {
+            return keyAlias;
+        }
+
+        String getProfile() {
+            return profile;
+        }
+    }
+
+    static final MapperParameters NONE = new MapperParameters(Collections.emptyMap(), null, Collections.emptyMap());
+
+    /**
+     * 单个未加@Param的集合或数组参数被MyBatis包装为Map时使用的键
+     */
+    private static final String[] COLLECTION_NAMES = { "collection", "list", "array" };
+    /**
+     * 动态SQL节点中可能包含子节点的字段
+     */
+    private static final String[] CHILD_NODES = { "rootSqlNode", "contents", "ifSqlNodes", "defaultSqlNode" };
+    private static final ConcurrentMap<String, MapperParameters> CACHE = new ConcurrentHashMap<>();
+
+    private final Map<String, Kind> kinds;
+    /**
+     * 方法只有一个未加@Param的参数时, MyBatis直接把参数值作为参数对象, SQL中可以用任意名字引用
+     */
+    private final Kind singleKind;
+    /**
+     * foreach的item名称到所遍历参数的处理方式
+     */
+    private final Map<String, Kind> itemKinds;
+
+    private MapperParameters(Map<String, Kind> kinds, Kind singleKind, Map<String, Kind> itemKinds) {
+        this.kinds = kinds;
+        this.singleKind = singleKind;
+        this.itemKinds = itemKinds;
+    }
+
+    static MapperParameters forStatement(MappedStatement mappedStatement) {
+        return CACHE.computeIfAbsent(mappedStatement.getId(),
+                statementId -> resolve(statementId, mappedStatement.getSqlSource()));
+    }
+
+    boolean isEmpty() {
+        return this == NONE;
+    }
+
+    /**
+     * 查找参数的处理方式
+     *
+     * @param property 参数名
+     * @param scalar 参数对象是否是单个参数值, 不是集合或Map
+     * @return 处理方式, 不需要处理时返回null
+     */
+    Kind kindOf(String property, boolean scalar) {
+        return scalar ? singleKind : kinds.get(property);
+    }
+
+    /**
+     * 查找foreach生成的参数的处理方式
+     *
+     * @param property foreach生成的参数名, 如{@code __frch_tel_0}
+     * @return 所遍历参数的处理方式, 不需要处理或不是item时返回null
+     */
+    Kind kindOfItem(String property) {
+        int end = property.lastIndexOf('_');
+        if (!property.startsWith(ForEachSqlNode.ITEM_PREFIX) || end <= ForEachSqlNode.ITEM_PREFIX.length()) {
+            return null;
+        }
+        return itemKinds.get(property.substring(ForEachSqlNode.ITEM_PREFIX.length(), end));
+    }
+
+    private static MapperParameters resolve(String statementId, SqlSource sqlSource) {
+        int dot = statementId.lastIndexOf('.');
+        if (dot <= 0) {
+            return NONE;
+        }
+        Class<?> mapperType;
+        try {
+            mapperType = Resources.classForName(statementId.substring(0, dot));
+        } catch (ClassNotFoundException e) {
+            //只有XML没有mapper接口的语句
+            return NONE;
+        }
+
+        String methodName = statementId.substring(dot + 1);
+        Map<String, Kind> kinds = new HashMap<>();
+        Kind singleKind = null;
+        for (Method method : mapperType.getMethods()) {
+            if (!method.getName().equals(methodName)) {
+                continue;
+            }
+            Parameter[] parameters = method.getParameters();
+            Annotation[][] annotations = method.getParameterAnnotations();
+            int index = 0;
+            Kind lastKind = null;
+            boolean named = false;
+            for (int i = 0; i < parameters.length; i++) {
+                Class<?> type = parameters[i].getType();
+                if (RowBounds.class.isAssignableFrom(type) || ResultHandler.class.isAssignableFrom(type)) {
+                    continue;
+                }
+                Kind kind = kindOf(annotations[i]);
+                Param param = parameters[i].getAnnotation(Param.class);
+                named |= param != null;
+                if (kind != null) {
+                    kinds.put(param != null ? param.value() : parameters[i].getName(), kind);
+                    kinds.put(String.valueOf(index), kind);
+                    kinds.put(ParamNameResolver.GENERIC_NAME_PREFIX + (index + 1), kind);
+                }
+                lastKind = kind;
+                index++;
+            }
+            if (index == 1 && !named && lastKind != null) {
+                singleKind = lastKind;
+                for (String name : COLLECTION_NAMES) {
+                    kinds.put(name, lastKind);
+                }
+            }
+        }
+        if (kinds.isEmpty()) {
+            return NONE;
+        }
+        Map<String, Kind> itemKinds = new HashMap<>();
+        if (sqlSource instanceof DynamicSqlSource) {
+            collectItems(SystemMetaObject.forObject(sqlSource), kinds, itemKinds, statementId);
+        }
+        return new MapperParameters(kinds, singleKind, itemKinds);
+    }
+
+    /**
+     * 找出直接遍历被注解参数的foreach, 如{@code <foreach collection="tels" item="tel">}
+     */
+    private static void collectItems(MetaObject node, Map<String, Kind> kinds, Map<String, Kind> itemKinds,
+            String statementId) {
+        if (node.getOriginalObject() instanceof ForEachSqlNode) {
+            String item = (String) node.getValue("item");
+            if (item != null) {
+                Kind kind = kinds.get((String) node.getValue("collectionExpression"));
+                //item名称相同的foreach生成的参数名无法区分, 处理方式不同时无法判断
+                if (itemKinds.containsKey(item) && itemKinds.get(item) != kind) {
+                    throw new IllegalStateException("foreach的item名称重复且遍历的参数处理方式不同: " + statementId
+                            + ", item=" + item);
+                }
+                itemKinds.put(item, kind);
+            }
+        }
+        for (String name : CHILD_NODES) {
+            if (!node.hasGetter(name)) {
+                continue;
+            }
+            Object child = node.getValue(name);
+            if (child instanceof List) {
+                for (Object element : (List<?>) child) {
+                    collectItems(SystemMetaObject.forObject(element), kinds, itemKinds, statementId);
+                }
+            } else if (child != null) {
+                collectItems(SystemMetaObject.forObject(child), kinds, itemKinds, statementId);
+            }
+        }
+    }
+
+    private static Kind kindOf(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof BlindIndex) {
+                return Kind.BLIND_INDEX;
+            }
+            if (annotation instanceof SensitiveParam) {
+                return Kind.encrypt((SensitiveParam) annotation);
+            }
+        }
+        return null;
+    }
+}
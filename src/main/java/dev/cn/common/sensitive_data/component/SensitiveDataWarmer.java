@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.support.Constants;
+import dev.cn.common.sensitive_data.support.SensitiveClassMetadata;
+import dev.cn.common.sensitive_data.support.TraversalPlan;
+
+/**
+ * 启动时的预热
+ *
+ * 在所有单例创建完成后、开始处理请求之前: 扫描指定包中的{@code @SensitiveData}类并预先解析元数据和遍历计划,
+ * 创建加解密引擎(派生秘钥、加载JCE提供者), 再用样本数据执行若干次加解密, 让JIT提前编译加解密路径.
+ * 这样滚动发布后的首批请求不再承担这些一次性开销.
+ *
+ * @since 1.2.0
+ */
+public class SensitiveDataWarmer implements SmartInitializingSingleton {
+
+    /**
+     * 预热用的样本, 覆盖常见的长度和多字节字符
+     */
+    static final String[] SAMPLES = { "13800138000", "110101199003071234", "user@example.com", "张三",
+            "北京市朝阳区建国路88号SOHO现代城A座1001室" };
+
+    private final String[] basePackages;
+
+    @Value("${sensitive-data.data-crypt.warm-up.iterations:10000}")
+    private int iterations;
+    @Value("${sensitive-data.data-crypt.mode:" + Constants.MODE_INTERCEPTOR + "}")
+    private String mode;
+    @Autowired(required = false)
+    private EncryptInterceptor encryptInterceptor;
+    @Autowired(required = false)
+    private DecryptInterceptor decryptInterceptor;
+
+    private volatile List<Class<?>> sensitiveClasses = Collections.emptyList();
+    private volatile long warmUpNanos;
+
+    public SensitiveDataWarmer(String[] basePackages) {
+        this.basePackages = basePackages.clone();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        sensitiveClasses = scan();
+        try {
+            if (encryptInterceptor != null) {
+                encryptInterceptor.warmUp(iterations);
+            }
+            if (decryptInterceptor != null) {
+                decryptInterceptor.warmUp(iterations);
+            }
+        } catch (Exception e) {
+            //配置错误在启动时直接失败, 而不是等到第一个请求
+            throw new IllegalStateException("透明加解密预热失败", e);
+        }
+        warmUpNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * 扫描并预先解析敏感类
+     *
+     * @return 找到的敏感类
+     */
+    List<Class<?>> scan() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(SensitiveData.class));
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        List<Class<?>> classes = new ArrayList<>();
+        for (String basePackage : basePackages) {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                Class<?> type = ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader);
+                SensitiveClassMetadata metadata = SensitiveClassMetadata.forClass(type);
+                if (Constants.MODE_TYPE_HANDLER.equals(mode)) {
+                    checkTypeHandlerMode(metadata);
+                }
+                TraversalPlan.forClass(type);
+                classes.add(type);
+            }
+        }
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * 类型处理器只能拿到列值, 不支持按字段选择秘钥和算法, 也无法写入盲索引字段
+     */
+    private static void checkTypeHandlerMode(SensitiveClassMetadata metadata) {
+        for (SensitiveClassMetadata.FieldAccessor field : metadata.getFields()) {
+            if (field.getKeyAlias() != null || field.getProfile() != null || field.hasBlindIndex()) {
+                throw new IllegalStateException("类型处理器模式不支持@SensitiveField的keyAlias、profile和blindIndex, 请使用拦截器模式: "
+                        + metadata.getType().getName() + "." + field.getName());
+            }
+        }
+    }
+
+    /**
+     * 获取启动时扫描到的敏感类
+     *
+     * @return 敏感类
+     */
+    public List<Class<?>> getSensitiveClasses() {
+        return sensitiveClasses;
+    }
+
+    /**
+     * 获取预热耗时
+     *
+     * @return 纳秒
+     */
+    public long getWarmUpNanos() {
+        return warmUpNanos;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import java.lang.reflect.Proxy;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+import dev.cn.common.sensitive_data.metrics.CryptoMetrics;
+
+/**
+ * 从MyBatis的MappedStatement、ParameterHandler或ResultSetHandler中取出MappedStatement及其id
+ *
+ * @since 1.2.0
+ */
+final class StatementIds {
+
+    private static final String MAPPED_STATEMENT = "mappedStatement";
+    private static final String PLUGIN_TARGET = "h.target";
+
+    private StatementIds() {
+    }
+
+    static String of(Object target) {
+        if (target instanceof MappedStatement) {
+            return ((MappedStatement) target).getId();
+        }
+        MappedStatement mappedStatement = mappedStatement(unwrap(target));
+        return mappedStatement == null ? CryptoMetrics.UNKNOWN_STATEMENT : mappedStatement.getId();
+    }
+
+    /**
+     * 取出被插件代理的MyBatis默认实现
+     *
+     * @param target ParameterHandler或ResultSetHandler
+     * @return 默认实现的MetaObject, 无法取出时返回null
+     */
+    static MetaObject unwrap(Object target) {
+        try {
+            Object current = target;
+            //存在多个插件时, target可能是其他插件的代理
+            while (current != null && Proxy.isProxyClass(current.getClass())) {
+                current = SystemMetaObject.forObject(current).getValue(PLUGIN_TARGET);
+            }
+            return current == null ? null : SystemMetaObject.forObject(current);
+        } catch (RuntimeException e) {
+            //不是MyBatis的默认实现, 无法取出时不影响加解密
+            return null;
+        }
+    }
+
+    static MappedStatement mappedStatement(MetaObject metaObject) {
+        if (metaObject != null && metaObject.hasGetter(MAPPED_STATEMENT)) {
+            Object mappedStatement = metaObject.getValue(MAPPED_STATEMENT);
+            if (mappedStatement instanceof MappedStatement) {
+                return (MappedStatement) mappedStatement;
+            }
+        }
+        return null;
+    }
+}
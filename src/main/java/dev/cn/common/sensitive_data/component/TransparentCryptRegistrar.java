@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import dev.cn.common.sensitive_data.annotation.EnableTransparentCrypt;
+
+/**
+ * 按{@link EnableTransparentCrypt}的属性注册启动预热
+ *
+ * @since 1.2.0
+ */
+public class TransparentCryptRegistrar implements ImportBeanDefinitionRegistrar {
+
+    private static final String WARMER_BEAN_NAME = SensitiveDataWarmer.class.getName();
+
+    @Override
+    public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+        Map<String, Object> attributes = importingClassMetadata
+                .getAnnotationAttributes(EnableTransparentCrypt.class.getName());
+        Set<String> basePackages = new LinkedHashSet<>();
+        if (attributes != null) {
+            for (String basePackage : (String[]) attributes.get("basePackages")) {
+                if (StringUtils.hasText(basePackage)) {
+                    basePackages.add(basePackage.trim());
+                }
+            }
+            for (Class<?> basePackageClass : (Class<?>[]) attributes.get("basePackageClasses")) {
+                basePackages.add(ClassUtils.getPackageName(basePackageClass));
+            }
+        }
+        //与@ComponentScan一致, 未指定时扫描注解所在类的包
+        if (basePackages.isEmpty()) {
+            basePackages.add(ClassUtils.getPackageName(importingClassMetadata.getClassName()));
+        }
+
+        if (registry.containsBeanDefinition(WARMER_BEAN_NAME)) {
+            return;
+        }
+        RootBeanDefinition definition = new RootBeanDefinition(SensitiveDataWarmer.class);
+        definition.getConstructorArgumentValues().addGenericArgumentValue(basePackages.toArray(new String[0]));
+        registry.registerBeanDefinition(WARMER_BEAN_NAME, definition);
+    }
+}
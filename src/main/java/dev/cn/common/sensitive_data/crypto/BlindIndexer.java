@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 盲索引计算器
+ *
+ * 对明文计算带秘钥的HMAC-SHA256并截断, 结果可以保存在单独的索引列中用于等值查询,
+ * 与密文使用的加密模式无关. 秘钥由配置的秘钥加上固定的域分隔前缀派生, 与加密秘钥不同.
+ *
+ * @since 1.2.0
+ */
+public class BlindIndexer {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String DOMAIN = "sensitive-data-blind-index:";
+    private static final int MAX_LENGTH = 32;
+
+    private final SecretKeySpec secretKey;
+    private final int length;
+    private final ThreadLocal<Mac> macs = new ThreadLocal<>();
+
+    /**
+     * @param key 秘钥
+     * @param length 索引的字节数(1~32), 越短碰撞越多但泄露的信息越少
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     */
+    public BlindIndexer(String key, int length) throws NoSuchAlgorithmException, InvalidKeyException {
+        if (length < 1 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("盲索引长度必须在1~" + MAX_LENGTH + "之间");
+        }
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest((DOMAIN + key).getBytes(StandardCharsets.UTF_8));
+        this.secretKey = new SecretKeySpec(digest, ALGORITHM);
+        this.length = length;
+        // 提前创建当前线程的Mac, 配置错误时在这里直接失败
+        macs.set(newMac());
+    }
+
+    /**
+     * 计算盲索引
+     *
+     * @param plaintext 明文
+     * @return Base64编码的盲索引
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     */
+    public String index(String plaintext) throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = macs.get();
+        if (mac == null) {
+            mac = newMac();
+            macs.set(mac);
+        }
+        // doFinal后Mac会重置, 可以直接复用
+        byte[] digest = mac.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(length == MAX_LENGTH ? digest : Arrays.copyOf(digest, length));
+    }
+
+    private Mac newMac() throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance(ALGORITHM);
+        mac.init(secretKey);
+        return mac;
+    }
+}
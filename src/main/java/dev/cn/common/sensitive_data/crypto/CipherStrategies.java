@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 加密算法策略的注册表, 包含内置策略和通过ServiceLoader注册的策略
+ *
+ * @since 1.2.0
+ */
+public final class CipherStrategies {
+
+    /**
+     * 算法标识的最大值, 首部中算法标识的最高位用于标记其后带有秘钥编号
+     */
+    static final int MAX_ID = 0x7f;
+
+    private static final CipherStrategy[] BY_ID = new CipherStrategy[256];
+    private static final Map<String, CipherStrategy> BY_NAME = new ConcurrentHashMap<>();
+
+    static {
+        register(new EcbCipherStrategy());
+        register(new GcmCipherStrategy());
+        register(new CtrCipherStrategy());
+        for (CipherStrategy strategy : ServiceLoader.load(CipherStrategy.class, CipherStrategies.class.getClassLoader())) {
+            register(strategy);
+        }
+    }
+
+    private CipherStrategies() {
+    }
+
+    /**
+     * 按首部中的算法标识查找
+     *
+     * @param id 算法标识
+     * @return 策略
+     * @throws IllegalArgumentException 未知的算法标识
+     */
+    public static CipherStrategy forId(byte id) {
+        CipherStrategy strategy = BY_ID[id & MAX_ID];
+        if (strategy == null) {
+            throw new IllegalArgumentException("未知的加密算法标识: " + (id & 0xff));
+        }
+        return strategy;
+    }
+
+    /**
+     * 按名称查找, 忽略大小写
+     *
+     * @param name 策略名称
+     * @return 策略
+     * @throws IllegalArgumentException 未知的策略名称
+     */
+    public static CipherStrategy forName(String name) {
+        CipherStrategy strategy = BY_NAME.get(name.trim().toUpperCase(Locale.ROOT));
+        if (strategy == null) {
+            throw new IllegalArgumentException("未知的加密算法策略: " + name);
+        }
+        return strategy;
+    }
+
+    private static synchronized void register(CipherStrategy strategy) {
+        int id = strategy.getId() & 0xff;
+        if (id == 0 || id > MAX_ID) {
+            throw new IllegalStateException("加密算法标识必须在1~" + MAX_ID + "之间: " + strategy.getName());
+        }
+        if (BY_ID[id] != null) {
+            throw new IllegalStateException("加密算法标识重复: " + id + ", " + BY_ID[id].getName() + "和"
+                    + strategy.getName());
+        }
+        BY_ID[id] = strategy;
+        BY_NAME.put(strategy.getName().toUpperCase(Locale.ROOT), strategy);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+
+/**
+ * 加密算法策略
+ *
+ * 使用策略加密的值带有自描述首部: 字符串格式为{@code SENSITIVE_#}加上Base64编码的(算法标识 + 密文),
+ * 二进制格式为版本魔数、算法标识和密文. 解密时按算法标识选择策略, 不同算法的数据可以混合存在.
+ * 除内置的ECB、GCM、CTR外, 可以通过ServiceLoader注册自定义策略
+ * (META-INF/services/dev.cn.common.sensitive_data.crypto.CipherStrategy), 算法标识不能重复.
+ * 实现必须是线程安全的.
+ *
+ * @since 1.2.0
+ */
+public interface CipherStrategy {
+
+    /**
+     * 写入首部的算法标识, 取值范围1~127(最高位用于标记首部中带有秘钥编号)
+     *
+     * @return 算法标识
+     */
+    byte getId();
+
+    /**
+     * 策略名称, 用于sensitive-data.data-crypt.cipher-strategy配置
+     *
+     * @return 策略名称
+     */
+    String getName();
+
+    /**
+     * 是否为确定性加密
+     *
+     * @return 相同明文是否总是得到相同密文
+     */
+    boolean isDeterministic();
+
+    /**
+     * 加密结果的最大长度
+     *
+     * @param inputLength 明文长度
+     * @return 加密结果(含IV、认证标签等)的最大长度
+     */
+    int getMaxOutputLength(int inputLength);
+
+    /**
+     * 加密
+     *
+     * @param key 秘钥
+     * @param input 明文
+     * @param inputLength 明文长度
+     * @param output 输出缓冲区, 至少有getMaxOutputLength的空间
+     * @param outputOffset 输出起始位置
+     * @return 写入的字节数
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @throws BadPaddingException BadPaddingException
+     */
+    int encrypt(Key key, byte[] input, int inputLength, byte[] output, int outputOffset)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
+            BadPaddingException;
+
+    /**
+     * 解密
+     *
+     * @param key 秘钥
+     * @param input 加密结果
+     * @param inputOffset 加密结果起始位置
+     * @param inputLength 加密结果长度
+     * @param output 输出缓冲区, 至少有inputLength的空间
+     * @return 写入的明文字节数
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @throws BadPaddingException BadPaddingException 填充错误或认证失败(AEADBadTagException)
+     */
+    int decrypt(Key key, byte[] input, int inputOffset, int inputLength, byte[] output)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
+            BadPaddingException;
+}
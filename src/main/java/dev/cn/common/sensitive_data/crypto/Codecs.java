@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 直接在字节/字符数组上进行的Base64、UTF-8和十进制数字编解码, 避免中间对象
+ *
+ * Base64使用标准字母表并带填充, 与{@link java.util.Base64#getEncoder()}的结果一致.
+ *
+ * @since 1.2.0
+ */
+final class Codecs {
+
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .toCharArray();
+    private static final int[] BASE64_INDEX = new int[128];
+
+    static {
+        Arrays.fill(BASE64_INDEX, -1);
+        for (int i = 0; i < BASE64.length; i++) {
+            BASE64_INDEX[BASE64[i]] = i;
+        }
+    }
+
+    /**
+     * long的十进制形式的最大长度(含负号)
+     */
+    static final int MAX_LONG_LENGTH = 20;
+
+    private Codecs() {
+    }
+
+    /**
+     * Base64解码后的最大长度
+     */
+    static int base64DecodedLength(int encodedLength) {
+        return (encodedLength * 3 + 3) / 4;
+    }
+
+    /**
+     * Base64编码后的长度
+     */
+    static int base64EncodedLength(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    /**
+     * 解码s中从offset开始的Base64内容, 与{@link java.util.Base64#getDecoder()}一样允许省略末尾的填充
+     *
+     * @return 解码后的字节数
+     * @throws IllegalArgumentException 不是合法的Base64
+     */
+    static int decodeBase64(String s, int offset, byte[] dst) {
+        int end = s.length();
+        int padding = 0;
+        while (end > offset && s.charAt(end - 1) == '=' && padding < 2) {
+            end--;
+            padding++;
+        }
+        int length = end - offset;
+        if (length % 4 == 1 || padding > 0 && (length + padding) % 4 != 0) {
+            throw new IllegalArgumentException("Base64长度不正确: " + (length + padding));
+        }
+
+        int d = 0;
+        int i = offset;
+        for (; i + 4 <= end; i += 4) {
+            int bits = index(s.charAt(i)) << 18 | index(s.charAt(i + 1)) << 12 | index(s.charAt(i + 2)) << 6
+                    | index(s.charAt(i + 3));
+            dst[d++] = (byte) (bits >> 16);
+            dst[d++] = (byte) (bits >> 8);
+            dst[d++] = (byte) bits;
+        }
+        int remaining = end - i;
+        if (remaining >= 2) {
+            int bits = index(s.charAt(i)) << 18 | index(s.charAt(i + 1)) << 12
+                    | (remaining == 3 ? index(s.charAt(i + 2)) << 6 : 0);
+            dst[d++] = (byte) (bits >> 16);
+            if (remaining == 3) {
+                dst[d++] = (byte) (bits >> 8);
+            }
+        }
+        return d;
+    }
+
+    /**
+     * 把src的前length个字节编码为Base64, 写入dst的offset处
+     *
+     * @return 写入后的结束位置
+     */
+    static int encodeBase64(byte[] src, int length, char[] dst, int offset) {
+        int d = offset;
+        int i = 0;
+        for (; i + 3 <= length; i += 3) {
+            int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+            dst[d++] = BASE64[bits >>> 18];
+            dst[d++] = BASE64[bits >>> 12 & 0x3f];
+            dst[d++] = BASE64[bits >>> 6 & 0x3f];
+            dst[d++] = BASE64[bits & 0x3f];
+        }
+        int remaining = length - i;
+        if (remaining > 0) {
+            int bits = (src[i] & 0xff) << 16 | (remaining == 2 ? (src[i + 1] & 0xff) << 8 : 0);
+            dst[d++] = BASE64[bits >>> 18];
+            dst[d++] = BASE64[bits >>> 12 & 0x3f];
+            dst[d++] = remaining == 2 ? BASE64[bits >>> 6 & 0x3f] : '=';
+            dst[d++] = '=';
+        }
+        return d;
+    }
+
+    /**
+     * UTF-8编码后的最大长度
+     */
+    static int utf8MaxLength(int charLength) {
+        return charLength * 3;
+    }
+
+    /**
+     * 把s编码为UTF-8写入dst, 不成对的代理字符按'?'处理, 与String.getBytes一致
+     *
+     * @return 写入的字节数
+     */
+    static int encodeUtf8(String s, byte[] dst) {
+        int d = 0;
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                dst[d++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[d++] = (byte) (0xc0 | c >> 6);
+                dst[d++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    dst[d++] = (byte) (0xf0 | codePoint >> 18);
+                    dst[d++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                    dst[d++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                    dst[d++] = (byte) (0x80 | codePoint & 0x3f);
+                } else {
+                    dst[d++] = '?';
+                }
+            } else {
+                dst[d++] = (byte) (0xe0 | c >> 12);
+                dst[d++] = (byte) (0x80 | c >> 6 & 0x3f);
+                dst[d++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return d;
+    }
+
+    /**
+     * 把value的十进制形式写入dst, 与Long.toString的结果一致
+     *
+     * @return 写入的字节数
+     */
+    static int encodeLong(long value, byte[] dst, int offset) {
+        if (value == Long.MIN_VALUE) {
+            //取反会溢出, 直接使用字符串形式
+            byte[] bytes = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, dst, offset, bytes.length);
+            return bytes.length;
+        }
+        int d = offset;
+        long remaining = value;
+        if (remaining < 0) {
+            dst[d++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long limit = 10; digits < 19 && remaining >= limit; limit *= 10) {
+            digits++;
+        }
+        for (int i = d + digits - 1; i >= d; i--) {
+            dst[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return d + digits - offset;
+    }
+
+    /**
+     * 把非负整数value写为固定宽度的十进制数字, 不足时左侧补0
+     */
+    static void encodeDigits(int value, byte[] dst, int offset, int width) {
+        int remaining = value;
+        for (int i = offset + width - 1; i >= offset; i--) {
+            dst[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+    }
+
+    /**
+     * 解析十进制数字, 允许开头的正负号和前导0
+     *
+     * @throws NumberFormatException 不是合法的十进制数字或超出long范围
+     */
+    static long decodeLong(byte[] src, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (i < end && (src[i] == '-' || src[i] == '+')) {
+            negative = src[i++] == '-';
+        }
+        if (i == end) {
+            throw new NumberFormatException("不是合法的数字");
+        }
+        //按负数累加, 可以表示Long.MIN_VALUE
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = src[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("不是合法的数字");
+            }
+            if (result < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("超出long范围");
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative && result == Long.MIN_VALUE) {
+            throw new NumberFormatException("超出long范围");
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * 解码s中offset处的4个Base64字符, 用于只读取首部而不解码整个值
+     *
+     * @return 解码得到的3个字节组成的24位整数
+     * @throws IllegalArgumentException 不是合法的Base64
+     */
+    static int decodeBase64Quantum(String s, int offset) {
+        if (s.length() < offset + 4) {
+            throw new IllegalArgumentException("Base64长度不正确: " + (s.length() - offset));
+        }
+        int b2 = s.charAt(offset + 2) == '=' ? 0 : index(s.charAt(offset + 2));
+        int b3 = s.charAt(offset + 3) == '=' ? 0 : index(s.charAt(offset + 3));
+        return index(s.charAt(offset)) << 18 | index(s.charAt(offset + 1)) << 12 | b2 << 6 | b3;
+    }
+
+    private static int index(char c) {
+        int value = c < 128 ? BASE64_INDEX[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("不合法的Base64字符: " + c);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界的加解密结果缓存
+ *
+ * 按键的哈希分段, 每段是一个访问有序的LRU, 同时限制条目数和字节数.
+ * 值以UTF-8字节保存, 淘汰或清空时会先抹掉字节内容. 可选择保存在堆外内存中以减少GC压力:
+ * 每段创建时预先分配一块堆外内存, 按固定大小的块分配给值, 块之间用链表连接, 释放后复用.
+ *
+ * @since 1.2.0
+ */
+public class CryptCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * 堆外内存中每块的字节数
+     */
+    private static final int CHUNK_SIZE = 64;
+
+    /**
+     * 每个条目除键值内容外的大致固定开销
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final Segment[] segments;
+    private final boolean offHeap;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries 最大条目数
+     * @param maxBytes 最大字节数(键按UTF-16估算), 保存在堆外内存时按此预先分配
+     * @param offHeap 值是否保存在堆外内存
+     */
+    public CryptCache(int maxEntries, long maxBytes, boolean offHeap) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0");
+        }
+        this.offHeap = offHeap;
+        //条目数较少时减少分段, 保证每段至少能保存一个条目且总数不超过上限
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxEntries));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentEntries = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+            long segmentBytes = Math.max(1, maxBytes / segmentCount);
+            segments[i] = new Segment(segmentEntries, segmentBytes, offHeap);
+        }
+    }
+
+    /**
+     * 查找缓存
+     *
+     * @param key 键
+     * @return 值, 不存在时返回null
+     */
+    public String get(String key) {
+        Segment segment = segmentFor(key);
+        String value;
+        synchronized (segment) {
+            Slot slot = segment.map.get(key);
+            value = slot == null ? null : slot.read();
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 放入缓存, 超出容量时淘汰最久未访问的条目
+     *
+     * @param key 键
+     * @param value 值
+     */
+    public void put(String key, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long weight = weigh(key, bytes.length);
+        Segment segment = segmentFor(key);
+        if (weight > segment.maxBytes) {
+            Arrays.fill(bytes, (byte) 0);
+            return;
+        }
+
+        synchronized (segment) {
+            Slot previous = segment.map.remove(key);
+            if (previous != null) {
+                segment.bytes -= weigh(key, previous.length());
+                previous.wipe();
+            }
+            //先淘汰再分配, 堆外内存中值占用的块不超过条目的权重之和
+            segment.evict(1, weight);
+            Slot slot = offHeap ? segment.allocate(bytes) : new HeapSlot(bytes);
+            if (slot == null) {
+                Arrays.fill(bytes, (byte) 0);
+                return;
+            }
+            segment.map.put(key, slot);
+            segment.bytes += weight;
+        }
+    }
+
+    /**
+     * 清空缓存并抹掉所有值
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Slot slot : segment.map.values()) {
+                    slot.wipe();
+                }
+                segment.map.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    /**
+     * 获取统计信息
+     *
+     * @return 统计信息快照
+     */
+    public Stats getStats() {
+        long size = 0;
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+                bytes += segment.bytes;
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size, bytes);
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static long weigh(String key, int valueLength) {
+        return ENTRY_OVERHEAD + key.length() * 2L + valueLength;
+    }
+
+    private final class Segment {
+
+        private final int maxEntries;
+        private final long maxBytes;
+        private final LinkedHashMap<String, Slot> map = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+        /**
+         * 堆外内存及块的链表, 值的块通过next连接, 空闲块也组成一个链表
+         */
+        private final ByteBuffer slab;
+        private final int[] next;
+        private int free;
+
+        Segment(int maxEntries, long maxBytes, boolean offHeap) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+            if (offHeap) {
+                int chunks = (int) Math.min(maxBytes / CHUNK_SIZE, Integer.MAX_VALUE / CHUNK_SIZE);
+                this.slab = ByteBuffer.allocateDirect(chunks * CHUNK_SIZE);
+                this.next = new int[chunks];
+                for (int i = 0; i < chunks; i++) {
+                    next[i] = i + 1 < chunks ? i + 1 : -1;
+                }
+                this.free = chunks > 0 ? 0 : -1;
+            } else {
+                this.slab = null;
+                this.next = null;
+                this.free = -1;
+            }
+        }
+
+        /**
+         * 为新条目淘汰最久未访问的条目
+         */
+        void evict(int entries, long weight) {
+            Iterator<Map.Entry<String, Slot>> iterator = map.entrySet().iterator();
+            while ((map.size() + entries > maxEntries || bytes + weight > maxBytes) && iterator.hasNext()) {
+                Map.Entry<String, Slot> eldest = iterator.next();
+                iterator.remove();
+                bytes -= weigh(eldest.getKey(), eldest.getValue().length());
+                eldest.getValue().wipe();
+                evictions.increment();
+            }
+        }
+
+        /**
+         * 从堆外内存中分配块并写入值, 写入后抹掉堆上的临时副本
+         *
+         * @return 堆外的值, 空闲块不足时返回null
+         */
+        Slot allocate(byte[] bytes) {
+            int head = -1;
+            int tail = -1;
+            for (int offset = 0; offset < bytes.length; offset += CHUNK_SIZE) {
+                if (free < 0) {
+                    release(head);
+                    return null;
+                }
+                int chunk = free;
+                free = next[chunk];
+                next[chunk] = -1;
+                if (tail < 0) {
+                    head = chunk;
+                } else {
+                    next[tail] = chunk;
+                }
+                tail = chunk;
+                ByteBuffer view = slab.duplicate();
+                view.position(chunk * CHUNK_SIZE);
+                view.put(bytes, offset, Math.min(CHUNK_SIZE, bytes.length - offset));
+            }
+            Arrays.fill(bytes, (byte) 0);
+            return new OffHeapSlot(this, head, bytes.length);
+        }
+
+        /**
+         * 抹掉块的内容并放回空闲链表
+         */
+        void release(int head) {
+            int chunk = head;
+            while (chunk >= 0) {
+                int following = next[chunk];
+                for (int i = chunk * CHUNK_SIZE, end = i + CHUNK_SIZE; i < end; i++) {
+                    slab.put(i, (byte) 0);
+                }
+                next[chunk] = free;
+                free = chunk;
+                chunk = following;
+            }
+        }
+    }
+
+    private interface Slot {
+
+        String read();
+
+        int length();
+
+        void wipe();
+    }
+
+    private static final class HeapSlot implements Slot {
+
+        private final byte[] bytes;
+
+        HeapSlot(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String read() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int length() {
+            return bytes.length;
+        }
+
+        @Override
+        public void wipe() {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    /**
+     * 堆外的值, 只在所属段的锁内访问
+     */
+    private static final class OffHeapSlot implements Slot {
+
+        private final Segment segment;
+        private final int head;
+        private final int length;
+
+        OffHeapSlot(Segment segment, int head, int length) {
+            this.segment = segment;
+            this.head = head;
+            this.length = length;
+        }
+
+        @Override
+        public String read() {
+            byte[] bytes = new byte[length];
+            ByteBuffer view = segment.slab.duplicate();
+            int chunk = head;
+            for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+                view.position(chunk * CHUNK_SIZE);
+                view.get(bytes, offset, Math.min(CHUNK_SIZE, length - offset));
+                chunk = segment.next[chunk];
+            }
+            try {
+                return new String(bytes, StandardCharsets.UTF_8);
+            } finally {
+                Arrays.fill(bytes, (byte) 0);
+            }
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public void wipe() {
+            segment.release(head);
+        }
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    public static final class Stats {
+
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long size;
+        private final long bytes;
+
+        Stats(long hitCount, long missCount, long evictionCount, long size, long bytes) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+            this.bytes = bytes;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * 命中率
+         *
+         * @return 命中率, 没有请求时为0
+         */
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 0 : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount
+                    + ", size=" + size + ", bytes=" + bytes + "}";
+        }
+    }
+}
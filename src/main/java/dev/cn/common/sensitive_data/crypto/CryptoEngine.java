@@ -0,0 +1,987 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+
+import dev.cn.common.sensitive_data.support.Constants;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+import dev.cn.common.sensitive_data.util.CryptUtils;
+
+/**
+ * 可复用的加解密引擎
+ *
+ * 每个(秘钥, 秘钥算法, 加密算法)组合只派生一次秘钥, 并按线程缓存已初始化的Cipher,
+ * 避免每个字段都重复执行Cipher.getInstance和SHA-512秘钥派生.
+ * 指定{@link CipherStrategy}后, 新加密的值带有算法首部, 解密时按首部选择策略,
+ * 不带首部的历史密文仍按cipherAlgorithm解密.
+ * 配置了多个秘钥时, 首部中带有秘钥编号: 新数据使用当前秘钥加密, 旧秘钥加密的数据仍可解密,
+ * 并可通过{@link #isStale(String)}识别后重新加密.
+ * 指定{@link KeyProvider}后为信封加密: 未在keys中配置的编号由提供者解开数据秘钥并按TTL缓存,
+ * 通过{@link #forKeyName(String)}按表选择加密使用的数据秘钥.
+ * {@link #withKeyId(int)}和{@link #withCipherStrategy(String)}返回按字段使用其他秘钥或算法加密的引擎,
+ * 这些引擎与当前引擎共享秘钥和缓存, 解密行为相同.
+ *
+ * @since 1.2.0
+ */
+public class CryptoEngine {
+
+    /**
+     * 共享引擎的数量上限, 超过后不再缓存, 避免调用方传入大量不同秘钥时无限增长
+     */
+    private static final int MAX_SHARED_ENGINES = 256;
+
+    private static final ConcurrentMap<EngineKey, CryptoEngine> SHARED_ENGINES = new ConcurrentHashMap<>();
+
+    /**
+     * 带前缀的字符串格式加解密使用的线程内缓冲区
+     */
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * 首部中算法标识的最高位, 表示其后带有1字节的秘钥编号
+     */
+    private static final int KEY_ID_FLAG = 0x80;
+
+    private static final int MAX_KEY_ID = 0xff;
+
+    /**
+     * 算法标识和秘钥编号
+     */
+    private static final int MAX_HEADER_LENGTH = 2;
+
+    private final String keyAlgorithm;
+    private final String cipherAlgorithm;
+    private final CipherStrategy cipherStrategy;
+    private final Key secretKey;
+    /**
+     * 按编号索引的秘钥, 0号为key配置的秘钥
+     */
+    private final Key[] keys;
+    private final int activeKeyId;
+    /**
+     * 信封加密的数据秘钥, 未使用信封加密时为null
+     */
+    private final KeyProvider keyProvider;
+    private final DataKeyCache dataKeys;
+    /**
+     * 按加密使用的秘钥编号和算法策略缓存的引擎, 与创建它的引擎共享秘钥和缓存
+     */
+    private final ConcurrentMap<Integer, CryptoEngine> views;
+
+    private final ThreadLocal<Cipher> encryptCiphers = new ThreadLocal<>();
+    private final ThreadLocal<Cipher> decryptCiphers = new ThreadLocal<>();
+
+    /**
+     * 创建加解密引擎, 创建时即校验算法并派生秘钥
+     *
+     * @param key 秘钥
+     * @param keyAlgorithm 秘钥算法
+     * @param cipherAlgorithm 加密算法
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     */
+    public CryptoEngine(String key, String keyAlgorithm, String cipherAlgorithm)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        this(key, keyAlgorithm, cipherAlgorithm, null);
+    }
+
+    /**
+     * 创建加解密引擎, 创建时即校验算法并派生秘钥
+     *
+     * @param key 秘钥
+     * @param keyAlgorithm 秘钥算法
+     * @param cipherAlgorithm 加密算法, 用于不带首部的格式
+     * @param cipherStrategy 加密算法策略名称, 为空时加密结果不带首部(历史格式)
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     */
+    public CryptoEngine(String key, String keyAlgorithm, String cipherAlgorithm, String cipherStrategy)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        this(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, null, 0);
+    }
+
+    /**
+     * 创建支持多秘钥的加解密引擎, 创建时即校验算法并派生秘钥
+     *
+     * @param key 秘钥, 编号为0
+     * @param keyAlgorithm 秘钥算法
+     * @param cipherAlgorithm 加密算法, 用于不带首部的格式
+     * @param cipherStrategy 加密算法策略名称, 为空时加密结果不带首部(历史格式); 当前秘钥不是0号时默认使用ECB
+     * @param keys 其他秘钥, 格式为"编号:秘钥,编号:秘钥", 编号在1~255之间, 可以为空
+     * @param activeKeyId 加密使用的秘钥编号
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     * @since 1.2.0
+     */
+    public CryptoEngine(String key, String keyAlgorithm, String cipherAlgorithm, String cipherStrategy, String keys,
+            int activeKeyId) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        this(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, activeKeyId, null, 0);
+    }
+
+    /**
+     * 创建信封加密的加解密引擎, 创建时即校验算法并解开默认的数据秘钥
+     *
+     * @param key 秘钥, 编号为0, 用于解密信封加密之前的数据
+     * @param keyAlgorithm 秘钥算法
+     * @param cipherAlgorithm 加密算法, 用于不带首部的格式
+     * @param cipherStrategy 加密算法策略名称, 为空时使用ECB
+     * @param keys 本地配置的其他秘钥, 格式为"编号:秘钥,编号:秘钥", 可以为空, 其余编号由keyProvider提供
+     * @param keyProvider 数据秘钥提供者, 默认使用{@link KeyProvider#DEFAULT_KEY_NAME}的数据秘钥加密
+     * @param dataKeyTtlMillis 解开的数据秘钥的缓存毫秒数
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     * @since 1.2.0
+     */
+    public CryptoEngine(String key, String keyAlgorithm, String cipherAlgorithm, String cipherStrategy, String keys,
+            KeyProvider keyProvider, long dataKeyTtlMillis)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        this(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys,
+                activeKeyId(Objects.requireNonNull(keyProvider, "keyProvider"), KeyProvider.DEFAULT_KEY_NAME),
+                keyProvider, dataKeyTtlMillis);
+    }
+
+    private CryptoEngine(String key, String keyAlgorithm, String cipherAlgorithm, String cipherStrategy, String keys,
+            int activeKeyId, KeyProvider keyProvider, long dataKeyTtlMillis)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        this.keyAlgorithm = keyAlgorithm;
+        this.cipherAlgorithm = cipherAlgorithm;
+        this.secretKey = CryptUtils.getSecretKey(key, keyAlgorithm);
+        this.keys = parseKeys(secretKey, keys, keyAlgorithm);
+        this.keyProvider = keyProvider;
+        this.dataKeys = keyProvider == null ? null : new DataKeyCache(keyProvider, keyAlgorithm, dataKeyTtlMillis);
+        this.views = new ConcurrentHashMap<>();
+        if (activeKeyId < 0 || activeKeyId > MAX_KEY_ID || (this.keys[activeKeyId] == null && dataKeys == null)) {
+            throw new IllegalArgumentException("未配置编号为" + activeKeyId + "的秘钥");
+        }
+        this.activeKeyId = activeKeyId;
+        if (cipherStrategy != null && !cipherStrategy.trim().isEmpty()) {
+            this.cipherStrategy = CipherStrategies.forName(cipherStrategy);
+        } else {
+            //秘钥编号只能写在首部中
+            this.cipherStrategy = activeKeyId == 0 ? null : CipherStrategies.forName(EcbCipherStrategy.NAME);
+        }
+
+        // 提前创建当前线程的密码器, 配置错误时在这里直接失败
+        encryptCiphers.set(newCipher(Cipher.ENCRYPT_MODE));
+        decryptCiphers.set(newCipher(Cipher.DECRYPT_MODE));
+        if (this.cipherStrategy != null) {
+            try {
+                this.cipherStrategy.encrypt(key(activeKeyId), new byte[0], 0,
+                        new byte[this.cipherStrategy.getMaxOutputLength(0)], 0);
+            } catch (IllegalBlockSizeException | BadPaddingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 使用其他秘钥或加密算法策略加密的引擎, 共享秘钥和数据秘钥缓存
+     */
+    private CryptoEngine(CryptoEngine base, int activeKeyId, CipherStrategy cipherStrategy) {
+        this.keyAlgorithm = base.keyAlgorithm;
+        this.cipherAlgorithm = base.cipherAlgorithm;
+        this.secretKey = base.secretKey;
+        this.keys = base.keys;
+        this.keyProvider = base.keyProvider;
+        this.dataKeys = base.dataKeys;
+        this.views = base.views;
+        this.activeKeyId = activeKeyId;
+        this.cipherStrategy = cipherStrategy;
+    }
+
+    /**
+     * 获取共享的加解密引擎, 相同参数返回同一个实例
+     *
+     * @param key 秘钥
+     * @param keyAlgorithm 秘钥算法
+     * @param cipherAlgorithm 加密算法
+     * @return 加解密引擎
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     */
+    public static CryptoEngine getInstance(String key, String keyAlgorithm, String cipherAlgorithm)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        return getInstance(key, keyAlgorithm, cipherAlgorithm, null);
+    }
+
+    /**
+     * 获取共享的加解密引擎, 相同参数返回同一个实例
+     *
+     * @param key 秘钥
+     * @param keyAlgorithm 秘钥算法
+     * @param cipherAlgorithm 加密算法, 用于不带首部的格式
+     * @param cipherStrategy 加密算法策略名称, 为空时加密结果不带首部(历史格式)
+     * @return 加解密引擎
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     */
+    public static CryptoEngine getInstance(String key, String keyAlgorithm, String cipherAlgorithm,
+            String cipherStrategy) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        return getInstance(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, null, 0);
+    }
+
+    /**
+     * 获取共享的支持多秘钥的加解密引擎, 相同参数返回同一个实例
+     *
+     * @param key 秘钥, 编号为0
+     * @param keyAlgorithm 秘钥算法
+     * @param cipherAlgorithm 加密算法, 用于不带首部的格式
+     * @param cipherStrategy 加密算法策略名称, 为空时加密结果不带首部(历史格式)
+     * @param keys 其他秘钥, 格式为"编号:秘钥,编号:秘钥", 可以为空
+     * @param activeKeyId 加密使用的秘钥编号
+     * @return 加解密引擎
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     * @since 1.2.0
+     */
+    public static CryptoEngine getInstance(String key, String keyAlgorithm, String cipherAlgorithm,
+            String cipherStrategy, String keys, int activeKeyId)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        if (key == null) {
+            throw new IllegalArgumentException("密钥不能为null");
+        }
+
+        EngineKey engineKey = new EngineKey(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, activeKeyId);
+        CryptoEngine engine = SHARED_ENGINES.get(engineKey);
+        if (engine != null) {
+            return engine;
+        }
+
+        engine = new CryptoEngine(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, activeKeyId);
+        return share(engineKey, engine);
+    }
+
+    /**
+     * 获取共享的信封加密引擎, 相同参数(同一个keyProvider实例)返回同一个实例
+     *
+     * @param key 秘钥, 编号为0, 用于解密信封加密之前的数据
+     * @param keyAlgorithm 秘钥算法
+     * @param cipherAlgorithm 加密算法, 用于不带首部的格式
+     * @param cipherStrategy 加密算法策略名称, 为空时使用ECB
+     * @param keys 本地配置的其他秘钥, 格式为"编号:秘钥,编号:秘钥", 可以为空
+     * @param keyProvider 数据秘钥提供者
+     * @param dataKeyTtlMillis 解开的数据秘钥的缓存毫秒数
+     * @return 加解密引擎
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws InvalidKeyException InvalidKeyException
+     * @since 1.2.0
+     */
+    public static CryptoEngine getInstance(String key, String keyAlgorithm, String cipherAlgorithm,
+            String cipherStrategy, String keys, KeyProvider keyProvider, long dataKeyTtlMillis)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        if (key == null) {
+            throw new IllegalArgumentException("密钥不能为null");
+        }
+
+        EngineKey engineKey = new EngineKey(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, keyProvider,
+                dataKeyTtlMillis);
+        CryptoEngine engine = SHARED_ENGINES.get(engineKey);
+        if (engine != null) {
+            return engine;
+        }
+
+        engine = new CryptoEngine(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, keyProvider,
+                dataKeyTtlMillis);
+        return share(engineKey, engine);
+    }
+
+    private static CryptoEngine share(EngineKey engineKey, CryptoEngine engine) {
+        if (SHARED_ENGINES.size() >= MAX_SHARED_ENGINES) {
+            return engine;
+        }
+        CryptoEngine existing = SHARED_ENGINES.putIfAbsent(engineKey, engine);
+        return existing != null ? existing : engine;
+    }
+
+    /**
+     * 获取按秘钥名称加密的引擎, 解密与当前引擎相同
+     *
+     * 信封加密时由{@link KeyProvider#getActiveKeyId(String)}决定加密使用的数据秘钥, 相同编号返回同一个实例;
+     * 否则直接返回当前引擎.
+     *
+     * @param keyName 秘钥名称, 通常为表名, 为null时使用{@link KeyProvider#DEFAULT_KEY_NAME}
+     * @return 加解密引擎
+     * @throws InvalidKeyException 没有可用的数据秘钥
+     * @since 1.2.0
+     */
+    public CryptoEngine forKeyName(String keyName) throws InvalidKeyException {
+        if (keyProvider == null) {
+            return this;
+        }
+        return withKeyId(activeKeyId(keyProvider, keyName == null ? KeyProvider.DEFAULT_KEY_NAME : keyName));
+    }
+
+    /**
+     * 获取使用指定秘钥加密的引擎, 加密算法策略不变, 解密与当前引擎相同
+     *
+     * @param keyId 秘钥编号, keys中配置的或由数据秘钥提供者解开的
+     * @return 加解密引擎, 相同参数返回同一个实例
+     * @throws InvalidKeyException 没有该编号的秘钥
+     * @since 1.2.0
+     */
+    public CryptoEngine withKeyId(int keyId) throws InvalidKeyException {
+        if (keyId == activeKeyId) {
+            return this;
+        }
+        if (keyId < 0 || keyId > MAX_KEY_ID) {
+            throw new InvalidKeyException("秘钥编号必须在0~" + MAX_KEY_ID + "之间: " + keyId);
+        }
+        //秘钥编号只能写在首部中
+        CipherStrategy strategy = cipherStrategy != null || keyId == 0 ? cipherStrategy
+                : CipherStrategies.forName(EcbCipherStrategy.NAME);
+        return view(keyId, strategy);
+    }
+
+    /**
+     * 获取使用指定加密算法策略的引擎, 秘钥不变, 解密与当前引擎相同
+     *
+     * @param cipherStrategy 加密算法策略名称
+     * @return 加解密引擎, 相同参数返回同一个实例
+     * @throws InvalidKeyException 当前秘钥不可用
+     * @since 1.2.0
+     */
+    public CryptoEngine withCipherStrategy(String cipherStrategy) throws InvalidKeyException {
+        CipherStrategy strategy = CipherStrategies.forName(cipherStrategy);
+        return strategy == this.cipherStrategy ? this : view(activeKeyId, strategy);
+    }
+
+    private CryptoEngine view(int keyId, CipherStrategy strategy) throws InvalidKeyException {
+        Integer viewKey = keyId << 8 | (strategy == null ? 0 : strategy.getId());
+        CryptoEngine view = views.get(viewKey);
+        if (view == null) {
+            //先取得秘钥, 失败时不创建引擎
+            key(keyId);
+            view = views.computeIfAbsent(viewKey, k -> new CryptoEngine(this, keyId, strategy));
+        }
+        return view;
+    }
+
+    /**
+     * 加密操作
+     *
+     * @param content 待加密内容
+     * @return 返回Base64转码后的加密数据, 指定了加密算法策略时带有首部
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     */
+    public String encrypt(String content) throws NoSuchAlgorithmException, NoSuchPaddingException,
+            InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return encrypt(content, FieldCodecs.STRING, "");
+    }
+
+    /**
+     * 解密操作, 按是否带有首部自动选择算法
+     *
+     * @param content 待解密内容(Base64)
+     * @return 返回解密后的内容
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     */
+    public String decrypt(String content) throws NoSuchAlgorithmException, NoSuchPaddingException,
+            InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return decrypt(content, 0, FieldCodecs.STRING);
+    }
+
+    /**
+     * 加密并加上标识前缀, 结果与{@code ValueHelper.prefixEncryptedValue(encrypt(content))}相同.
+     * UTF-8编码、密文和Base64编码都在线程内复用的缓冲区中完成, 只分配结果字符串.
+     *
+     * @param content 待加密内容
+     * @return 带前缀的密文
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @since 1.2.0
+     */
+    public String encryptPrefixed(String content) throws NoSuchAlgorithmException, NoSuchPaddingException,
+            InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return encrypt(content, FieldCodecs.STRING, ValueHelper.getEncryptedPrefix());
+    }
+
+    /**
+     * 解密带前缀的密文, 结果与{@code decrypt(ValueHelper.unprefixEncryptedValue(content))}相同.
+     * 直接从前缀之后解码Base64, 密文和明文字节都在线程内复用的缓冲区中, 只分配结果字符串.
+     *
+     * @param prefixedContent 带前缀的密文
+     * @return 返回解密后的内容
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @since 1.2.0
+     */
+    public String decryptPrefixed(String prefixedContent) throws NoSuchAlgorithmException, NoSuchPaddingException,
+            InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return decrypt(prefixedContent, ValueHelper.getEncryptedPrefix().length(), FieldCodecs.STRING);
+    }
+
+    /**
+     * 加密为二进制格式的加密值(含首字节), 指定了加密算法策略时带有算法首部
+     *
+     * @param content 待加密内容
+     * @return 二进制格式的加密值
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @since 1.2.0
+     */
+    public byte[] encryptToBinary(String content) throws NoSuchAlgorithmException, NoSuchPaddingException,
+            InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return encryptToBinary(content, FieldCodecs.STRING);
+    }
+
+    /**
+     * 按字段类型的编解码器加密并加上标识前缀, 字段值直接编码为加密输入, 不经过String
+     *
+     * @param value 字段值
+     * @param codec 编解码器
+     * @param <T> 字段类型
+     * @return 带前缀的密文
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @since 1.2.0
+     */
+    public <T> String encryptPrefixed(T value, FieldCodec<T> codec) throws NoSuchAlgorithmException,
+            NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return encrypt(value, codec, ValueHelper.getEncryptedPrefix());
+    }
+
+    /**
+     * 解密带前缀的密文, 明文字节直接由编解码器解码
+     *
+     * @param prefixedContent 带前缀的密文
+     * @param codec 编解码器
+     * @param <T> 字段类型
+     * @return 字段值
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @since 1.2.0
+     */
+    public <T> T decryptPrefixed(String prefixedContent, FieldCodec<T> codec) throws NoSuchAlgorithmException,
+            NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return decrypt(prefixedContent, ValueHelper.getEncryptedPrefix().length(), codec);
+    }
+
+    /**
+     * 按字段类型的编解码器加密为二进制格式的加密值(含首字节)
+     *
+     * @param value 字段值
+     * @param codec 编解码器
+     * @param <T> 字段类型
+     * @return 二进制格式的加密值
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @since 1.2.0
+     */
+    public <T> byte[] encryptToBinary(T value, FieldCodec<T> codec) throws NoSuchAlgorithmException,
+            NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        Buffers buffers = BUFFERS.get();
+        byte[] input = buffers.input(codec.getMaxLength(value));
+        int inputLength = codec.encode(value, input);
+        try {
+            if (cipherStrategy == null) {
+                Cipher cipher = cipher(encryptCiphers, Cipher.ENCRYPT_MODE);
+                byte[] output = buffers.output(cipher.getOutputSize(inputLength));
+                int outputLength = doFinal(encryptCiphers, cipher, input, inputLength, output);
+                return ValueHelper.toBinary(Constants.BINARY_VERSION_V1, output, outputLength);
+            }
+            byte[] output = buffers.output(MAX_HEADER_LENGTH + cipherStrategy.getMaxOutputLength(inputLength));
+            int outputLength = encryptWithHeader(input, inputLength, output);
+            return ValueHelper.toBinary(Constants.BINARY_VERSION_V2, output, outputLength);
+        } finally {
+            //缓冲区中不保留明文
+            Arrays.fill(input, 0, inputLength, (byte) 0);
+        }
+    }
+
+    /**
+     * 解密二进制格式的加密值(含首字节)
+     *
+     * @param value 二进制格式的加密值
+     * @return 返回解密后的内容
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @since 1.2.0
+     */
+    public String decryptBinary(byte[] value) throws NoSuchAlgorithmException, NoSuchPaddingException,
+            InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        return decryptBinary(value, FieldCodecs.STRING);
+    }
+
+    /**
+     * 解密二进制格式的加密值(含首字节), 明文字节直接由编解码器解码
+     *
+     * @param value 二进制格式的加密值
+     * @param codec 编解码器
+     * @param <T> 字段类型
+     * @return 字段值
+     * @throws NoSuchPaddingException NoSuchPaddingException
+     * @throws NoSuchAlgorithmException NoSuchAlgorithmException
+     * @throws InvalidKeyException InvalidKeyException
+     * @throws BadPaddingException BadPaddingException
+     * @throws IllegalBlockSizeException IllegalBlockSizeException
+     * @since 1.2.0
+     */
+    public <T> T decryptBinary(byte[] value, FieldCodec<T> codec) throws NoSuchAlgorithmException,
+            NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        if (!ValueHelper.isEncrypted(value)) {
+            throw new IllegalArgumentException("不是二进制格式的加密值");
+        }
+        int offset = ValueHelper.BINARY_HEADER_LENGTH;
+        if (ValueHelper.getBinaryVersion(value) == Constants.BINARY_VERSION_V2) {
+            return decryptWithHeader(value, offset, value.length - offset, BUFFERS.get(), codec);
+        }
+        Cipher cipher = cipher(decryptCiphers, Cipher.DECRYPT_MODE);
+        byte[] output;
+        try {
+            // doFinal完成后密码器会回到init后的状态, 可以直接复用
+            output = cipher.doFinal(value, offset, value.length - offset);
+        } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+            // 出错后密码器状态不确定, 丢弃后下次重新创建
+            decryptCiphers.remove();
+            throw e;
+        }
+        return decode(codec, output, output.length);
+    }
+
+    /**
+     * 是否为确定性加密, 即相同明文总是得到相同密文.
+     * 只有ECB和SIV模式(未指定模式时JCE默认使用ECB)是确定性的, 其他模式使用随机IV.
+     *
+     * @return 是否为确定性加密
+     */
+    public boolean isDeterministic() {
+        return cipherStrategy != null ? cipherStrategy.isDeterministic() : isDeterministic(cipherAlgorithm);
+    }
+
+    /**
+     * 指定的加密算法是否为确定性加密
+     *
+     * @param cipherAlgorithm 加密算法, 如AES/ECB/PKCS5Padding
+     * @return 是否为确定性加密
+     */
+    public static boolean isDeterministic(String cipherAlgorithm) {
+        String[] parts = cipherAlgorithm.split("/");
+        if (parts.length < 2) {
+            return true;
+        }
+        String mode = parts[1].trim().toUpperCase(Locale.ROOT);
+        return "ECB".equals(mode) || "SIV".equals(mode);
+    }
+
+    public String getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    public String getCipherAlgorithm() {
+        return cipherAlgorithm;
+    }
+
+    /**
+     * 获取加密使用的秘钥编号
+     *
+     * @return 秘钥编号, 0为key配置的秘钥
+     * @since 1.2.0
+     */
+    public int getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * 读取带前缀的密文的秘钥编号, 只解码首部
+     *
+     * @param prefixedContent 带前缀的密文
+     * @return 秘钥编号, 不带秘钥编号的密文为0
+     * @since 1.2.0
+     */
+    public static int getKeyId(String prefixedContent) {
+        int offset = ValueHelper.getEncryptedPrefix().length();
+        if (prefixedContent.length() <= offset || prefixedContent.charAt(offset) != Constants.HEADER_MARKER) {
+            return 0;
+        }
+        //前4个Base64字符对应算法标识、秘钥编号和第一个密文字节
+        int header = Codecs.decodeBase64Quantum(prefixedContent, offset + 1);
+        return (header >>> 16 & KEY_ID_FLAG) == 0 ? 0 : header >>> 8 & MAX_KEY_ID;
+    }
+
+    /**
+     * 带前缀的密文是否不是由当前秘钥加密的, 需要重新加密
+     *
+     * @param prefixedContent 带前缀的密文
+     * @return 是否需要重新加密
+     * @since 1.2.0
+     */
+    public boolean isStale(String prefixedContent) {
+        return getKeyId(prefixedContent) != activeKeyId;
+    }
+
+    /**
+     * 获取数据秘钥提供者
+     *
+     * @return 数据秘钥提供者, 未使用信封加密时为null
+     * @since 1.2.0
+     */
+    public KeyProvider getKeyProvider() {
+        return keyProvider;
+    }
+
+    /**
+     * 获取加密算法策略
+     *
+     * @return 加密算法策略, 加密结果不带首部时为null
+     */
+    public CipherStrategy getCipherStrategy() {
+        return cipherStrategy;
+    }
+
+    private <T> String encrypt(T value, FieldCodec<T> codec, String prefix) throws NoSuchAlgorithmException,
+            NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        Buffers buffers = BUFFERS.get();
+        byte[] input = buffers.input(codec.getMaxLength(value));
+        int inputLength = codec.encode(value, input);
+        byte[] output;
+        int outputLength;
+        try {
+            if (cipherStrategy == null) {
+                Cipher cipher = cipher(encryptCiphers, Cipher.ENCRYPT_MODE);
+                output = buffers.output(cipher.getOutputSize(inputLength));
+                outputLength = doFinal(encryptCiphers, cipher, input, inputLength, output);
+            } else {
+                output = buffers.output(MAX_HEADER_LENGTH + cipherStrategy.getMaxOutputLength(inputLength));
+                outputLength = encryptWithHeader(input, inputLength, output);
+            }
+        } finally {
+            //缓冲区中不保留明文
+            Arrays.fill(input, 0, inputLength, (byte) 0);
+        }
+
+        int headerLength = cipherStrategy == null ? 0 : 1;
+        char[] chars = buffers.chars(prefix.length() + headerLength + Codecs.base64EncodedLength(outputLength));
+        prefix.getChars(0, prefix.length(), chars, 0);
+        if (headerLength > 0) {
+            chars[prefix.length()] = Constants.HEADER_MARKER;
+        }
+        int end = Codecs.encodeBase64(output, outputLength, chars, prefix.length() + headerLength);
+        return new String(chars, 0, end);
+    }
+
+    private <T> T decrypt(String content, int offset, FieldCodec<T> codec) throws NoSuchAlgorithmException,
+            NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        boolean header = content.length() > offset && content.charAt(offset) == Constants.HEADER_MARKER;
+        int start = header ? offset + 1 : offset;
+        Buffers buffers = BUFFERS.get();
+        byte[] input = buffers.input(Codecs.base64DecodedLength(content.length() - start));
+        int inputLength = Codecs.decodeBase64(content, start, input);
+        if (header) {
+            return decryptWithHeader(input, 0, inputLength, buffers, codec);
+        }
+
+        Cipher cipher = cipher(decryptCiphers, Cipher.DECRYPT_MODE);
+        byte[] output = buffers.output(cipher.getOutputSize(inputLength));
+        int outputLength = doFinal(decryptCiphers, cipher, input, inputLength, output);
+        return decode(codec, output, outputLength);
+    }
+
+    /**
+     * 使用当前秘钥加密, 写入(算法标识 [+ 秘钥编号] + 密文)
+     *
+     * @return 写入的字节数
+     */
+    private int encryptWithHeader(byte[] input, int inputLength, byte[] output) throws NoSuchAlgorithmException,
+            NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
+        if (activeKeyId == 0) {
+            output[0] = cipherStrategy.getId();
+            return 1 + cipherStrategy.encrypt(secretKey, input, inputLength, output, 1);
+        }
+        output[0] = (byte) (cipherStrategy.getId() | KEY_ID_FLAG);
+        output[1] = (byte) activeKeyId;
+        return 2 + cipherStrategy.encrypt(key(activeKeyId), input, inputLength, output, 2);
+    }
+
+    /**
+     * 解密(算法标识 [+ 秘钥编号] + 密文), 按算法标识选择策略, 按秘钥编号选择秘钥
+     */
+    private <T> T decryptWithHeader(byte[] input, int offset, int length, Buffers buffers, FieldCodec<T> codec)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
+            BadPaddingException {
+        if (length < 1) {
+            throw new IllegalBlockSizeException("缺少加密算法标识");
+        }
+        CipherStrategy strategy = CipherStrategies.forId(input[offset]);
+        int headerLength = 1;
+        Key key = secretKey;
+        if ((input[offset] & KEY_ID_FLAG) != 0) {
+            if (length < 2) {
+                throw new IllegalBlockSizeException("缺少秘钥编号");
+            }
+            key = key(input[offset + 1] & MAX_KEY_ID);
+            headerLength = 2;
+        }
+        byte[] output = buffers.output(length);
+        int outputLength = strategy.decrypt(key, input, offset + headerLength, length - headerLength, output);
+        return decode(codec, output, outputLength);
+    }
+
+    /**
+     * 按编号获取秘钥, 本地未配置时由数据秘钥提供者解开
+     */
+    private Key key(int keyId) throws InvalidKeyException {
+        Key key = keys[keyId];
+        if (key != null) {
+            return key;
+        }
+        if (dataKeys == null || keyId == 0) {
+            throw new InvalidKeyException("未配置编号为" + keyId + "的秘钥");
+        }
+        return dataKeys.get(keyId);
+    }
+
+    private static int activeKeyId(KeyProvider keyProvider, String keyName) throws InvalidKeyException {
+        int keyId;
+        try {
+            keyId = keyProvider.getActiveKeyId(keyName);
+        } catch (InvalidKeyException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            InvalidKeyException exception = new InvalidKeyException(keyName + "没有可用的数据秘钥");
+            exception.initCause(e);
+            throw exception;
+        }
+        if (keyId < 1 || keyId > MAX_KEY_ID) {
+            throw new InvalidKeyException("数据秘钥编号必须在1~" + MAX_KEY_ID + "之间: " + keyId);
+        }
+        return keyId;
+    }
+
+    private static Key[] parseKeys(Key primaryKey, String spec, String keyAlgorithm) throws NoSuchAlgorithmException {
+        Key[] keys = new Key[MAX_KEY_ID + 1];
+        keys[0] = primaryKey;
+        if (spec == null || spec.trim().isEmpty()) {
+            return keys;
+        }
+        for (String entry : spec.split(",")) {
+            int separator = entry.indexOf(':');
+            int id;
+            try {
+                id = separator < 0 ? -1 : Integer.parseInt(entry.substring(0, separator).trim());
+            } catch (NumberFormatException e) {
+                id = -1;
+            }
+            if (id < 1 || id > MAX_KEY_ID) {
+                throw new IllegalArgumentException("秘钥格式应为\"编号:秘钥\", 编号在1~" + MAX_KEY_ID + "之间");
+            }
+            if (keys[id] != null) {
+                throw new IllegalArgumentException("秘钥编号重复: " + id);
+            }
+            keys[id] = CryptUtils.getSecretKey(entry.substring(separator + 1).trim(), keyAlgorithm);
+        }
+        return keys;
+    }
+
+    private static <T> T decode(FieldCodec<T> codec, byte[] output, int length) {
+        try {
+            return codec.decode(output, 0, length);
+        } finally {
+            //缓冲区中不保留明文
+            Arrays.fill(output, 0, length, (byte) 0);
+        }
+    }
+
+    private Cipher cipher(ThreadLocal<Cipher> ciphers, int mode)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        Cipher cipher = ciphers.get();
+        if (cipher == null) {
+            cipher = newCipher(mode);
+            ciphers.set(cipher);
+        }
+        return cipher;
+    }
+
+    private static int doFinal(ThreadLocal<Cipher> ciphers, Cipher cipher, byte[] input, int length, byte[] output)
+            throws IllegalBlockSizeException, BadPaddingException {
+        try {
+            return cipher.doFinal(input, 0, length, output, 0);
+        } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+            ciphers.remove();
+            throw e;
+        } catch (ShortBufferException e) {
+            //输出缓冲区按getOutputSize分配, 不会出现
+            ciphers.remove();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Cipher newCipher(int mode) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+        Cipher cipher = Cipher.getInstance(cipherAlgorithm);
+        cipher.init(mode, secretKey);
+        return cipher;
+    }
+
+    /**
+     * 线程内复用的缓冲区, 超过上限的临时缓冲区用完即丢弃, 避免长期占用内存
+     */
+    private static final class Buffers {
+
+        private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+        private byte[] input = new byte[256];
+        private byte[] output = new byte[256];
+        private char[] chars = new char[512];
+
+        byte[] input(int size) {
+            if (size <= input.length) {
+                return input;
+            }
+            byte[] buffer = new byte[size];
+            if (size <= MAX_RETAINED_SIZE) {
+                input = buffer;
+            }
+            return buffer;
+        }
+
+        byte[] output(int size) {
+            if (size <= output.length) {
+                return output;
+            }
+            byte[] buffer = new byte[size];
+            if (size <= MAX_RETAINED_SIZE) {
+                output = buffer;
+            }
+            return buffer;
+        }
+
+        char[] chars(int size) {
+            if (size <= chars.length) {
+                return chars;
+            }
+            char[] buffer = new char[size];
+            if (size <= MAX_RETAINED_SIZE) {
+                chars = buffer;
+            }
+            return buffer;
+        }
+    }
+
+    private static final class EngineKey {
+
+        private final String key;
+        private final String keyAlgorithm;
+        private final String cipherAlgorithm;
+        private final String cipherStrategy;
+        private final String keys;
+        private final int activeKeyId;
+        private final KeyProvider keyProvider;
+        private final long dataKeyTtlMillis;
+
+        EngineKey(String key, String keyAlgorithm, String cipherAlgorithm, String cipherStrategy, String keys,
+                int activeKeyId) {
+            this(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, activeKeyId, null, 0);
+        }
+
+        EngineKey(String key, String keyAlgorithm, String cipherAlgorithm, String cipherStrategy, String keys,
+                KeyProvider keyProvider, long dataKeyTtlMillis) {
+            this(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, -1, keyProvider, dataKeyTtlMillis);
+        }
+
+        private EngineKey(String key, String keyAlgorithm, String cipherAlgorithm, String cipherStrategy,
+                String keys, int activeKeyId, KeyProvider keyProvider, long dataKeyTtlMillis) {
+            this.key = key;
+            this.keyAlgorithm = keyAlgorithm;
+            this.cipherAlgorithm = cipherAlgorithm;
+            this.cipherStrategy = cipherStrategy;
+            this.keys = keys;
+            this.activeKeyId = activeKeyId;
+            this.keyProvider = keyProvider;
+            this.dataKeyTtlMillis = dataKeyTtlMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof EngineKey)) {
+                return false;
+            }
+            EngineKey that = (EngineKey) o;
+            return key.equals(that.key) && Objects.equals(keyAlgorithm, that.keyAlgorithm)
+                    && Objects.equals(cipherAlgorithm, that.cipherAlgorithm)
+                    && Objects.equals(cipherStrategy, that.cipherStrategy) && Objects.equals(keys, that.keys)
+                    && activeKeyId == that.activeKeyId && keyProvider == that.keyProvider
+                    && dataKeyTtlMillis == that.dataKeyTtlMillis;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, keyAlgorithm, cipherAlgorithm, cipherStrategy, keys, activeKeyId,
+                    System.identityHashCode(keyProvider), dataKeyTtlMillis);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.nio.charset.StandardCharsets;
+
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+/**
+ * 供MyBatis类型处理器使用的全局加解密引擎
+ *
+ * 类型处理器由MyBatis创建, 无法注入配置, 因此由启用透明加解密的拦截器在启动时设置引擎.
+ * 未设置时(未启用透明加解密)类型处理器原样读写.
+ *
+ * @since 1.2.0
+ */
+public final class CryptoEngineHolder {
+
+    private static volatile CryptoEngine engine;
+
+    private CryptoEngineHolder() {
+    }
+
+    /**
+     * 设置加解密引擎
+     *
+     * @param cryptoEngine 加解密引擎, 为null时清除
+     */
+    public static void set(CryptoEngine cryptoEngine) {
+        engine = cryptoEngine;
+    }
+
+    /**
+     * 获取加解密引擎
+     *
+     * @return 加解密引擎, 未启用透明加解密时为null
+     */
+    public static CryptoEngine get() {
+        return engine;
+    }
+
+    /**
+     * 加密并加上标识前缀, 已加密的值和未启用时原样返回
+     *
+     * @param value 明文
+     * @return 带前缀的密文
+     * @throws Exception 加密异常
+     */
+    public static String encrypt(String value) throws Exception {
+        CryptoEngine current = engine;
+        if (current == null || ValueHelper.isEncrypted(value)) {
+            return value;
+        }
+        return current.encryptPrefixed(value);
+    }
+
+    /**
+     * 解密带前缀的密文, 没有前缀的历史明文和未启用时原样返回
+     *
+     * @param value 带前缀的密文
+     * @return 明文
+     * @throws Exception 解密异常
+     */
+    public static String decrypt(String value) throws Exception {
+        CryptoEngine current = engine;
+        if (current == null || !ValueHelper.isEncrypted(value)) {
+            return value;
+        }
+        return current.decryptPrefixed(value);
+    }
+
+    /**
+     * 加密为二进制格式, 字符串格式的密文直接转换, 未启用时返回UTF-8字节
+     *
+     * @param value 明文
+     * @return 二进制格式的加密值
+     * @throws Exception 加密异常
+     */
+    public static byte[] encryptToBinary(String value) throws Exception {
+        CryptoEngine current = engine;
+        if (ValueHelper.isEncrypted(value)) {
+            return ValueHelper.toBinaryEncryptedValue(value);
+        }
+        if (current == null) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+        return current.encryptToBinary(value);
+    }
+
+    /**
+     * 解密二进制格式的加密值, 兼容以UTF-8字节保存的字符串格式密文和历史明文
+     *
+     * @param value 数据库中的字节
+     * @return 明文, 未启用时二进制格式的加密值转换为字符串格式返回
+     * @throws Exception 解密异常
+     */
+    public static String decryptBinary(byte[] value) throws Exception {
+        if (!ValueHelper.isEncrypted(value)) {
+            return decrypt(new String(value, StandardCharsets.UTF_8));
+        }
+        CryptoEngine current = engine;
+        if (current == null) {
+            return ValueHelper.toPrefixedEncryptedValue(value);
+        }
+        return current.decryptBinary(value);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.InvalidKeyException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 按字段或mapper参数选择加密引擎: 秘钥别名解析为秘钥编号, 算法配置解析为加密算法策略
+ *
+ * 未使用信封加密时结果只取决于配置, 每个字段解析一次后缓存, 之后每行只有一次查找.
+ * 信封加密时别名和表对应的数据秘钥可能随时轮换, 每次都向KeyProvider查询.
+ * 加密拦截器和明文数据迁移使用相同的配置, 同一列写入的密文才能互相匹配.
+ *
+ * @since 1.2.0
+ */
+public final class CryptoProfiles {
+
+    private final Map<String, Integer> keyAliases;
+    private final Map<String, String> profiles;
+    private final KeyProvider keyProvider;
+    /**
+     * 按字段或参数缓存的引擎, 字段的元数据全局唯一, 按对象标识比较
+     */
+    private final ConcurrentMap<Object, CryptoEngine> engines = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyAliases 秘钥别名, 格式为"别名:秘钥编号,别名:秘钥编号", 可以为空
+     * @param profiles 算法配置, 格式为"名称:策略名称,名称:策略名称", 可以为空
+     * @param keyProvider 数据秘钥提供者, 未使用信封加密时为null
+     */
+    public CryptoProfiles(String keyAliases, String profiles, KeyProvider keyProvider) {
+        this.keyAliases = Collections.unmodifiableMap(parse(keyAliases, "秘钥别名", Integer::valueOf));
+        this.profiles = Collections.unmodifiableMap(parse(profiles, "算法配置", name -> {
+            //配置错误在启动时直接失败
+            CipherStrategies.forName(name);
+            return name;
+        }));
+        this.keyProvider = keyProvider;
+    }
+
+    /**
+     * 获取加密引擎
+     *
+     * @param owner 字段、参数或列, 作为缓存的键
+     * @param engine 表对应的引擎
+     * @param keyAlias 秘钥别名, 为null时使用engine的秘钥
+     * @param profile 算法配置, 为null时使用engine的加密算法策略
+     * @return 加密引擎
+     * @throws InvalidKeyException 秘钥不可用
+     */
+    public CryptoEngine engineFor(Object owner, CryptoEngine engine, String keyAlias, String profile)
+            throws InvalidKeyException {
+        if (keyAlias == null && profile == null) {
+            return engine;
+        }
+        if (keyProvider != null) {
+            return resolve(engine, keyAlias, profile);
+        }
+        CryptoEngine resolved = engines.get(owner);
+        if (resolved == null) {
+            resolved = resolve(engine, keyAlias, profile);
+            engines.putIfAbsent(owner, resolved);
+        }
+        return resolved;
+    }
+
+    private CryptoEngine resolve(CryptoEngine engine, String keyAlias, String profile) throws InvalidKeyException {
+        CryptoEngine resolved = engine;
+        if (keyAlias != null) {
+            if (keyProvider != null) {
+                resolved = resolved.forKeyName(keyAlias);
+            } else {
+                Integer keyId = keyAliases.get(keyAlias);
+                if (keyId == null) {
+                    throw new InvalidKeyException("未配置秘钥别名: " + keyAlias);
+                }
+                resolved = resolved.withKeyId(keyId);
+            }
+        }
+        if (profile != null) {
+            //未配置的名称直接作为策略名称
+            resolved = resolved.withCipherStrategy(profiles.getOrDefault(profile, profile));
+        }
+        return resolved;
+    }
+
+    private static <V> Map<String, V> parse(String spec, String description,
+            Function<String, V> parser) {
+        Map<String, V> result = new HashMap<>();
+        if (spec == null || spec.trim().isEmpty()) {
+            return result;
+        }
+        for (String entry : spec.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException(description + "格式应为\"名称:值\": " + entry);
+            }
+            String name = entry.substring(0, separator).trim();
+            V value;
+            try {
+                value = parser.apply(entry.substring(separator + 1).trim());
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(description + "格式错误: " + entry, e);
+            }
+            if (result.put(name, value) != null) {
+                throw new IllegalArgumentException(description + "重复: " + name);
+            }
+        }
+        return result;
+    }
+}
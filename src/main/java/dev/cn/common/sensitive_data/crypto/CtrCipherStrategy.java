@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * AES/CTR加密策略: 16字节随机IV, 无填充, 密文与明文等长.
+ * 不提供完整性校验, 需要防篡改时使用{@link GcmCipherStrategy}.
+ *
+ * @since 1.2.0
+ */
+public class CtrCipherStrategy extends IvCipherStrategy {
+
+    public static final String NAME = "CTR";
+
+    private static final int IV_LENGTH = 16;
+
+    public CtrCipherStrategy() {
+        super((byte) 0x03, NAME, "AES/CTR/NoPadding", IV_LENGTH, 0);
+    }
+
+    @Override
+    protected AlgorithmParameterSpec parameterSpec(byte[] iv, int offset, int length) {
+        return new IvParameterSpec(iv, offset, length);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 解开后的数据秘钥缓存
+ *
+ * 每个秘钥在TTL内只解开一次. 缓存未命中或过期时, 只有第一个请求调用{@link KeyProvider#unwrapKey(int)},
+ * 同时到达的其他请求等待同一个结果, 突发的大量查询不会变成同样多的远程调用. 解开失败时不缓存, 下次请求重试.
+ *
+ * @since 1.2.0
+ */
+public class DataKeyCache {
+
+    private final KeyProvider keyProvider;
+    private final String keyAlgorithm;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyProvider 数据秘钥提供者
+     * @param keyAlgorithm 秘钥算法
+     * @param ttlMillis 解开后的秘钥在缓存中保留的毫秒数
+     */
+    public DataKeyCache(KeyProvider keyProvider, String keyAlgorithm, long ttlMillis) {
+        this(keyProvider, keyAlgorithm, ttlMillis, System::nanoTime);
+    }
+
+    DataKeyCache(KeyProvider keyProvider, String keyAlgorithm, long ttlMillis, LongSupplier clock) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("数据秘钥的缓存时间必须大于0");
+        }
+        this.keyProvider = keyProvider;
+        this.keyAlgorithm = keyAlgorithm;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * 获取数据秘钥
+     *
+     * @param keyId 数据秘钥编号
+     * @return 数据秘钥
+     * @throws InvalidKeyException 秘钥不存在或解开失败
+     */
+    public Key get(int keyId) throws InvalidKeyException {
+        for (;;) {
+            Entry entry = entries.get(keyId);
+            long now = clock.getAsLong();
+            if (entry != null && !entry.isExpired(now, ttlNanos)) {
+                return entry.await(keyId);
+            }
+            Entry loading = new Entry(now);
+            boolean owner = entry == null ? entries.putIfAbsent(keyId, loading) == null
+                    : entries.replace(keyId, entry, loading);
+            if (!owner) {
+                //其他线程已经开始加载
+                continue;
+            }
+            load(keyId, loading);
+            return loading.await(keyId);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private void load(int keyId, Entry entry) {
+        byte[] bytes = null;
+        try {
+            bytes = keyProvider.unwrapKey(keyId);
+            entry.future.complete(new SecretKeySpec(bytes, keyAlgorithm));
+        } catch (GeneralSecurityException | RuntimeException e) {
+            entries.remove(keyId, entry);
+            entry.future.completeExceptionally(e);
+        } finally {
+            if (bytes != null) {
+                Arrays.fill(bytes, (byte) 0);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final long loadedAt;
+        private final CompletableFuture<Key> future = new CompletableFuture<>();
+
+        Entry(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isExpired(long now, long ttlNanos) {
+            return now - loadedAt >= ttlNanos;
+        }
+
+        Key await(int keyId) throws InvalidKeyException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待数据秘钥时被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof InvalidKeyException) {
+                    throw (InvalidKeyException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                InvalidKeyException exception = new InvalidKeyException("无法获取编号为" + keyId + "的数据秘钥");
+                exception.initCause(cause);
+                throw exception;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * 带首部的AES/ECB/PKCS5Padding加密策略, 确定性加密, 可以用于等值查询.
+ * 密文与不带首部的历史格式相同, 只是多了算法标识.
+ *
+ * @since 1.2.0
+ */
+public class EcbCipherStrategy implements CipherStrategy {
+
+    public static final String NAME = "ECB";
+
+    private static final int BLOCK_SIZE = 16;
+
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    @Override
+    public byte getId() {
+        return 0x01;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return true;
+    }
+
+    @Override
+    public int getMaxOutputLength(int inputLength) {
+        return (inputLength / BLOCK_SIZE + 1) * BLOCK_SIZE;
+    }
+
+    @Override
+    public int encrypt(Key key, byte[] input, int inputLength, byte[] output, int outputOffset)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
+            BadPaddingException {
+        return states.get().doFinal(Cipher.ENCRYPT_MODE, key, input, 0, inputLength, output, outputOffset);
+    }
+
+    @Override
+    public int decrypt(Key key, byte[] input, int inputOffset, int inputLength, byte[] output)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
+            BadPaddingException {
+        return states.get().doFinal(Cipher.DECRYPT_MODE, key, input, inputOffset, inputLength, output, 0);
+    }
+
+    private static final class State {
+
+        /**
+         * 每个线程每个方向最多保留的密码器数量
+         */
+        private static final int MAX_CIPHERS = 16;
+
+        /**
+         * 按秘钥缓存的密码器. ECB没有IV, 秘钥和方向不变时不需要重新初始化,
+         * 不同字段使用不同秘钥时交替加解密也不会反复初始化
+         */
+        private final Map<Key, Cipher> encryptCiphers = new IdentityHashMap<>();
+        private final Map<Key, Cipher> decryptCiphers = new IdentityHashMap<>();
+
+        int doFinal(int mode, Key key, byte[] input, int inputOffset, int inputLength, byte[] output,
+                int outputOffset) throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException,
+                IllegalBlockSizeException, BadPaddingException {
+            Map<Key, Cipher> ciphers = mode == Cipher.ENCRYPT_MODE ? encryptCiphers : decryptCiphers;
+            Cipher cipher = ciphers.get(key);
+            if (cipher == null) {
+                if (ciphers.size() >= MAX_CIPHERS) {
+                    //轮换后的旧秘钥等不再使用的密码器
+                    ciphers.clear();
+                }
+                cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+                cipher.init(mode, key);
+                ciphers.put(key, cipher);
+            }
+            try {
+                return cipher.doFinal(input, inputOffset, inputLength, output, outputOffset);
+            } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+                // 出错后密码器状态不确定, 丢弃后下次重新创建
+                ciphers.remove(key);
+                throw e;
+            } catch (ShortBufferException e) {
+                ciphers.remove(key);
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
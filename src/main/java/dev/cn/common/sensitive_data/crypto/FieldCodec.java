@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+/**
+ * 敏感字段值与加密输入字节之间的编解码
+ *
+ * 加密时直接把字段值编码到加解密引擎在线程内复用的缓冲区中, 解密时直接从明文字节解码, 中间不经过String.
+ * 数字和日期编码为与其字符串形式相同的ASCII字节, 因此与以字符串加密的数据(如明文迁移得到的密文)互相兼容.
+ * 内置String、byte[]、Long、Integer和LocalDate, 可以通过ServiceLoader注册其他类型或替换内置类型
+ * (META-INF/services/dev.cn.common.sensitive_data.crypto.FieldCodec). 实现必须是线程安全的.
+ *
+ * @param <T> 字段类型
+ * @since 1.2.0
+ */
+public interface FieldCodec<T> {
+
+    /**
+     * 字段类型
+     *
+     * @return 字段类型
+     */
+    Class<T> getType();
+
+    /**
+     * 编码后的最大字节数
+     *
+     * @param value 字段值
+     * @return 最大字节数
+     */
+    int getMaxLength(T value);
+
+    /**
+     * 编码
+     *
+     * @param value 字段值
+     * @param buffer 输出缓冲区, 长度不小于{@link #getMaxLength(Object)}
+     * @return 写入的字节数
+     */
+    int encode(T value, byte[] buffer);
+
+    /**
+     * 解码
+     *
+     * @param buffer 明文字节, 调用方在解码后会抹掉其内容
+     * @param offset 起始位置
+     * @param length 字节数
+     * @return 字段值
+     */
+    T decode(byte[] buffer, int offset, int length);
+
+    /**
+     * 解析数据库中未加密的历史明文
+     *
+     * @param plaintext 历史明文
+     * @return 字段值
+     */
+    T parse(String plaintext);
+}
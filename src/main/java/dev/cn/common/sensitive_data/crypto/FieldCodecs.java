@@ -0,0 +1,294 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * 按字段类型查找{@link FieldCodec}的注册表, 包含内置编解码器和通过ServiceLoader注册的编解码器
+ *
+ * 通过ServiceLoader注册的编解码器替换同一类型的内置编解码器; 同一类型注册了多个时使用第一个,
+ * 其余的以及无法加载的编解码器记录警告后忽略, 不影响其他类型.
+ *
+ * @since 1.2.0
+ */
+public final class FieldCodecs {
+
+    /**
+     * UTF-8字符串
+     */
+    public static final FieldCodec<String> STRING = new StringCodec();
+    /**
+     * 原始字节, 不做任何转换
+     */
+    public static final FieldCodec<byte[]> BYTES = new BytesCodec();
+    /**
+     * 十进制ASCII数字
+     */
+    public static final FieldCodec<Long> LONG = new LongCodec();
+    /**
+     * 十进制ASCII数字
+     */
+    public static final FieldCodec<Integer> INTEGER = new IntegerCodec();
+    /**
+     * ISO-8601日期(yyyy-MM-dd)
+     */
+    public static final FieldCodec<LocalDate> LOCAL_DATE = new LocalDateCodec();
+
+    private static final Log LOG = LogFactory.getLog(FieldCodecs.class);
+
+    private static final Map<Class<?>, FieldCodec<?>> BY_TYPE = new ConcurrentHashMap<>();
+
+    static {
+        BY_TYPE.put(String.class, STRING);
+        BY_TYPE.put(byte[].class, BYTES);
+        BY_TYPE.put(Long.class, LONG);
+        BY_TYPE.put(Integer.class, INTEGER);
+        BY_TYPE.put(LocalDate.class, LOCAL_DATE);
+        loadServices();
+    }
+
+    private FieldCodecs() {
+    }
+
+    /**
+     * 按字段类型查找, 基本类型按其包装类型查找
+     *
+     * @param type 字段类型
+     * @param <T> 字段类型
+     * @return 编解码器, 不支持的类型返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> FieldCodec<T> forType(Class<T> type) {
+        if (type == long.class) {
+            return (FieldCodec<T>) BY_TYPE.get(Long.class);
+        }
+        if (type == int.class) {
+            return (FieldCodec<T>) BY_TYPE.get(Integer.class);
+        }
+        return (FieldCodec<T>) BY_TYPE.get(type);
+    }
+
+    private static void loadServices() {
+        Set<Class<?>> registered = new HashSet<>();
+        Iterator<FieldCodec> codecs = ServiceLoader.load(FieldCodec.class, FieldCodecs.class.getClassLoader())
+                .iterator();
+        while (true) {
+            FieldCodec<?> codec;
+            try {
+                if (!codecs.hasNext()) {
+                    break;
+                }
+                codec = codecs.next();
+            } catch (ServiceConfigurationError e) {
+                //一个编解码器无法加载时不影响内置和其他编解码器
+                LOG.warn("无法加载字段编解码器, 已忽略: " + e.getMessage());
+                continue;
+            }
+            Class<?> type = codec.getType();
+            if (!registered.add(type)) {
+                LOG.warn("字段类型" + type.getName() + "已注册编解码器" + BY_TYPE.get(type).getClass().getName()
+                        + ", 忽略" + codec.getClass().getName());
+                continue;
+            }
+            BY_TYPE.put(type, codec);
+        }
+    }
+
+    private static final class StringCodec implements FieldCodec<String> {
+
+        @Override
+        public Class<String> getType() {
+            return String.class;
+        }
+
+        @Override
+        public int getMaxLength(String value) {
+            return Codecs.utf8MaxLength(value.length());
+        }
+
+        @Override
+        public int encode(String value, byte[] buffer) {
+            return Codecs.encodeUtf8(value, buffer);
+        }
+
+        @Override
+        public String decode(byte[] buffer, int offset, int length) {
+            return new String(buffer, offset, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String parse(String plaintext) {
+            return plaintext;
+        }
+    }
+
+    private static final class BytesCodec implements FieldCodec<byte[]> {
+
+        @Override
+        public Class<byte[]> getType() {
+            return byte[].class;
+        }
+
+        @Override
+        public int getMaxLength(byte[] value) {
+            return value.length;
+        }
+
+        @Override
+        public int encode(byte[] value, byte[] buffer) {
+            System.arraycopy(value, 0, buffer, 0, value.length);
+            return value.length;
+        }
+
+        @Override
+        public byte[] decode(byte[] buffer, int offset, int length) {
+            byte[] value = new byte[length];
+            System.arraycopy(buffer, offset, value, 0, length);
+            return value;
+        }
+
+        @Override
+        public byte[] parse(String plaintext) {
+            return plaintext.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class LongCodec implements FieldCodec<Long> {
+
+        @Override
+        public Class<Long> getType() {
+            return Long.class;
+        }
+
+        @Override
+        public int getMaxLength(Long value) {
+            return Codecs.MAX_LONG_LENGTH;
+        }
+
+        @Override
+        public int encode(Long value, byte[] buffer) {
+            return Codecs.encodeLong(value, buffer, 0);
+        }
+
+        @Override
+        public Long decode(byte[] buffer, int offset, int length) {
+            return Codecs.decodeLong(buffer, offset, length);
+        }
+
+        @Override
+        public Long parse(String plaintext) {
+            return Long.valueOf(plaintext.trim());
+        }
+    }
+
+    private static final class IntegerCodec implements FieldCodec<Integer> {
+
+        @Override
+        public Class<Integer> getType() {
+            return Integer.class;
+        }
+
+        @Override
+        public int getMaxLength(Integer value) {
+            return Codecs.MAX_LONG_LENGTH;
+        }
+
+        @Override
+        public int encode(Integer value, byte[] buffer) {
+            return Codecs.encodeLong(value, buffer, 0);
+        }
+
+        @Override
+        public Integer decode(byte[] buffer, int offset, int length) {
+            long value = Codecs.decodeLong(buffer, offset, length);
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("超出int范围: " + value);
+            }
+            return (int) value;
+        }
+
+        @Override
+        public Integer parse(String plaintext) {
+            return Integer.valueOf(plaintext.trim());
+        }
+    }
+
+    private static final class LocalDateCodec implements FieldCodec<LocalDate> {
+
+        private static final int ISO_LENGTH = 10;
+
+        @Override
+        public Class<LocalDate> getType() {
+            return LocalDate.class;
+        }
+
+        @Override
+        public int getMaxLength(LocalDate value) {
+            //超出0000~9999年时使用带符号的扩展格式
+            return ISO_LENGTH + 8;
+        }
+
+        @Override
+        public int encode(LocalDate value, byte[] buffer) {
+            int year = value.getYear();
+            if (year < 0 || year > 9999) {
+                byte[] bytes = value.toString().getBytes(StandardCharsets.US_ASCII);
+                System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+                return bytes.length;
+            }
+            Codecs.encodeDigits(year, buffer, 0, 4);
+            buffer[4] = '-';
+            Codecs.encodeDigits(value.getMonthValue(), buffer, 5, 2);
+            buffer[7] = '-';
+            Codecs.encodeDigits(value.getDayOfMonth(), buffer, 8, 2);
+            return ISO_LENGTH;
+        }
+
+        @Override
+        public LocalDate decode(byte[] buffer, int offset, int length) {
+            if (length == ISO_LENGTH && buffer[offset + 4] == '-' && buffer[offset + 7] == '-') {
+                return LocalDate.of((int) Codecs.decodeLong(buffer, offset, 4),
+                        (int) Codecs.decodeLong(buffer, offset + 5, 2), (int) Codecs.decodeLong(buffer, offset + 8, 2));
+            }
+            return LocalDate.parse(new String(buffer, offset, length, StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public LocalDate parse(String plaintext) {
+            return LocalDate.parse(plaintext.trim());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * AES/GCM加密策略: 12字节随机IV, 128位认证标签, 篡改过的密文解密时抛出AEADBadTagException
+ *
+ * @since 1.2.0
+ */
+public class GcmCipherStrategy extends IvCipherStrategy {
+
+    public static final String NAME = "GCM";
+
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+
+    public GcmCipherStrategy() {
+        super((byte) 0x02, NAME, "AES/GCM/NoPadding", IV_LENGTH, TAG_LENGTH);
+    }
+
+    @Override
+    protected AlgorithmParameterSpec parameterSpec(byte[] iv, int offset, int length) {
+        return new GCMParameterSpec(TAG_LENGTH * 8, iv, offset, length);
+    }
+
+    @Override
+    protected int overheadOnDecrypt() {
+        return TAG_LENGTH;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.AlgorithmParameterSpec;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+
+/**
+ * 使用随机IV的加密算法策略
+ *
+ * 加密结果为IV加上密文, 每次加密生成新的IV. 密码器按线程缓存, 只在每次调用时用新的IV重新初始化,
+ * 不重复执行Cipher.getInstance. AES-NI等硬件加速由JCE内置实现自动使用.
+ *
+ * @since 1.2.0
+ */
+public abstract class IvCipherStrategy implements CipherStrategy {
+
+    private final byte id;
+    private final String name;
+    private final String transformation;
+    private final int ivLength;
+    private final int overhead;
+
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    /**
+     * @param id 算法标识
+     * @param name 策略名称
+     * @param transformation JCE加密算法, 如AES/GCM/NoPadding
+     * @param ivLength IV长度
+     * @param overhead 除IV外密文比明文多出的最大长度(认证标签、填充)
+     */
+    protected IvCipherStrategy(byte id, String name, String transformation, int ivLength, int overhead) {
+        this.id = id;
+        this.name = name;
+        this.transformation = transformation;
+        this.ivLength = ivLength;
+        this.overhead = overhead;
+    }
+
+    /**
+     * 创建密码器参数
+     *
+     * @param iv 包含IV的数组
+     * @param offset IV起始位置
+     * @param length IV长度
+     * @return 密码器参数
+     */
+    protected abstract AlgorithmParameterSpec parameterSpec(byte[] iv, int offset, int length);
+
+    @Override
+    public byte getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return false;
+    }
+
+    @Override
+    public int getMaxOutputLength(int inputLength) {
+        return ivLength + inputLength + overhead;
+    }
+
+    @Override
+    public int encrypt(Key key, byte[] input, int inputLength, byte[] output, int outputOffset)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
+            BadPaddingException {
+        State state = states.get();
+        IvGenerator.nextBytes(output, outputOffset, ivLength, state.iv);
+        Cipher cipher = state.cipher(Cipher.ENCRYPT_MODE, key, parameterSpec(output, outputOffset, ivLength));
+        return ivLength + state.doFinal(cipher, input, 0, inputLength, output, outputOffset + ivLength);
+    }
+
+    @Override
+    public int decrypt(Key key, byte[] input, int inputOffset, int inputLength, byte[] output)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
+            BadPaddingException {
+        if (inputLength < ivLength + overheadOnDecrypt()) {
+            throw new IllegalBlockSizeException("密文长度不正确: " + inputLength);
+        }
+        State state = states.get();
+        Cipher cipher = state.cipher(Cipher.DECRYPT_MODE, key, parameterSpec(input, inputOffset, ivLength));
+        return state.doFinal(cipher, input, inputOffset + ivLength, inputLength - ivLength, output, 0);
+    }
+
+    /**
+     * 解密时密文的最小长度(不含IV), 默认为0
+     *
+     * @return 最小长度
+     */
+    protected int overheadOnDecrypt() {
+        return 0;
+    }
+
+    private final class State {
+
+        /**
+         * 生成IV的临时缓冲区, 长度不小于IV
+         */
+        private final byte[] iv = new byte[Math.max(16, ivLength)];
+        private Cipher cipher;
+
+        Cipher cipher(int mode, Key key, AlgorithmParameterSpec spec)
+                throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException {
+            if (cipher == null) {
+                cipher = Cipher.getInstance(transformation);
+            }
+            try {
+                cipher.init(mode, key, spec);
+            } catch (InvalidAlgorithmParameterException e) {
+                //IV长度由策略自身保证, 不会出现
+                cipher = null;
+                throw new IllegalStateException(e);
+            }
+            return cipher;
+        }
+
+        int doFinal(Cipher current, byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset)
+                throws IllegalBlockSizeException, BadPaddingException {
+            try {
+                return current.doFinal(input, inputOffset, inputLength, output, outputOffset);
+            } catch (IllegalBlockSizeException | BadPaddingException | RuntimeException e) {
+                // 出错后密码器状态不确定, 丢弃后下次重新创建
+                cipher = null;
+                throw e;
+            } catch (ShortBufferException e) {
+                //输出缓冲区按getMaxOutputLength分配, 不会出现
+                cipher = null;
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * IV生成器
+ *
+ * 每个线程使用独立的SecureRandom实例, 避免所有线程争用同一个实例的锁
+ * (Linux上默认的NativePRNG在实例间共享全局锁, 因此优先使用SHA1PRNG).
+ * 新线程的实例从共享的SecureRandom取种子, 不使用可能阻塞的{@link SecureRandom#getSeed(int)}.
+ *
+ * @since 1.2.0
+ */
+final class IvGenerator {
+
+    private static final int SEED_LENGTH = 32;
+    /**
+     * 只在创建线程的实例时取种子, 非阻塞的系统熵源
+     */
+    private static final SecureRandom SEEDER = new SecureRandom();
+    private static final ThreadLocal<SecureRandom> RANDOMS = ThreadLocal.withInitial(IvGenerator::newRandom);
+
+    private IvGenerator() {
+    }
+
+    /**
+     * 生成随机字节写入dst
+     */
+    static void nextBytes(byte[] dst, int offset, int length, byte[] scratch) {
+        RANDOMS.get().nextBytes(scratch);
+        System.arraycopy(scratch, 0, dst, offset, length);
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+            //首次使用前播种, 避免SHA1PRNG自行播种时读取阻塞的熵源
+            byte[] seed = new byte[SEED_LENGTH];
+            SEEDER.nextBytes(seed);
+            random.setSeed(seed);
+            return random;
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
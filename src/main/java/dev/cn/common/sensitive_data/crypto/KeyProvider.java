@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * 数据秘钥提供者(信封加密)
+ *
+ * 数据由数据秘钥加密, 数据秘钥以被主秘钥加密(包装)后的形式保存, 使用时由提供者解开; 主秘钥不离开提供者,
+ * 如本地秘钥库或远程KMS. 每个数据秘钥有1~255的编号, 写入密文首部, 解密时按编号取回对应的数据秘钥.
+ * 解开的数据秘钥由{@link CryptoEngine}按TTL缓存, 并发请求同一个秘钥时只解开一次.
+ * 实现必须是线程安全的.
+ *
+ * @since 1.2.0
+ */
+public interface KeyProvider {
+
+    /**
+     * 没有对应的表时使用的秘钥名称
+     */
+    String DEFAULT_KEY_NAME = "default";
+
+    /**
+     * 获取加密时使用的数据秘钥编号, 每次加密实体前都会调用, 应当只查询本地配置
+     *
+     * @param keyName 秘钥名称, 通常为表名, 没有对应的表时为{@link #DEFAULT_KEY_NAME}
+     * @return 数据秘钥编号, 1~255
+     * @throws GeneralSecurityException 没有可用的数据秘钥
+     */
+    int getActiveKeyId(String keyName) throws GeneralSecurityException;
+
+    /**
+     * 解开数据秘钥, 可以是远程调用
+     *
+     * @param keyId 数据秘钥编号
+     * @return 数据秘钥的原始字节, 调用方用完后会抹掉
+     * @throws GeneralSecurityException 秘钥不存在或解开失败
+     */
+    byte[] unwrapKey(int keyId) throws GeneralSecurityException;
+}
@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * 基于本地秘钥库的数据秘钥提供者, 适用于测试和没有KMS的环境
+ *
+ * 主秘钥保存在秘钥库(JCEKS或PKCS12)中, 数据秘钥以AESWrap(RFC 3394)包装后写在配置中:
+ * <pre>
+ * # 编号为1、2的数据秘钥, 内容为{@link #wrapKey(Key, byte[])}的结果
+ * data-key.1=...
+ * data-key.2=...
+ * # 各表加密使用的数据秘钥编号, 未配置的表使用default
+ * active.default=1
+ * active.t_user=2
+ * </pre>
+ *
+ * @since 1.2.0
+ */
+public class LocalKeyProvider implements KeyProvider {
+
+    private static final String WRAP_ALGORITHM = "AESWrap";
+    private static final String DATA_KEY_PREFIX = "data-key.";
+    private static final String ACTIVE_PREFIX = "active.";
+
+    private final Key masterKey;
+    private final Map<Integer, byte[]> wrappedKeys = new HashMap<>();
+    private final Map<String, Integer> activeKeyIds = new HashMap<>();
+
+    /**
+     * @param masterKey 主秘钥
+     * @param properties 包装后的数据秘钥和各表使用的秘钥编号
+     */
+    public LocalKeyProvider(Key masterKey, Properties properties) {
+        this.masterKey = masterKey;
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name).trim();
+            if (name.startsWith(DATA_KEY_PREFIX)) {
+                wrappedKeys.put(parseKeyId(name.substring(DATA_KEY_PREFIX.length())),
+                        Base64.getDecoder().decode(value));
+            } else if (name.startsWith(ACTIVE_PREFIX)) {
+                activeKeyIds.put(name.substring(ACTIVE_PREFIX.length()), parseKeyId(value));
+            }
+        }
+        for (Map.Entry<String, Integer> entry : activeKeyIds.entrySet()) {
+            if (!wrappedKeys.containsKey(entry.getValue())) {
+                throw new IllegalArgumentException(entry.getKey() + "使用的数据秘钥" + entry.getValue() + "未配置");
+            }
+        }
+    }
+
+    /**
+     * 从文件加载
+     *
+     * @param keyStorePath 秘钥库文件
+     * @param keyStoreType 秘钥库类型, 如JCEKS、PKCS12
+     * @param password 秘钥库和主秘钥的密码
+     * @param masterKeyAlias 主秘钥的别名
+     * @param dataKeysPath 数据秘钥配置文件
+     * @return 数据秘钥提供者
+     * @throws IOException 读取文件失败
+     * @throws GeneralSecurityException 秘钥库格式错误或主秘钥不存在
+     */
+    public static LocalKeyProvider load(Path keyStorePath, String keyStoreType, char[] password,
+            String masterKeyAlias, Path dataKeysPath) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(keyStoreType);
+        try (InputStream in = Files.newInputStream(keyStorePath)) {
+            keyStore.load(in, password);
+        }
+        Key masterKey = keyStore.getKey(masterKeyAlias, password);
+        if (masterKey == null) {
+            throw new InvalidKeyException("秘钥库中没有别名为" + masterKeyAlias + "的主秘钥");
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(dataKeysPath, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return new LocalKeyProvider(masterKey, properties);
+    }
+
+    /**
+     * 用主秘钥包装数据秘钥, 用于生成配置
+     *
+     * @param masterKey 主秘钥
+     * @param dataKey 数据秘钥的原始字节, 长度为8的倍数
+     * @return Base64编码的包装结果
+     * @throws GeneralSecurityException 包装失败
+     */
+    public static String wrapKey(Key masterKey, byte[] dataKey) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+        cipher.init(Cipher.WRAP_MODE, masterKey);
+        return Base64.getEncoder().encodeToString(cipher.wrap(new SecretKeySpec(dataKey, "AES")));
+    }
+
+    @Override
+    public int getActiveKeyId(String keyName) throws GeneralSecurityException {
+        Integer keyId = activeKeyIds.get(keyName);
+        if (keyId == null) {
+            keyId = activeKeyIds.get(DEFAULT_KEY_NAME);
+        }
+        if (keyId == null) {
+            throw new InvalidKeyException(keyName + "没有可用的数据秘钥, 且未配置" + ACTIVE_PREFIX + DEFAULT_KEY_NAME);
+        }
+        return keyId;
+    }
+
+    @Override
+    public byte[] unwrapKey(int keyId) throws GeneralSecurityException {
+        byte[] wrappedKey = wrappedKeys.get(keyId);
+        if (wrappedKey == null) {
+            throw new InvalidKeyException("未配置编号为" + keyId + "的数据秘钥");
+        }
+        Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+        cipher.init(Cipher.UNWRAP_MODE, masterKey);
+        return cipher.unwrap(wrappedKey, "AES", Cipher.SECRET_KEY).getEncoded();
+    }
+
+    private static int parseKeyId(String value) {
+        int keyId;
+        try {
+            keyId = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            keyId = -1;
+        }
+        if (keyId < 1 || keyId > 255) {
+            throw new IllegalArgumentException("数据秘钥编号必须在1~255之间: " + value);
+        }
+        return keyId;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.handler;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+import dev.cn.common.sensitive_data.crypto.FieldCodec;
+import dev.cn.common.sensitive_data.crypto.FieldCodecs;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+/**
+ * 以二进制格式加密保存byte[]的类型处理器, 用于VARBINARY/BLOB列
+ *
+ * 原始字节直接作为加密输入, 不经过Base64和String. 二进制格式的首部(魔数、版本号和校验值)不完全匹配的值
+ * 视为明文: 写入时加密, 读取时作为历史明文原样返回.
+ * 用法与{@link SensitiveStringTypeHandler}相同.
+ *
+ * @since 1.2.0
+ */
+public class SensitiveBytesTypeHandler extends BaseTypeHandler<byte[]> {
+
+    private final FieldCodec<byte[]> codec = FieldCodecs.forType(byte[].class);
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, byte[] parameter, JdbcType jdbcType)
+            throws SQLException {
+        CryptoEngine engine = CryptoEngineHolder.get();
+        if (engine == null || ValueHelper.isEncrypted(parameter)) {
+            ps.setBytes(i, parameter);
+            return;
+        }
+        try {
+            ps.setBytes(i, engine.encryptToBinary(parameter, codec));
+        } catch (Exception e) {
+            throw new SQLException("加密失败", e);
+        }
+    }
+
+    @Override
+    public byte[] getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return decrypt(rs.getBytes(columnName));
+    }
+
+    @Override
+    public byte[] getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return decrypt(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public byte[] getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return decrypt(cs.getBytes(columnIndex));
+    }
+
+    private byte[] decrypt(byte[] value) throws SQLException {
+        CryptoEngine engine = CryptoEngineHolder.get();
+        if (value == null || engine == null || !ValueHelper.isEncrypted(value)) {
+            return value;
+        }
+        try {
+            return engine.decryptBinary(value, codec);
+        } catch (Exception e) {
+            throw new SQLException("解密失败", e);
+        }
+    }
+}
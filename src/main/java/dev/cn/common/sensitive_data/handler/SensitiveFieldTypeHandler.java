@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.handler;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+import dev.cn.common.sensitive_data.crypto.FieldCodec;
+import dev.cn.common.sensitive_data.crypto.FieldCodecs;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+/**
+ * 非字符串类型的敏感字段与字符串列之间的转换, 按{@link FieldCodec}直接在字段值和加密输入字节之间编解码
+ *
+ * 密文与{@link SensitiveStringTypeHandler}的格式相同, 没有加密前缀的历史明文按字段类型解析.
+ * 未启用透明加解密时按字符串形式原样读写.
+ * 编解码器按字段类型从{@link FieldCodecs#forType(Class)}查找, 包括通过ServiceLoader注册的类型;
+ * MyBatis会把字段类型传给构造方法, 因此也可以直接在字段上指定本类.
+ *
+ * @param <T> 字段类型
+ * @since 1.2.0
+ */
+public class SensitiveFieldTypeHandler<T> extends BaseTypeHandler<T> {
+
+    private final FieldCodec<T> codec;
+
+    protected SensitiveFieldTypeHandler(FieldCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * @param type 字段类型
+     * @throws IllegalArgumentException 该类型没有注册编解码器
+     */
+    public SensitiveFieldTypeHandler(Class<T> type) {
+        this.codec = FieldCodecs.forType(type);
+        if (codec == null) {
+            throw new IllegalArgumentException("没有注册字段类型的编解码器: " + type.getName());
+        }
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, T parameter, JdbcType jdbcType)
+            throws SQLException {
+        CryptoEngine engine = CryptoEngineHolder.get();
+        if (engine == null) {
+            ps.setString(i, parameter.toString());
+            return;
+        }
+        try {
+            ps.setString(i, engine.encryptPrefixed(parameter, codec));
+        } catch (Exception e) {
+            throw new SQLException("加密失败", e);
+        }
+    }
+
+    @Override
+    public T getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return decrypt(rs.getString(columnName));
+    }
+
+    @Override
+    public T getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return decrypt(rs.getString(columnIndex));
+    }
+
+    @Override
+    public T getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return decrypt(cs.getString(columnIndex));
+    }
+
+    private T decrypt(String value) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        try {
+            if (!ValueHelper.isEncrypted(value)) {
+                return codec.parse(value);
+            }
+            CryptoEngine engine = CryptoEngineHolder.get();
+            if (engine == null) {
+                throw new IllegalStateException("未启用透明加解密, 无法解密" + codec.getType().getSimpleName() + "类型的密文");
+            }
+            return engine.decryptPrefixed(value, codec);
+        } catch (Exception e) {
+            throw new SQLException("解密失败", e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.handler;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+
+/**
+ * 在读写数据库时直接加解密的字符串类型处理器
+ *
+ * 写入时加密后直接设置到PreparedStatement, 读取时在取出列值时解密, 调用方的对象始终保持明文,
+ * 也不需要拦截器再遍历对象. 需要在字段上显式指定, 例如MyBatis-Plus的
+ * {@code @TableField(typeHandler = SensitiveStringTypeHandler.class)}(需开启autoResultMap),
+ * 或XML中的{@code #{tel,typeHandler=...}}和resultMap的typeHandler属性.
+ * 注意不要通过type-handlers-package注册此包, 否则所有String都会被加密.
+ *
+ * @since 1.2.0
+ */
+public class SensitiveStringTypeHandler extends BaseTypeHandler<String> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType)
+            throws SQLException {
+        try {
+            ps.setString(i, CryptoEngineHolder.encrypt(parameter));
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("加密失败", e);
+        }
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return decrypt(rs.getString(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return decrypt(rs.getString(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return decrypt(cs.getString(columnIndex));
+    }
+
+    private static String decrypt(String value) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return CryptoEngineHolder.decrypt(value);
+        } catch (Exception e) {
+            throw new SQLException("解密失败", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.metrics;
+
+/**
+ * 加解密指标监听器
+ *
+ * 拦截器在每条语句(流式查询为每一行)加解密完成后调用, 只在实际处理了敏感字段时调用.
+ * 在Spring容器中声明一个实现此接口的Bean即可生效, 内置实现见{@link JmxCryptoMetrics}.
+ * 实现需要是线程安全的, 且应尽量轻量, 因为它运行在查询的调用线程上.
+ *
+ * @since 1.2.0
+ */
+public interface CryptoMetrics {
+
+    /**
+     * 加解密操作
+     */
+    enum Operation {
+        ENCRYPT, DECRYPT
+    }
+
+    /**
+     * 记录一次加解密
+     *
+     * @param operation 操作
+     * @param statementId MappedStatement的id, 无法确定时为{@value #UNKNOWN_STATEMENT}
+     * @param fieldCount 处理的字段数
+     * @param bytes 处理的密文字节数
+     * @param nanos 耗时(纳秒)
+     */
+    void record(Operation operation, String statementId, int fieldCount, long bytes, long nanos);
+
+    /**
+     * 无法确定MappedStatement时使用的id
+     */
+    String UNKNOWN_STATEMENT = "unknown";
+}
@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * 按MappedStatement统计加解密指标并通过JMX暴露的内置实现
+ *
+ * 每个(操作, MappedStatement)对应一个MBean, ObjectName形如
+ * {@code dev.cn.common.sensitive_data:type=CryptoMetrics,operation=DECRYPT,statement="com.demo.UserMapper.selectById"}.
+ * 语句数超过上限后, 新的语句合并统计到statement="_other"中, 避免动态SQL导致MBean无限增长.
+ *
+ * @since 1.2.0
+ */
+public class JmxCryptoMetrics implements CryptoMetrics, DisposableBean {
+
+    /**
+     * MBean的域名
+     */
+    public static final String DOMAIN = "dev.cn.common.sensitive_data";
+
+    /**
+     * 超过上限后合并统计使用的语句id
+     */
+    public static final String OTHER_STATEMENTS = "_other";
+
+    private static final int DEFAULT_MAX_STATEMENTS = 1024;
+
+    private final MBeanServer mBeanServer;
+    private final int maxStatements;
+    private final ConcurrentMap<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ObjectName> registeredNames = new ConcurrentHashMap<>();
+
+    public JmxCryptoMetrics() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * @param mBeanServer 注册MBean的服务器, 为null时不注册, 只在内存中统计
+     * @param maxStatements 单独统计的语句数上限
+     */
+    public JmxCryptoMetrics(MBeanServer mBeanServer, int maxStatements) {
+        this.mBeanServer = mBeanServer;
+        this.maxStatements = Math.max(1, maxStatements);
+    }
+
+    @Override
+    public void record(Operation operation, String statementId, int fieldCount, long bytes, long nanos) {
+        String key = operation.name() + ':' + statementId;
+        StatementMetrics metrics = statements.get(key);
+        if (metrics == null) {
+            if (statements.size() >= maxStatements) {
+                key = operation.name() + ':' + OTHER_STATEMENTS;
+                statementId = OTHER_STATEMENTS;
+            }
+            String id = statementId;
+            metrics = statements.computeIfAbsent(key, k -> register(new StatementMetrics(operation, id)));
+        }
+        metrics.record(fieldCount, bytes, nanos);
+    }
+
+    /**
+     * 获取所有语句的指标
+     *
+     * @return 指标快照
+     */
+    public Collection<StatementMetrics> getStatementMetrics() {
+        return new ArrayList<>(statements.values());
+    }
+
+    @Override
+    public void destroy() {
+        if (mBeanServer != null) {
+            for (ObjectName name : registeredNames.values()) {
+                try {
+                    mBeanServer.unregisterMBean(name);
+                } catch (JMException e) {
+                    //已被注销时忽略
+                }
+            }
+        }
+        registeredNames.clear();
+        statements.clear();
+    }
+
+    private StatementMetrics register(StatementMetrics metrics) {
+        if (mBeanServer == null) {
+            return metrics;
+        }
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=CryptoMetrics,operation=" + metrics.getOperation()
+                    + ",statement=" + ObjectName.quote(metrics.getStatementId()));
+            if (!mBeanServer.isRegistered(name)) {
+                mBeanServer.registerMBean(metrics, name);
+                registeredNames.put(metrics.getOperation() + ':' + metrics.getStatementId(), name);
+            }
+        } catch (JMException e) {
+            //注册失败时仍然在内存中统计
+        }
+        return metrics;
+    }
+}
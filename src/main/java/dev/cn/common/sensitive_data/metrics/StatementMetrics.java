@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个MappedStatement的加解密指标
+ *
+ * @since 1.2.0
+ */
+public class StatementMetrics implements StatementMetricsMBean {
+
+    private final CryptoMetrics.Operation operation;
+    private final String statementId;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder fieldCount = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public StatementMetrics(CryptoMetrics.Operation operation, String statementId) {
+        this.operation = operation;
+        this.statementId = statementId;
+    }
+
+    /**
+     * 记录一次加解密
+     *
+     * @param fields 字段数
+     * @param byteCount 字节数
+     * @param nanos 耗时(纳秒)
+     */
+    public void record(int fields, long byteCount, long nanos) {
+        count.increment();
+        fieldCount.add(fields);
+        bytes.add(byteCount);
+        totalNanos.add(nanos);
+        latency.record(nanos);
+    }
+
+    @Override
+    public String getOperation() {
+        return operation.name();
+    }
+
+    @Override
+    public String getStatementId() {
+        return statementId;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getFieldCount() {
+        return fieldCount.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public long getMeanNanos() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : totalNanos.sum() / calls;
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return latency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getP90Nanos() {
+        return latency.getValueAtPercentile(90);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return latency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return latency.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return latency.getMax();
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        fieldCount.reset();
+        bytes.reset();
+        totalNanos.reset();
+        latency.reset();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+/**
+ * 把迁移进度保存在数据库表中, 表不存在时自动创建
+ *
+ * @since 1.2.0
+ */
+public class JdbcMigrationCheckpoint implements MigrationCheckpoint {
+
+    /**
+     * 默认的进度表名
+     */
+    public static final String DEFAULT_TABLE = "sensitive_data_migration";
+
+    private final DataSource dataSource;
+    private final String table;
+    private volatile boolean initialized;
+
+    /**
+     * @param dataSource 数据源
+     */
+    public JdbcMigrationCheckpoint(DataSource dataSource) {
+        this(dataSource, DEFAULT_TABLE);
+    }
+
+    /**
+     * @param dataSource 数据源
+     * @param table 进度表名
+     */
+    public JdbcMigrationCheckpoint(DataSource dataSource, String table) {
+        this.dataSource = dataSource;
+        this.table = table;
+    }
+
+    @Override
+    public Long load(String name) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            initialize(connection);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT last_id FROM " + table + " WHERE task_name = ?")) {
+                statement.setString(1, name);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : null;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void save(String name, long lastId) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            initialize(connection);
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE " + table + " SET last_id = ? WHERE task_name = ?")) {
+                update.setLong(1, lastId);
+                update.setString(2, name);
+                if (update.executeUpdate() > 0) {
+                    return;
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO " + table + " (task_name, last_id) VALUES (?, ?)")) {
+                insert.setString(1, name);
+                insert.setLong(2, lastId);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private void initialize(Connection connection) throws SQLException {
+        if (initialized) {
+            return;
+        }
+        synchronized (this) {
+            if (initialized) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table
+                        + " (task_name VARCHAR(255) NOT NULL PRIMARY KEY, last_id BIGINT NOT NULL)");
+            }
+            initialized = true;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.migration;
+
+/**
+ * 迁移进度的保存位置, 中断后从上次保存的主键继续
+ *
+ * @since 1.2.0
+ */
+public interface MigrationCheckpoint {
+
+    /**
+     * 读取进度
+     *
+     * @param name 任务名称
+     * @return 已完成的最大主键(含), 没有进度时返回null
+     * @throws Exception 读取异常
+     */
+    Long load(String name) throws Exception;
+
+    /**
+     * 保存进度, 小于等于该主键的行都已迁移
+     *
+     * @param name 任务名称
+     * @param lastId 已完成的最大主键(含)
+     * @throws Exception 保存异常
+     */
+    void save(String name, long lastId) throws Exception;
+}
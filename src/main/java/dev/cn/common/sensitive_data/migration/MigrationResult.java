@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.migration;
+
+/**
+ * 迁移结果
+ *
+ * @since 1.2.0
+ */
+public final class MigrationResult {
+
+    private final long scannedRows;
+    private final long encryptedValues;
+    private final long skippedValues;
+    private final Long lastId;
+    private final long elapsedMillis;
+
+    MigrationResult(long scannedRows, long encryptedValues, long skippedValues, Long lastId, long elapsedMillis) {
+        this.scannedRows = scannedRows;
+        this.encryptedValues = encryptedValues;
+        this.skippedValues = skippedValues;
+        this.lastId = lastId;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 本次扫描的行数
+     *
+     * @return 扫描的行数
+     */
+    public long getScannedRows() {
+        return scannedRows;
+    }
+
+    /**
+     * 本次加密并写回的值的个数
+     *
+     * @return 加密的值的个数
+     */
+    public long getEncryptedValues() {
+        return encryptedValues;
+    }
+
+    /**
+     * 写回时行已被修改而跳过的值的个数
+     *
+     * @return 跳过的值的个数
+     */
+    public long getSkippedValues() {
+        return skippedValues;
+    }
+
+    /**
+     * 已完成的最大主键
+     *
+     * @return 最大主键, 表为空时为null
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "MigrationResult{scannedRows=" + scannedRows + ", encryptedValues=" + encryptedValues
+                + ", skippedValues=" + skippedValues + ", lastId=" + lastId + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoProfiles;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+/**
+ * 把历史明文数据加密的迁移工具
+ *
+ * 按主键区间分页, 多个线程并行处理不同区间: 每个区间读取一次, 在工作线程上加密,
+ * 以JDBC批量更新写回并提交. 所有小于等于某个主键的区间都完成后保存进度, 中断后从该主键继续.
+ * 写回语句带有原明文作为条件, 迁移期间被应用修改的行不会被覆盖; 已加密的值直接跳过, 可以重复执行.
+ * 主键必须是整数类型.
+ *
+ * @since 1.2.0
+ */
+public class MigrationRunner {
+
+    private static final AtomicInteger THREAD_SEQUENCE = new AtomicInteger();
+
+    private final DataSource dataSource;
+    private final CryptoEngine cryptoEngine;
+    private final MigrationCheckpoint checkpoint;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int rangeSize = 1000;
+    private int maxRowsPerSecond;
+    private CryptoProfiles cryptoProfiles;
+
+    /**
+     * @param dataSource 数据源
+     * @param cryptoEngine 加解密引擎, 与透明加解密使用相同的配置
+     * @param checkpoint 进度保存位置
+     */
+    public MigrationRunner(DataSource dataSource, CryptoEngine cryptoEngine, MigrationCheckpoint checkpoint) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+        this.cryptoEngine = Objects.requireNonNull(cryptoEngine, "cryptoEngine");
+        this.checkpoint = Objects.requireNonNull(checkpoint, "checkpoint");
+        this.cryptoProfiles = new CryptoProfiles(null, null, cryptoEngine.getKeyProvider());
+    }
+
+    /**
+     * @param threads 并行处理的线程数, 默认为CPU核数
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param rangeSize 每个区间的主键跨度, 也是每次事务最多更新的行数, 默认为1000
+     */
+    public void setRangeSize(int rangeSize) {
+        this.rangeSize = Math.max(1, rangeSize);
+    }
+
+    /**
+     * @param maxRowsPerSecond 每秒最多处理的行数, 小于等于0时不限制(默认)
+     */
+    public void setMaxRowsPerSecond(int maxRowsPerSecond) {
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    /**
+     * @param cryptoProfiles 按列选择秘钥和算法的配置, 应与加密拦截器相同
+     *        (见{@code EncryptInterceptor.getCryptoProfiles()}), 默认只能识别直接填写策略名称的算法配置
+     */
+    public void setCryptoProfiles(CryptoProfiles cryptoProfiles) {
+        this.cryptoProfiles = Objects.requireNonNull(cryptoProfiles, "cryptoProfiles");
+    }
+
+    /**
+     * 执行迁移, 从上次保存的进度继续
+     *
+     * @param task 迁移任务
+     * @return 迁移结果
+     * @throws Exception 任意区间失败时抛出其异常, 已保存的进度保持不变
+     */
+    public MigrationResult run(MigrationTask task) throws Exception {
+        long startTime = System.currentTimeMillis();
+        long[] bounds = bounds(task);
+        Long lastId = checkpoint.load(task.getName());
+        if (bounds == null) {
+            return new MigrationResult(0, 0, 0, lastId, System.currentTimeMillis() - startTime);
+        }
+        long from = lastId != null ? lastId : bounds[0] - 1;
+        long to = bounds[1];
+
+        Progress progress = new Progress(task.getName(), from, lastId);
+        Throttle throttle = new Throttle(maxRowsPerSecond);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sensitive-data-migration-" + THREAD_SEQUENCE.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ExecutorCompletionService<long[]> completion = new ExecutorCompletionService<>(executor);
+        try {
+            //最多同时提交线程数的两倍个区间, 避免一次生成全部区间
+            int inFlight = 0;
+            long next = from;
+            while (next < to || inFlight > 0) {
+                while (next < to && inFlight < threads * 2) {
+                    long low = next;
+                    long high = Math.min(to, low + rangeSize);
+                    completion.submit(() -> migrate(task, low, high, throttle, progress));
+                    inFlight++;
+                    next = high;
+                }
+                long[] range = take(completion);
+                inFlight--;
+                progress.complete(range[0], range[1]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new MigrationResult(progress.scannedRows.sum(), progress.encryptedValues.sum(),
+                progress.skippedValues.sum(), progress.lastId, System.currentTimeMillis() - startTime);
+    }
+
+    private static long[] take(ExecutorCompletionService<long[]> completion) throws Exception {
+        Future<long[]> future = completion.take();
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private long[] bounds(MigrationTask task) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT MIN(" + task.getIdColumn() + "), MAX("
+                        + task.getIdColumn() + ") FROM " + task.getTable())) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            long min = resultSet.getLong(1);
+            if (resultSet.wasNull()) {
+                return null;
+            }
+            return new long[] { min, resultSet.getLong(2) };
+        }
+    }
+
+    /**
+     * 迁移主键在(low, high]区间内的行
+     *
+     * @return 完成的区间
+     */
+    private long[] migrate(MigrationTask task, long low, long high, Throttle throttle, Progress progress)
+            throws Exception {
+        List<String> columns = task.getColumns();
+        try (Connection connection = dataSource.getConnection()) {
+            List<Object[]> rows = select(connection, task, low, high);
+            throttle.acquire(rows.size());
+            progress.scannedRows.add(rows.size());
+
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (int c = 0; c < columns.size(); c++) {
+                    update(connection, task, columns.get(c), rows, c + 1, progress);
+                }
+                connection.commit();
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        return new long[] { low, high };
+    }
+
+    private static List<Object[]> select(Connection connection, MigrationTask task, long low, long high)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ").append(task.getIdColumn());
+        for (String column : task.getColumns()) {
+            sql.append(", ").append(column);
+        }
+        sql.append(" FROM ").append(task.getTable()).append(" WHERE ").append(task.getIdColumn())
+                .append(" > ? AND ").append(task.getIdColumn()).append(" <= ?");
+
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            statement.setLong(1, low);
+            statement.setLong(2, high);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int width = task.getColumns().size() + 1;
+                while (resultSet.next()) {
+                    Object[] row = new Object[width];
+                    row[0] = resultSet.getLong(1);
+                    for (int i = 1; i < width; i++) {
+                        row[i] = resultSet.getString(i + 1);
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void update(Connection connection, MigrationTask task, String column, List<Object[]> rows, int index,
+            Progress progress) throws Exception {
+        String sql = "UPDATE " + task.getTable() + " SET " + column + " = ? WHERE " + task.getIdColumn() + " = ? AND "
+                + column + " = ?";
+        int added = 0;
+        //信封加密时按表选择数据秘钥, 列上单独配置了秘钥或算法时与加密拦截器使用相同的引擎
+        CryptoEngine engine = cryptoProfiles.engineFor(task.getTable() + "." + column,
+                cryptoEngine.forKeyName(task.getTable()), task.getKeyAlias(column), task.getProfile(column));
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Object[] row : rows) {
+                String value = (String) row[index];
+                //空值和已加密的值不需要迁移
+                if (value == null || ValueHelper.isEncrypted(value)) {
+                    continue;
+                }
+                statement.setString(1, engine.encryptPrefixed(value));
+                statement.setLong(2, (Long) row[0]);
+                statement.setString(3, value);
+                statement.addBatch();
+                added++;
+            }
+            if (added == 0) {
+                return;
+            }
+            for (int count : statement.executeBatch()) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    progress.encryptedValues.increment();
+                } else {
+                    progress.skippedValues.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 区间完成情况, 只有连续完成的区间才推进进度
+     */
+    private final class Progress {
+
+        private final String name;
+        private final TreeMap<Long, Long> completed = new TreeMap<>();
+        private final LongAdder scannedRows = new LongAdder();
+        private final LongAdder encryptedValues = new LongAdder();
+        private final LongAdder skippedValues = new LongAdder();
+        private Long lastId;
+        private long watermark;
+
+        Progress(String name, long from, Long lastId) {
+            this.name = name;
+            this.watermark = from;
+            this.lastId = lastId;
+        }
+
+        /**
+         * 由调度线程在区间完成后调用
+         */
+        void complete(long low, long high) throws Exception {
+            completed.put(low, high);
+            long advanced = watermark;
+            Long end;
+            while ((end = completed.remove(advanced)) != null) {
+                advanced = end;
+            }
+            if (advanced != watermark) {
+                watermark = advanced;
+                checkpoint.save(name, advanced);
+                lastId = advanced;
+            }
+        }
+    }
+}
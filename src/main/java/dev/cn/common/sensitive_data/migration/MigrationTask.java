@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.migration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import dev.cn.common.sensitive_data.support.SensitiveClassMetadata;
+
+/**
+ * 迁移任务: 需要把明文加密的表、主键列和敏感列
+ *
+ * @since 1.2.0
+ */
+public final class MigrationTask {
+
+    private final String table;
+    private final String idColumn;
+    private final List<String> columns;
+    /**
+     * 列上单独配置的秘钥别名和算法配置
+     */
+    private final Map<String, String> keyAliases;
+    private final Map<String, String> profiles;
+
+    private MigrationTask(String table, String idColumn, List<String> columns, Map<String, String> keyAliases,
+            Map<String, String> profiles) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("没有需要迁移的列: " + table);
+        }
+        this.table = table;
+        this.idColumn = idColumn;
+        this.columns = Collections.unmodifiableList(columns);
+        this.keyAliases = keyAliases;
+        this.profiles = profiles;
+    }
+
+    /**
+     * 按表名和列名创建
+     *
+     * @param table 表名
+     * @param idColumn 主键列名, 必须是整数类型
+     * @param columns 敏感列名
+     * @return 迁移任务
+     */
+    public static MigrationTask of(String table, String idColumn, String... columns) {
+        return new MigrationTask(table, idColumn, new ArrayList<>(Arrays.asList(columns)), Collections.emptyMap(),
+                Collections.emptyMap());
+    }
+
+    /**
+     * 按实体类上的{@code @SensitiveData(table = ...)}和{@code @SensitiveField}创建, 包括字段上的秘钥别名和算法配置
+     *
+     * @param type 实体类
+     * @return 迁移任务
+     */
+    public static MigrationTask forEntity(Class<?> type) {
+        SensitiveClassMetadata metadata = SensitiveClassMetadata.forClass(type);
+        if (metadata.getTable() == null) {
+            throw new IllegalArgumentException("实体类没有通过@SensitiveData指定表名: " + type.getName());
+        }
+        List<String> columns = new ArrayList<>();
+        Map<String, String> keyAliases = new HashMap<>();
+        Map<String, String> profiles = new HashMap<>();
+        for (SensitiveClassMetadata.FieldAccessor field : metadata.getFields()) {
+            //二进制列按字符串迁移会破坏数据, 需要单独处理
+            if (field.getFieldType() == byte[].class) {
+                continue;
+            }
+            columns.add(field.getColumn());
+            if (field.getKeyAlias() != null) {
+                keyAliases.put(field.getColumn(), field.getKeyAlias());
+            }
+            if (field.getProfile() != null) {
+                profiles.put(field.getColumn(), field.getProfile());
+            }
+        }
+        return new MigrationTask(metadata.getTable(), metadata.getIdColumn(), columns, keyAliases, profiles);
+    }
+
+    /**
+     * 任务名称, 用于保存进度
+     *
+     * @return 任务名称
+     */
+    public String getName() {
+        return table;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 列上单独配置的秘钥别名
+     *
+     * @param column 列名
+     * @return 秘钥别名, 使用表对应的秘钥时为null
+     */
+    public String getKeyAlias(String column) {
+        return keyAliases.get(column);
+    }
+
+    /**
+     * 列上单独配置的算法配置
+     *
+     * @param column 列名
+     * @return 算法配置, 使用全局的加密算法策略时为null
+     */
+    public String getProfile(String column) {
+        return profiles.get(column);
+    }
+}
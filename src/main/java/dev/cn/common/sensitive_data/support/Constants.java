@@ -28,4 +28,37 @@ package dev.cn.common.sensitive_data.support;
  */
 public class Constants {
     static final String KEY_SENSITIVE = "SENSITIVE_";
+
+    /**
+     * 二进制格式的魔数, 其后是1字节的版本号和4字节的密文CRC32校验值.
+     * 0xFE在UTF-8编码中不会出现, 可以与字符串格式区分; 只有魔数、版本号和校验值都匹配时才视为密文,
+     * 以0xFE等字节开头的明文(如带BOM的UTF-16 BE文本)不会被误判
+     */
+    static final byte[] BINARY_MAGIC = { (byte) 0xFE, 'S', 'D' };
+
+    /**
+     * 不带算法首部的二进制格式的版本号
+     */
+    public static final byte BINARY_VERSION_V1 = 1;
+
+    /**
+     * 带算法首部的二进制格式的版本号, 密文之前是算法标识
+     */
+    public static final byte BINARY_VERSION_V2 = 2;
+
+    /**
+     * 带算法首部的字符串格式的标记, 位于前缀之后, 其后是Base64编码的(算法标识 + 密文).
+     * '#'不在Base64字母表中, 可以与不带首部的历史密文区分
+     */
+    public static final char HEADER_MARKER = '#';
+
+    /**
+     * 拦截器模式: 由拦截器在执行前后加解密实体字段
+     */
+    public static final String MODE_INTERCEPTOR = "interceptor";
+
+    /**
+     * 类型处理器模式: 由类型处理器在读写列值时加解密
+     */
+    public static final String MODE_TYPE_HANDLER = "type-handler";
 }
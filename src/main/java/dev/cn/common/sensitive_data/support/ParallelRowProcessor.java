@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 大结果集的并行处理器
+ *
+ * 使用独立且有界的ForkJoinPool, 将行按块拆分到多个核上处理, 全部完成后才返回.
+ * 行数低于阈值时直接在调用线程上顺序处理.
+ *
+ * @since 1.2.0
+ */
+public class ParallelRowProcessor implements AutoCloseable {
+
+    private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+    private final int threshold;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    /**
+     * 单行处理逻辑
+     */
+    @FunctionalInterface
+    public interface RowAction {
+
+        /**
+         * 处理单行
+         *
+         * @param row 行对象
+         * @throws Exception 处理异常
+         */
+        void apply(Object row) throws Exception;
+    }
+
+    /**
+     * @param threshold 启用并行的最小行数
+     * @param chunkSize 每个任务处理的行数
+     * @param parallelism 并行度, 小于等于0时使用CPU核数
+     * @param name 线程名前缀
+     */
+    public ParallelRowProcessor(int threshold, int chunkSize, int parallelism, String name) {
+        this.threshold = Math.max(1, threshold);
+        this.chunkSize = Math.max(1, chunkSize);
+        int poolSize = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        String prefix = name + "-" + POOL_SEQUENCE.incrementAndGet() + "-";
+        this.pool = new ForkJoinPool(poolSize, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName(prefix + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * 处理所有行, 行数达到阈值时并行处理
+     *
+     * @param rows 行
+     * @param action 单行处理逻辑
+     * @throws Exception 任意一行处理失败时抛出其异常
+     */
+    public void forEach(List<?> rows, RowAction action) throws Exception {
+        if (rows.size() < threshold || !(rows instanceof RandomAccess) || pool.isShutdown()) {
+            for (Object row : rows) {
+                action.apply(row);
+            }
+            return;
+        }
+
+        try {
+            pool.invoke(new ChunkTask(rows, 0, rows.size(), action));
+        } catch (RowActionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<?> rows;
+        private final int from;
+        private final int to;
+        private final RowAction action;
+
+        ChunkTask(List<?> rows, int from, int to, RowAction action) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        action.apply(rows.get(i));
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new RowActionException(e);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(rows, from, middle, action), new ChunkTask(rows, middle, to, action));
+        }
+    }
+
+    /**
+     * 在ForkJoin任务中传递受检异常
+     */
+    private static final class RowActionException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        RowActionException(Exception cause) {
+            super(cause);
+        }
+    }
+}
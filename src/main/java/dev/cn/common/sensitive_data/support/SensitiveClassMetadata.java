@@ -0,0 +1,570 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.annotation.AnnotationUtils;
+
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.crypto.FieldCodec;
+import dev.cn.common.sensitive_data.crypto.FieldCodecs;
+import dev.cn.common.sensitive_data.type.SensitiveValue;
+
+/**
+ * 敏感数据类的元数据
+ *
+ * 每个类只解析一次注解和字段, 并预先生成敏感字段的访问器: 存在编译期生成的{@link SensitiveCodec}时直接调用它,
+ * 否则使用MethodHandle访问器. 之后每行的读写都不再需要反射.
+ * 编解码器带有{@link SensitiveCodecAttributes}时, 元数据完全由编解码器构建, 不再读取字段和注解.
+ * 非敏感类同样会缓存一个空的元数据, 之后只需一次Map查找即可跳过.
+ *
+ * @since 1.2.0
+ */
+public final class SensitiveClassMetadata {
+
+    private static final ConcurrentMap<Class<?>, SensitiveClassMetadata> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 非敏感类共用的空元数据
+     */
+    private static final SensitiveClassMetadata NONE = new SensitiveClassMetadata(null, Collections.emptyList(), null,
+            null, null);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodHandle CODEC_SET_BLIND_INDEX = codecMethod("setBlindIndex",
+            MethodType.methodType(void.class, Object.class, int.class, String.class));
+    private static final MethodHandle CODEC_GET_ID = codecMethod("getId",
+            MethodType.methodType(Object.class, Object.class));
+
+    private final Class<?> type;
+    private final List<FieldAccessor> fields;
+    private final String table;
+    private final String idColumn;
+    private final MethodHandle idGetter;
+
+    private SensitiveClassMetadata(Class<?> type, List<FieldAccessor> fields, String table, String idColumn,
+            MethodHandle idGetter) {
+        this.type = type;
+        this.fields = fields;
+        this.table = table;
+        this.idColumn = idColumn;
+        this.idGetter = idGetter;
+    }
+
+    /**
+     * 获取类的元数据
+     *
+     * @param type 类
+     * @return 元数据, 非敏感类返回空的元数据
+     * @throws IllegalStateException 注解配置错误, 如@SensitiveField标注在拦截器模式不支持的类型上
+     */
+    public static SensitiveClassMetadata forClass(Class<?> type) {
+        SensitiveClassMetadata metadata = CACHE.get(type);
+        if (metadata == null) {
+            metadata = CACHE.computeIfAbsent(type, SensitiveClassMetadata::build);
+        }
+        return metadata;
+    }
+
+    /**
+     * 是否为包含敏感字段的类
+     *
+     * @return 是否需要加解密
+     */
+    public boolean isSensitive() {
+        return !fields.isEmpty();
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * 获取表名, 用于秘钥轮换时回写
+     *
+     * @return 表名, 未配置时为null
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * 获取主键列名
+     *
+     * @return 主键列名, 未配置表名时为null
+     */
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    /**
+     * 读取对象的主键
+     *
+     * @param target 对象
+     * @return 主键, 未配置表名时为null
+     */
+    public Object getId(Object target) {
+        if (idGetter == null) {
+            return null;
+        }
+        try {
+            return (Object) idGetter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 获取所有敏感字段的访问器, 包含父类中声明的String、SensitiveValue和byte[]字段
+     *
+     * @return 敏感字段访问器
+     */
+    public List<FieldAccessor> getFields() {
+        return fields;
+    }
+
+    private static SensitiveClassMetadata build(Class<?> type) {
+        //编译期生成的编解码器带有注解属性时, 不再读取字段和注解
+        SensitiveCodec<Object> codec = SensitiveCodecs.find(type);
+        SensitiveCodecAttributes attributes = codec == null ? null : codec.getAttributes();
+        if (attributes != null) {
+            return build(type, codec, attributes);
+        }
+
+        //校验该类是否被@SensitiveData所注解
+        SensitiveData sensitiveData = AnnotationUtils.findAnnotation(type, SensitiveData.class);
+        if (Objects.isNull(sensitiveData)) {
+            return NONE;
+        }
+
+        //存在编译期生成的编解码器时, 由它读写其覆盖的字段, 其余字段使用MethodHandle
+        Map<String, Integer> codecIndexes = codecIndexes(codec);
+
+        List<FieldAccessor> fields = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!isSensitiveField(field)) {
+                    continue;
+                }
+                SensitiveField annotation = field.getAnnotation(SensitiveField.class);
+                if (annotation.lazy() && field.getType() != SensitiveValue.class) {
+                    throw new IllegalStateException("只有SensitiveValue类型的字段支持延迟解密: " + field);
+                }
+
+                MethodHandle blindIndexSetter = annotation.blindIndex().isEmpty() ? null
+                        : blindIndexSetter(type, annotation.blindIndex(), lookup);
+                Integer codecIndex = codecIndexes.get(field.getName());
+                if (codecIndex != null && field.getType() == String.class) {
+                    fields.add(new CodecFieldAccessor(field.getName(), annotation.column(), annotation.keyAlias(),
+                            annotation.profile(), blindIndexSetter, codec, codecIndex));
+                    continue;
+                }
+                field.setAccessible(true);
+                try {
+                    fields.add(new MethodHandleFieldAccessor(field.getName(), field.getType(), annotation.column(),
+                            annotation.lazy(), annotation.keyAlias(), annotation.profile(), blindIndexSetter,
+                            lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                            lookup.unreflectSetter(field).asType(SETTER_TYPE)));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("无法访问敏感字段: " + field, e);
+                }
+            }
+        }
+
+        if (fields.isEmpty()) {
+            return NONE;
+        }
+        String table = sensitiveData.table().isEmpty() ? null : sensitiveData.table();
+        String idColumn = null;
+        MethodHandle idGetter = null;
+        if (table != null) {
+            idColumn = sensitiveData.idColumn().isEmpty() ? toColumnName(sensitiveData.idField())
+                    : sensitiveData.idColumn();
+            idGetter = idGetter(type, sensitiveData.idField(), lookup);
+        }
+        return new SensitiveClassMetadata(type, Collections.unmodifiableList(fields), table, idColumn, idGetter);
+    }
+
+    /**
+     * 由编解码器及其注解属性构建, 盲索引和主键也通过编解码器读写
+     */
+    private static SensitiveClassMetadata build(Class<?> type, SensitiveCodec<Object> codec,
+            SensitiveCodecAttributes attributes) {
+        String[] fieldNames = codec.getFieldNames();
+        if (fieldNames.length != attributes.getFieldCount()) {
+            throw new IllegalStateException("编解码器的字段数与注解属性不一致: " + codec.getClass().getName());
+        }
+        List<FieldAccessor> fields = new ArrayList<>(fieldNames.length);
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (attributes.isLazy(i)) {
+                throw new IllegalStateException("只有SensitiveValue类型的字段支持延迟解密: " + type.getName() + "."
+                        + fieldNames[i]);
+            }
+            MethodHandle blindIndexSetter = attributes.getBlindIndex(i).isEmpty() ? null
+                    : MethodHandles.insertArguments(CODEC_SET_BLIND_INDEX.bindTo(codec), 1, i).asType(SETTER_TYPE);
+            fields.add(new CodecFieldAccessor(fieldNames[i], attributes.getColumn(i), attributes.getKeyAlias(i),
+                    attributes.getProfile(i), blindIndexSetter, codec, i));
+        }
+
+        if (fields.isEmpty()) {
+            return NONE;
+        }
+        String table = attributes.getTable().isEmpty() ? null : attributes.getTable();
+        String idColumn = null;
+        MethodHandle idGetter = null;
+        if (table != null) {
+            idColumn = attributes.getIdColumn().isEmpty() ? toColumnName(attributes.getIdField())
+                    : attributes.getIdColumn();
+            idGetter = CODEC_GET_ID.bindTo(codec);
+        }
+        return new SensitiveClassMetadata(type, Collections.unmodifiableList(fields), table, idColumn, idGetter);
+    }
+
+    private static MethodHandle codecMethod(String name, MethodType methodType) {
+        try {
+            return MethodHandles.publicLookup().findVirtual(SensitiveCodec.class, name, methodType);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 按字段名或列名查找盲索引字段
+     */
+    private static MethodHandle blindIndexSetter(Class<?> type, String name, MethodHandles.Lookup lookup) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+                        || !(field.getName().equals(name) || toColumnName(field.getName()).equals(name))) {
+                    continue;
+                }
+                if (field.getType() != String.class) {
+                    throw new IllegalStateException("盲索引字段必须是String类型: " + field);
+                }
+                field.setAccessible(true);
+                try {
+                    return lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("无法访问盲索引字段: " + field, e);
+                }
+            }
+        }
+        throw new IllegalStateException("找不到盲索引字段: " + type.getName() + "." + name);
+    }
+
+    private static MethodHandle idGetter(Class<?> type, String idField, MethodHandles.Lookup lookup) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equals(idField) && !Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    try {
+                        return lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException("无法访问主键字段: " + field, e);
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("找不到主键字段: " + type.getName() + "." + idField);
+    }
+
+    /**
+     * 驼峰命名转为下划线命名, 如idCard转为id_card
+     */
+    static String toColumnName(String fieldName) {
+        StringBuilder column = new StringBuilder(fieldName.length() + 4);
+        for (int i = 0; i < fieldName.length(); i++) {
+            char c = fieldName.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    column.append('_');
+                }
+                column.append(Character.toLowerCase(c));
+            } else {
+                column.append(c);
+            }
+        }
+        return column.toString();
+    }
+
+    private static Map<String, Integer> codecIndexes(SensitiveCodec<Object> codec) {
+        if (codec == null) {
+            return Collections.emptyMap();
+        }
+        String[] fieldNames = codec.getFieldNames();
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < fieldNames.length; i++) {
+            indexes.putIfAbsent(fieldNames[i], i);
+        }
+        return indexes;
+    }
+
+    private static boolean isSensitiveField(Field field) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+                || !field.isAnnotationPresent(SensitiveField.class)) {
+            return false;
+        }
+        //拦截器模式只支持String、SensitiveValue和byte[]类型, 其他类型需要使用对应的类型处理器
+        Class<?> fieldType = field.getType();
+        if (fieldType != String.class && fieldType != SensitiveValue.class && fieldType != byte[].class) {
+            throw new IllegalStateException("@SensitiveField不支持" + fieldType.getSimpleName()
+                    + "类型的字段, 请去掉该注解并在字段上指定" + typeHandlerFor(fieldType) + ": " + field);
+        }
+        return true;
+    }
+
+    /**
+     * 拦截器模式不支持的字段类型应使用的类型处理器
+     */
+    private static String typeHandlerFor(Class<?> fieldType) {
+        if (fieldType == Long.class || fieldType == long.class) {
+            return "SensitiveLongTypeHandler";
+        }
+        if (fieldType == Integer.class || fieldType == int.class) {
+            return "SensitiveIntegerTypeHandler";
+        }
+        if (fieldType == LocalDate.class) {
+            return "SensitiveLocalDateTypeHandler";
+        }
+        if (FieldCodecs.forType(fieldType) != null) {
+            return "SensitiveFieldTypeHandler";
+        }
+        return "SensitiveFieldTypeHandler(需要先通过ServiceLoader注册该类型的FieldCodec)";
+    }
+
+    /**
+     * 敏感字段访问器
+     */
+    public abstract static class FieldAccessor {
+
+        private final String name;
+        private final String column;
+        private final Class<?> fieldType;
+        private final FieldCodec<?> codec;
+        private final boolean lazy;
+        private final MethodHandle blindIndexSetter;
+        private final String keyAlias;
+        private final String profile;
+
+        FieldAccessor(String name, Class<?> fieldType, String column, boolean lazy, String keyAlias, String profile,
+                MethodHandle blindIndexSetter) {
+            this.name = name;
+            this.column = column.isEmpty() ? toColumnName(name) : column;
+            this.fieldType = fieldType;
+            this.codec = FieldCodecs.forType(fieldType);
+            this.lazy = lazy;
+            this.blindIndexSetter = blindIndexSetter;
+            this.keyAlias = keyAlias.isEmpty() ? null : keyAlias;
+            this.profile = profile.isEmpty() ? null : profile;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 列名, 未指定时由字段名转换
+         *
+         * @return 列名
+         */
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * 字段类型, String或SensitiveValue
+         *
+         * @return 字段类型
+         */
+        public Class<?> getFieldType() {
+            return fieldType;
+        }
+
+        /**
+         * 字段值的编解码器, 由{@link FieldCodecs#forType(Class)}按字段类型查找
+         *
+         * @param <T> 字段类型
+         * @return 编解码器, SensitiveValue字段为null
+         */
+        @SuppressWarnings("unchecked")
+        public <T> FieldCodec<T> getCodec() {
+            return (FieldCodec<T>) codec;
+        }
+
+        /**
+         * 是否在首次访问时才解密
+         *
+         * @return 是否延迟解密
+         */
+        public boolean isLazy() {
+            return lazy;
+        }
+
+        /**
+         * 秘钥别名
+         *
+         * @return 秘钥别名, 使用表对应的秘钥时为null
+         */
+        public String getKeyAlias() {
+            return keyAlias;
+        }
+
+        /**
+         * 算法配置
+         *
+         * @return 算法配置, 使用全局的加密算法策略时为null
+         */
+        public String getProfile() {
+            return profile;
+        }
+
+        /**
+         * 是否配置了盲索引字段
+         *
+         * @return 是否有盲索引
+         */
+        public boolean hasBlindIndex() {
+            return blindIndexSetter != null;
+        }
+
+        /**
+         * 写入盲索引字段
+         *
+         * @param target 对象
+         * @param blindIndex 盲索引
+         */
+        public void setBlindIndex(Object target, String blindIndex) {
+            try {
+                blindIndexSetter.invokeExact(target, (Object) blindIndex);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * 读取字段值
+         *
+         * @param target 对象
+         * @return 字段值
+         */
+        public abstract Object get(Object target);
+
+        /**
+         * 写入字段值
+         *
+         * @param target 对象
+         * @param value 字段值
+         */
+        public abstract void set(Object target, Object value);
+    }
+
+    /**
+     * 基于MethodHandle的访问器, 没有生成编解码器时使用
+     */
+    private static final class MethodHandleFieldAccessor extends FieldAccessor {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private MethodHandleFieldAccessor(String name, Class<?> fieldType, String column, boolean lazy,
+                String keyAlias, String profile, MethodHandle blindIndexSetter, MethodHandle getter,
+                MethodHandle setter) {
+            super(name, fieldType, column, lazy, keyAlias, profile, blindIndexSetter);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        public Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void set(Object target, Object value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 基于编译期生成的编解码器的访问器, 直接调用getter/setter
+     */
+    private static final class CodecFieldAccessor extends FieldAccessor {
+
+        private final SensitiveCodec<Object> codec;
+        private final int index;
+
+        private CodecFieldAccessor(String name, String column, String keyAlias, String profile,
+                MethodHandle blindIndexSetter, SensitiveCodec<Object> codec, int index) {
+            super(name, String.class, column, false, keyAlias, profile, blindIndexSetter);
+            this.codec = codec;
+            this.index = index;
+        }
+
+        @Override
+        public Object get(Object target) {
+            return codec.get(target, index);
+        }
+
+        @Override
+        public void set(Object target, Object value) {
+            codec.set(target, index, (String) value);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+/**
+ * 敏感实体的字段编解码器
+ *
+ * 通常由sensitive-data-processor注解处理器在编译期为每个@SensitiveData实体生成,
+ * 直接调用实体的getter/setter读写敏感字段, 拦截器使用它代替运行时反射.
+ * 生成的实现通过META-INF/services注册.
+ * 实现了{@link #getAttributes()}时, 实体的元数据完全由编解码器构建, 运行时不再读取字段和注解.
+ *
+ * @since 1.2.0
+ * @param <T> 实体类型
+ */
+public interface SensitiveCodec<T> {
+
+    /**
+     * 编解码器对应的实体类型, 只用于该类型本身, 不用于其子类
+     *
+     * @return 实体类型
+     */
+    Class<T> getType();
+
+    /**
+     * 所有被@SensitiveField注解的String字段名, 包含父类中声明的字段
+     *
+     * @return 字段名
+     */
+    String[] getFieldNames();
+
+    /**
+     * 读取敏感字段的值
+     *
+     * @param entity 实体
+     * @param index 字段在{@link #getFieldNames()}中的下标
+     * @return 字段值
+     */
+    String get(T entity, int index);
+
+    /**
+     * 写入敏感字段的值
+     *
+     * @param entity 实体
+     * @param index 字段在{@link #getFieldNames()}中的下标
+     * @param value 字段值
+     */
+    void set(T entity, int index, String value);
+
+    /**
+     * 实体和敏感字段上的注解属性. 只有实体的所有敏感字段都是String时才由注解处理器生成,
+     * 返回null时运行时仍通过反射读取字段和注解.
+     *
+     * @return 注解属性
+     * @since 1.2.0
+     */
+    default SensitiveCodecAttributes getAttributes() {
+        return null;
+    }
+
+    /**
+     * 写入敏感字段对应的盲索引字段, {@link #getAttributes()}中配置了盲索引时使用
+     *
+     * @param entity 实体
+     * @param index 敏感字段在{@link #getFieldNames()}中的下标
+     * @param value 盲索引
+     * @since 1.2.0
+     */
+    default void setBlindIndex(T entity, int index, String value) {
+        throw new UnsupportedOperationException("编解码器不支持写入盲索引: " + getClass().getName());
+    }
+
+    /**
+     * 读取主键, {@link #getAttributes()}中配置了表名时用于秘钥轮换回写
+     *
+     * @param entity 实体
+     * @return 主键
+     * @since 1.2.0
+     */
+    default Object getId(T entity) {
+        throw new UnsupportedOperationException("编解码器不支持读取主键: " + getClass().getName());
+    }
+}
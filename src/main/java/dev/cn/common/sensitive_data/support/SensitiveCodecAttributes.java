@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SensitiveCodec}所对应实体上@SensitiveData和各敏感字段上@SensitiveField的属性
+ *
+ * 由sensitive-data-processor注解处理器在编译期生成, 字段的顺序与{@link SensitiveCodec#getFieldNames()}相同.
+ * 属性保存注解上的原始值, 未指定时为空字符串, 默认值的处理与运行时读取注解相同.
+ *
+ * @since 1.2.0
+ */
+public final class SensitiveCodecAttributes {
+
+    private final String table;
+    private final String idField;
+    private final String idColumn;
+    private final List<Field> fields = new ArrayList<>();
+
+    /**
+     * @param table @SensitiveData的table
+     * @param idField @SensitiveData的idField
+     * @param idColumn @SensitiveData的idColumn
+     */
+    public SensitiveCodecAttributes(String table, String idField, String idColumn) {
+        this.table = table;
+        this.idField = idField;
+        this.idColumn = idColumn;
+    }
+
+    /**
+     * 按{@link SensitiveCodec#getFieldNames()}的顺序添加字段上@SensitiveField的属性
+     *
+     * @param column 列名
+     * @param lazy 是否延迟解密
+     * @param blindIndex 盲索引字段
+     * @param keyAlias 秘钥别名
+     * @param profile 算法配置
+     * @return 当前对象
+     */
+    public SensitiveCodecAttributes field(String column, boolean lazy, String blindIndex, String keyAlias,
+            String profile) {
+        fields.add(new Field(column, lazy, blindIndex, keyAlias, profile));
+        return this;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getIdField() {
+        return idField;
+    }
+
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    /**
+     * 字段数
+     *
+     * @return 字段数
+     */
+    public int getFieldCount() {
+        return fields.size();
+    }
+
+    public String getColumn(int index) {
+        return fields.get(index).column;
+    }
+
+    public boolean isLazy(int index) {
+        return fields.get(index).lazy;
+    }
+
+    public String getBlindIndex(int index) {
+        return fields.get(index).blindIndex;
+    }
+
+    public String getKeyAlias(int index) {
+        return fields.get(index).keyAlias;
+    }
+
+    public String getProfile(int index) {
+        return fields.get(index).profile;
+    }
+
+    private static final class Field {
+
+        private final String column;
+        private final boolean lazy;
+        private final String blindIndex;
+        private final String keyAlias;
+        private final String profile;
+
+        private Field(String column, boolean lazy, String blindIndex, String keyAlias, String profile) {
+            this.column = column;
+            this.lazy = lazy;
+            this.blindIndex = blindIndex;
+            this.keyAlias = keyAlias;
+            this.profile = profile;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 查找编译期生成的{@link SensitiveCodec}
+ *
+ * 每个ClassLoader只通过ServiceLoader加载一次.
+ *
+ * @since 1.2.0
+ */
+public class SensitiveCodecs {
+
+    private static final ConcurrentMap<ClassLoader, Map<Class<?>, SensitiveCodec<?>>> CODECS = new ConcurrentHashMap<>();
+
+    /**
+     * 查找实体类型对应的编解码器
+     *
+     * @param type 实体类型
+     * @param <T> 实体类型
+     * @return 编解码器, 不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SensitiveCodec<T> find(Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+        return (SensitiveCodec<T>) CODECS.computeIfAbsent(classLoader, SensitiveCodecs::load).get(type);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Map<Class<?>, SensitiveCodec<?>> load(ClassLoader classLoader) {
+        Map<Class<?>, SensitiveCodec<?>> codecs = new HashMap<>();
+        try {
+            for (SensitiveCodec codec : ServiceLoader.load(SensitiveCodec.class, classLoader)) {
+                codecs.put(codec.getType(), codec);
+            }
+        } catch (ServiceConfigurationError e) {
+            // 之后的编解码器不可用, 对应的实体回退到反射
+        }
+        return codecs.isEmpty() ? Collections.emptyMap() : codecs;
+    }
+}
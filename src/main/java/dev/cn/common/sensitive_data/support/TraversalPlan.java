@@ -0,0 +1,372 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+
+/**
+ * 对象图的遍历计划
+ *
+ * 每个类只编译一次: 除自身的敏感字段外, 按字段的声明类型找出可能包含敏感对象的路径, 如嵌套对象、集合、数组和Map的值,
+ * 其余字段在遍历时直接跳过. 路径上的对象按运行时的类分派到各自的计划, 因此异构集合和子类也能正确处理.
+ * 遍历时会跳过已访问的对象, MyBatis嵌套结果映射中的双向关联不会导致死循环.
+ *
+ * @since 1.2.0
+ */
+public final class TraversalPlan {
+
+    private static final ConcurrentMap<Class<?>, TraversalPlan> CACHE = new ConcurrentHashMap<>();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * 不包含敏感数据的类共用的空计划
+     */
+    private static final TraversalPlan EMPTY = new TraversalPlan(SensitiveClassMetadata.forClass(Object.class),
+            new Child[0]);
+
+    /**
+     * 按运行时的类分派
+     */
+    private static final Node DYNAMIC = new Node() {
+
+        @Override
+        void visit(Object value, EntityVisitor visitor, Set<Object> visited) throws Exception {
+            TraversalPlan plan = forClass(value.getClass());
+            if (plan != EMPTY) {
+                plan.visit(value, visitor, visited);
+            }
+        }
+    };
+
+    /**
+     * 遍历时对每个敏感对象执行的逻辑
+     */
+    @FunctionalInterface
+    public interface EntityVisitor {
+
+        /**
+         * 处理敏感对象
+         *
+         * @param entity 敏感对象
+         * @param metadata 敏感对象所属类的元数据
+         * @throws Exception 处理异常
+         */
+        void visit(Object entity, SensitiveClassMetadata metadata) throws Exception;
+    }
+
+    private final SensitiveClassMetadata metadata;
+    private final Child[] children;
+
+    private TraversalPlan(SensitiveClassMetadata metadata, Child[] children) {
+        this.metadata = metadata;
+        this.children = children;
+    }
+
+    /**
+     * 获取类的遍历计划
+     *
+     * @param type 类
+     * @return 遍历计划, 不可能包含敏感数据的类返回空计划
+     */
+    public static TraversalPlan forClass(Class<?> type) {
+        TraversalPlan plan = CACHE.get(type);
+        if (plan == null) {
+            //编译时会递归查询其他类的计划, 不能在computeIfAbsent中进行
+            plan = compile(type);
+            TraversalPlan previous = CACHE.putIfAbsent(type, plan);
+            if (previous != null) {
+                plan = previous;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * 是否为空计划
+     *
+     * @return 该类的对象中是否不可能包含敏感数据
+     */
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    /**
+     * 遍历对象图, 对其中每个敏感对象执行一次处理逻辑
+     *
+     * @param target 根对象, 必须是该计划对应的类的实例
+     * @param visitor 处理逻辑
+     * @throws Exception 处理异常
+     */
+    public void visit(Object target, EntityVisitor visitor) throws Exception {
+        if (children.length == 0) {
+            //只有自身字段的扁平对象不需要记录已访问的对象
+            if (metadata.isSensitive()) {
+                visitor.visit(target, metadata);
+            }
+            return;
+        }
+        visit(target, visitor, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private void visit(Object target, EntityVisitor visitor, Set<Object> visited) throws Exception {
+        if (!visited.add(target)) {
+            return;
+        }
+        if (metadata.isSensitive()) {
+            visitor.visit(target, metadata);
+        }
+        for (Child child : children) {
+            Object value = child.get(target);
+            if (value != null) {
+                child.node.visit(value, visitor, visited);
+            }
+        }
+    }
+
+    private static TraversalPlan compile(Class<?> type) {
+        if (isOpaque(type)) {
+            return EMPTY;
+        }
+        SensitiveClassMetadata metadata = SensitiveClassMetadata.forClass(type);
+        List<Child> children = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Set<Class<?>> visiting = new HashSet<>();
+        visiting.add(type);
+        for (Field field : fields(type)) {
+            Node node = nodeFor(field.getGenericType(), visiting);
+            if (node == null) {
+                continue;
+            }
+            field.setAccessible(true);
+            try {
+                children.add(new Child(lookup.unreflectGetter(field).asType(GETTER_TYPE), node));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("无法访问字段: " + field, e);
+            }
+        }
+        if (!metadata.isSensitive() && children.isEmpty()) {
+            return EMPTY;
+        }
+        return new TraversalPlan(metadata, children.toArray(new Child[0]));
+    }
+
+    /**
+     * 按声明类型生成字段的遍历节点
+     *
+     * @param type 声明类型
+     * @param visiting 当前递归路径上正在分析的类, 用于处理类型之间的循环引用
+     * @return 遍历节点, 不可能包含敏感数据时返回null
+     */
+    private static Node nodeFor(Type type, Set<Class<?>> visiting) {
+        if (type instanceof GenericArrayType) {
+            return elements(nodeFor(((GenericArrayType) type).getGenericComponentType(), visiting));
+        }
+        Class<?> raw = type instanceof Class ? (Class<?>) type
+                : type instanceof ParameterizedType ? (Class<?>) ((ParameterizedType) type).getRawType() : null;
+        if (raw == null) {
+            //类型变量和通配符只能在运行时判断
+            return DYNAMIC;
+        }
+        if (raw.isArray()) {
+            return raw.getComponentType().isPrimitive() ? null : elements(nodeFor(raw.getComponentType(), visiting));
+        }
+        if (Iterable.class.isAssignableFrom(raw)) {
+            return elements(typeArgument(type, 0, visiting));
+        }
+        if (Map.class.isAssignableFrom(raw)) {
+            Node values = typeArgument(type, 1, visiting);
+            return values == null ? null : new MapValues(values);
+        }
+        if (raw == Object.class) {
+            return DYNAMIC;
+        }
+        if (isOpaque(raw)) {
+            return null;
+        }
+        if (raw.isInterface() || Modifier.isAbstract(raw.getModifiers())) {
+            return DYNAMIC;
+        }
+        return mayContain(raw, visiting) ? DYNAMIC : null;
+    }
+
+    private static Node typeArgument(Type type, int index, Set<Class<?>> visiting) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (arguments.length > index) {
+                return nodeFor(arguments[index], visiting);
+            }
+        }
+        return DYNAMIC;
+    }
+
+    private static Node elements(Node element) {
+        return element == null ? null : new Elements(element);
+    }
+
+    private static boolean mayContain(Class<?> type, Set<Class<?>> visiting) {
+        TraversalPlan plan = CACHE.get(type);
+        if (plan != null) {
+            return plan != EMPTY;
+        }
+        if (SensitiveClassMetadata.forClass(type).isSensitive()) {
+            return true;
+        }
+        if (!visiting.add(type)) {
+            //循环引用, 是否包含敏感数据取决于循环上的其他类
+            return false;
+        }
+        try {
+            for (Field field : fields(type)) {
+                if (nodeFor(field.getGenericType(), visiting) != null) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            //只记录当前递归路径上的类, 同一类型的其他字段需要重新判断
+            visiting.remove(type);
+        }
+    }
+
+    /**
+     * 需要遍历的字段: 非静态、非合成(如内部类对外部类的引用), 且不是自身的敏感字段
+     */
+    private static List<Field> fields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && !isOpaque(current); current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()
+                        && !field.isAnnotationPresent(SensitiveField.class)) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 基本类型、枚举和JDK自带的类不会包含敏感对象
+     */
+    private static boolean isOpaque(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || type.getClassLoader() == null;
+    }
+
+    private static final class Child {
+
+        private final MethodHandle getter;
+        private final Node node;
+
+        Child(MethodHandle getter, Node node) {
+            this.getter = getter;
+            this.node = node;
+        }
+
+        Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private abstract static class Node {
+
+        abstract void visit(Object value, EntityVisitor visitor, Set<Object> visited) throws Exception;
+    }
+
+    /**
+     * 集合或数组的元素
+     */
+    private static final class Elements extends Node {
+
+        private final Node element;
+
+        Elements(Node element) {
+            this.element = element;
+        }
+
+        @Override
+        void visit(Object value, EntityVisitor visitor, Set<Object> visited) throws Exception {
+            if (value instanceof Object[]) {
+                for (Object item : (Object[]) value) {
+                    if (item != null) {
+                        element.visit(item, visitor, visited);
+                    }
+                }
+            } else if (value instanceof Iterable) {
+                for (Object item : (Iterable<?>) value) {
+                    if (item != null) {
+                        element.visit(item, visitor, visited);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Map的值
+     */
+    private static final class MapValues extends Node {
+
+        private final Node value;
+
+        MapValues(Node value) {
+            this.value = value;
+        }
+
+        @Override
+        void visit(Object map, EntityVisitor visitor, Set<Object> visited) throws Exception {
+            if (!(map instanceof Map)) {
+                return;
+            }
+            for (Object item : ((Map<?, ?>) map).values()) {
+                if (item != null) {
+                    value.visit(item, visitor, visited);
+                }
+            }
+        }
+    }
+}
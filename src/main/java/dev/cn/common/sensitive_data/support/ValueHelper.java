@@ -23,6 +23,10 @@
  */
 package dev.cn.common.sensitive_data.support;
 
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.CRC32;
+
 /**
  * 值处理工具类
  * 
@@ -30,6 +34,14 @@ package dev.cn.common.sensitive_data.support;
  */
 public class ValueHelper {
 
+    /**
+     * 二进制格式首部的长度: 魔数、版本号和CRC32校验值
+     */
+    public static final int BINARY_HEADER_LENGTH = Constants.BINARY_MAGIC.length + 5;
+
+    private static final int BINARY_VERSION_OFFSET = Constants.BINARY_MAGIC.length;
+    private static final int BINARY_CHECKSUM_OFFSET = BINARY_VERSION_OFFSET + 1;
+
     /**
      * 根据是否有前缀判断是否是加密过的值
      * 
@@ -62,4 +74,133 @@ public class ValueHelper {
     public static String unprefixEncryptedValue(String prefixedEncryptedValue) {
         return prefixedEncryptedValue.substring(Constants.KEY_SENSITIVE.length());
     }
+
+    /**
+     * 获取加密值的前缀
+     * 
+     * @since 1.2.0
+     * @return 加密值的前缀
+     */
+    public static String getEncryptedPrefix() {
+        return Constants.KEY_SENSITIVE;
+    }
+
+    /**
+     * 根据首部判断是否是二进制格式的加密值: 魔数、版本号和密文的CRC32校验值都匹配时才是.
+     * 只是开头几个字节相同的明文不会被当作密文
+     * 
+     * @since 1.2.0
+     * @param value 需要判断的值
+     * @return 是否是二进制格式的加密值
+     */
+    public static boolean isEncrypted(byte[] value) {
+        if (value.length <= BINARY_HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < Constants.BINARY_MAGIC.length; i++) {
+            if (value[i] != Constants.BINARY_MAGIC[i]) {
+                return false;
+            }
+        }
+        byte version = value[BINARY_VERSION_OFFSET];
+        if (version != Constants.BINARY_VERSION_V1 && version != Constants.BINARY_VERSION_V2) {
+            return false;
+        }
+        int checksum = (value[BINARY_CHECKSUM_OFFSET] & 0xFF) << 24 | (value[BINARY_CHECKSUM_OFFSET + 1] & 0xFF) << 16
+                | (value[BINARY_CHECKSUM_OFFSET + 2] & 0xFF) << 8 | (value[BINARY_CHECKSUM_OFFSET + 3] & 0xFF);
+        return checksum == checksum(value, BINARY_HEADER_LENGTH, value.length - BINARY_HEADER_LENGTH);
+    }
+
+    /**
+     * 获取二进制格式的加密值的版本号
+     * 
+     * @since 1.2.0
+     * @param value 二进制格式的加密值
+     * @return 版本号, {@link Constants#BINARY_VERSION_V1}或{@link Constants#BINARY_VERSION_V2}
+     */
+    public static byte getBinaryVersion(byte[] value) {
+        return value[BINARY_VERSION_OFFSET];
+    }
+
+    /**
+     * 给原始密文加上二进制格式的首部
+     * 
+     * @since 1.2.0
+     * @param encryptedValue 原始密文
+     * @return 二进制格式的加密值
+     */
+    public static byte[] prefixEncryptedValue(byte[] encryptedValue) {
+        return toBinary(Constants.BINARY_VERSION_V1, encryptedValue, encryptedValue.length);
+    }
+
+    /**
+     * 给密文加上二进制格式的首部
+     * 
+     * @since 1.2.0
+     * @param version 版本号
+     * @param encrypted 密文, 带算法首部的版本包括算法标识
+     * @param length 密文的长度
+     * @return 二进制格式的加密值
+     */
+    public static byte[] toBinary(byte version, byte[] encrypted, int length) {
+        byte[] value = new byte[BINARY_HEADER_LENGTH + length];
+        System.arraycopy(Constants.BINARY_MAGIC, 0, value, 0, Constants.BINARY_MAGIC.length);
+        value[BINARY_VERSION_OFFSET] = version;
+        int checksum = checksum(encrypted, 0, length);
+        value[BINARY_CHECKSUM_OFFSET] = (byte) (checksum >>> 24);
+        value[BINARY_CHECKSUM_OFFSET + 1] = (byte) (checksum >>> 16);
+        value[BINARY_CHECKSUM_OFFSET + 2] = (byte) (checksum >>> 8);
+        value[BINARY_CHECKSUM_OFFSET + 3] = (byte) checksum;
+        System.arraycopy(encrypted, 0, value, BINARY_HEADER_LENGTH, length);
+        return value;
+    }
+
+    /**
+     * 把字符串格式的加密值转换为二进制格式, 不需要解密
+     * 
+     * @since 1.2.0
+     * @param prefixedEncryptedValue 带有前缀的加密过的值
+     * @return 二进制格式的加密值
+     */
+    public static byte[] toBinaryEncryptedValue(String prefixedEncryptedValue) {
+        String encryptedValue = unprefixEncryptedValue(prefixedEncryptedValue);
+        if (!hasHeader(encryptedValue)) {
+            return prefixEncryptedValue(Base64.getDecoder().decode(encryptedValue));
+        }
+        byte[] encrypted = Base64.getDecoder().decode(encryptedValue.substring(1));
+        return toBinary(Constants.BINARY_VERSION_V2, encrypted, encrypted.length);
+    }
+
+    /**
+     * 把二进制格式的加密值转换为字符串格式, 不需要解密
+     * 
+     * @since 1.2.0
+     * @param binaryEncryptedValue 二进制格式的加密值
+     * @return 带有前缀的加密过的值
+     */
+    public static String toPrefixedEncryptedValue(byte[] binaryEncryptedValue) {
+        String encryptedValue = Base64.getEncoder().encodeToString(
+                Arrays.copyOfRange(binaryEncryptedValue, BINARY_HEADER_LENGTH, binaryEncryptedValue.length));
+        if (getBinaryVersion(binaryEncryptedValue) == Constants.BINARY_VERSION_V2) {
+            return prefixEncryptedValue(Constants.HEADER_MARKER + encryptedValue);
+        }
+        return prefixEncryptedValue(encryptedValue);
+    }
+
+    /**
+     * 去掉前缀后的加密值是否带有算法首部
+     * 
+     * @since 1.2.0
+     * @param encryptedValue 去掉前缀后的加密值
+     * @return 是否带有算法首部
+     */
+    public static boolean hasHeader(String encryptedValue) {
+        return !encryptedValue.isEmpty() && encryptedValue.charAt(0) == Constants.HEADER_MARKER;
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
 }
\ No newline at end of file
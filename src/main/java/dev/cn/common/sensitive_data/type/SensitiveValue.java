@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.type;
+
+import java.util.Objects;
+
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+/**
+ * 支持延迟解密的敏感字符串
+ *
+ * 从数据库读取时只保存密文, 首次调用{@link #get()}时才解密并缓存明文, 从未读取的字段不产生解密开销.
+ * 写入时由加密拦截器计算密文并保存在对象内部, 对象本身始终可以读到明文.
+ * 需要配合{@link SensitiveValueTypeHandler}使用.
+ *
+ * {@link #toString()}不输出明文, 避免日志中泄露; equals和hashCode按存储值比较, 不会触发解密.
+ *
+ * @since 1.2.0
+ */
+public final class SensitiveValue {
+
+    /**
+     * 密文解密器, 由解密拦截器绑定
+     */
+    @FunctionalInterface
+    public interface Decrypter {
+
+        /**
+         * 解密带前缀的密文
+         *
+         * @param prefixedEncryptedValue 带前缀的密文
+         * @return 明文
+         * @throws Exception 解密异常
+         */
+        String decrypt(String prefixedEncryptedValue) throws Exception;
+    }
+
+    private static final String MASK = "******";
+
+    private volatile String plaintext;
+    private volatile String encryptedValue;
+    private volatile Decrypter decrypter;
+
+    private SensitiveValue(String plaintext, String encryptedValue) {
+        this.plaintext = plaintext;
+        this.encryptedValue = encryptedValue;
+    }
+
+    /**
+     * 由明文创建
+     *
+     * @param plaintext 明文
+     * @return 敏感字符串
+     */
+    public static SensitiveValue of(String plaintext) {
+        return new SensitiveValue(Objects.requireNonNull(plaintext, "plaintext"), null);
+    }
+
+    /**
+     * 由数据库中存储的值创建, 带有加密前缀时视为密文, 否则视为历史明文数据
+     *
+     * @param storedValue 数据库中存储的值
+     * @return 敏感字符串
+     */
+    public static SensitiveValue ofStored(String storedValue) {
+        Objects.requireNonNull(storedValue, "storedValue");
+        return ValueHelper.isEncrypted(storedValue) ? new SensitiveValue(null, storedValue)
+                : new SensitiveValue(storedValue, null);
+    }
+
+    /**
+     * 获取明文, 首次调用时解密
+     *
+     * @return 明文
+     */
+    public String get() {
+        String value = plaintext;
+        if (value != null) {
+            return value;
+        }
+
+        Decrypter currentDecrypter = decrypter;
+        if (currentDecrypter == null) {
+            throw new IllegalStateException("密文尚未绑定解密器, 请确认已启用透明加解密");
+        }
+        try {
+            value = currentDecrypter.decrypt(encryptedValue);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("解密失败", e);
+        }
+        plaintext = value;
+        return value;
+    }
+
+    /**
+     * 明文是否已可用(由明文创建或已解密)
+     *
+     * @return 是否已解密
+     */
+    public boolean isDecrypted() {
+        return plaintext != null;
+    }
+
+    /**
+     * 是否已有密文
+     *
+     * @return 是否已加密
+     */
+    public boolean isEncrypted() {
+        return encryptedValue != null;
+    }
+
+    /**
+     * 获取带前缀的密文
+     *
+     * @return 密文, 尚未加密时返回null
+     */
+    public String getEncryptedValue() {
+        return encryptedValue;
+    }
+
+    /**
+     * 获取写入数据库的值: 已加密时为密文, 否则为明文
+     *
+     * @return 写入数据库的值
+     */
+    public String getStoredValue() {
+        String value = encryptedValue;
+        return value != null ? value : plaintext;
+    }
+
+    /**
+     * 绑定解密器, 由解密拦截器调用
+     *
+     * @param decrypter 解密器
+     */
+    public void bind(Decrypter decrypter) {
+        this.decrypter = decrypter;
+    }
+
+    /**
+     * 保存加密结果, 由加密拦截器调用
+     *
+     * @param prefixedEncryptedValue 带前缀的密文
+     */
+    public void encrypted(String prefixedEncryptedValue) {
+        this.encryptedValue = prefixedEncryptedValue;
+    }
+
+    /**
+     * 按存储值({@link #getStoredValue()})比较, 不会触发解密.
+     * 随机IV模式下相同明文的密文不同, 比较明文需要使用{@code get().equals(...)};
+     * 加密后存储值会变为密文, 不要在写入前把对象作为HashMap的键.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SensitiveValue)) {
+            return false;
+        }
+        return getStoredValue().equals(((SensitiveValue) o).getStoredValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return getStoredValue().hashCode();
+    }
+
+    /**
+     * 返回固定的掩码, 不输出明文也不触发解密, 读取明文使用{@link #get()}
+     */
+    @Override
+    public String toString() {
+        return MASK;
+    }
+}
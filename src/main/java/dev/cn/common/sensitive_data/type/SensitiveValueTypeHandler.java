@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.type;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedTypes;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+
+/**
+ * SensitiveValue与字符串列之间的转换
+ *
+ * 拦截器模式下只负责读写数据库中存储的值: 加密由加密拦截器完成, 解密在首次调用SensitiveValue.get()时完成.
+ * 类型处理器模式下拦截器不再处理, 由此处在写入时加密, 读取时绑定解密器.
+ * 可通过mybatis.type-handlers-package=dev.cn.common.sensitive_data.type注册.
+ *
+ * @since 1.2.0
+ */
+@MappedTypes(SensitiveValue.class)
+public class SensitiveValueTypeHandler extends BaseTypeHandler<SensitiveValue> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, SensitiveValue parameter, JdbcType jdbcType)
+            throws SQLException {
+        if (!parameter.isEncrypted() && CryptoEngineHolder.get() != null) {
+            try {
+                parameter.encrypted(CryptoEngineHolder.encrypt(parameter.get()));
+            } catch (Exception e) {
+                throw new SQLException("加密失败", e);
+            }
+        }
+        ps.setString(i, parameter.getStoredValue());
+    }
+
+    @Override
+    public SensitiveValue getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toValue(rs.getString(columnName));
+    }
+
+    @Override
+    public SensitiveValue getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toValue(rs.getString(columnIndex));
+    }
+
+    @Override
+    public SensitiveValue getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toValue(cs.getString(columnIndex));
+    }
+
+    private static SensitiveValue toValue(String storedValue) {
+        if (storedValue == null) {
+            return null;
+        }
+        SensitiveValue value = SensitiveValue.ofStored(storedValue);
+        if (value.isEncrypted() && CryptoEngineHolder.get() != null) {
+            value.bind(CryptoEngineHolder::decrypt);
+        }
+        return value;
+    }
+}
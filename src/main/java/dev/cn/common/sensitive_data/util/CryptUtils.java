@@ -28,15 +28,15 @@ import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
 
 import javax.crypto.BadPaddingException;
-import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyGenerator;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.SecretKeySpec;
 
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+
 public class CryptUtils {
 
     private static final String SHA_512 = "SHA-512";
@@ -58,16 +58,8 @@ public class CryptUtils {
     public static String encrypt(String content, String key, String keyAlgorithm, String cipherAlgorithm)
             throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
             BadPaddingException {
-        Cipher cipher = Cipher.getInstance(cipherAlgorithm);// 创建密码器
-
-        byte[] byteContent = content.getBytes(StandardCharsets.UTF_8);
-
-        cipher.init(Cipher.ENCRYPT_MODE, getSecretKey(key, keyAlgorithm));// 初始化为加密模式的密码器
-
-        byte[] result = cipher.doFinal(byteContent);// 加密
-
-        // Base64是一种基于64个可打印字符来表示二进制数据的表示方法。
-        return Base64.getEncoder().encodeToString(result);// 通过Base64转码返回
+        // 复用共享引擎中已派生的秘钥和已初始化的密码器
+        return CryptoEngine.getInstance(key, keyAlgorithm, cipherAlgorithm).encrypt(content);
     }
 
     /**
@@ -87,17 +79,7 @@ public class CryptUtils {
     public static String decrypt(String content, String key, String keyAlgorithm, String cipherAlgorithm)
             throws NoSuchAlgorithmException, NoSuchPaddingException, InvalidKeyException, IllegalBlockSizeException,
             BadPaddingException {
-        // 实例化
-        Cipher cipher = Cipher.getInstance(cipherAlgorithm);
-
-        // 使用密钥初始化，设置为解密模式
-        cipher.init(Cipher.DECRYPT_MODE, getSecretKey(key, keyAlgorithm));
-
-        // 执行操作
-        // Base64是一种基于64个可打印字符来表示二进制数据的表示方法。
-        byte[] result = cipher.doFinal(Base64.getDecoder().decode(content));
-
-        return new String(result, StandardCharsets.UTF_8);
+        return CryptoEngine.getInstance(key, keyAlgorithm, cipherAlgorithm).decrypt(content);
     }
 
     /**
@@ -0,0 +1,315 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.FieldCodecs;
+
+public class DecryptInterceptorTest {
+
+    private static final String KEY = "test-key-123456";
+
+    @SensitiveData
+    static class UserPO {
+
+        @SensitiveField
+        String tel;
+
+        List<UserPO> friends;
+    }
+
+    @SensitiveData
+    static class DocumentPO {
+
+        @SensitiveField
+        byte[] content;
+    }
+
+    static class GroupDTO {
+
+        UserPO owner;
+    }
+
+    @SensitiveData
+    public static class AccountPO {
+
+        Long id;
+        @SensitiveField
+        String tel;
+    }
+
+    public interface AccountMapper {
+
+        @Select("SELECT id, tel FROM t_account ORDER BY id")
+        Cursor<AccountPO> selectCursor();
+
+        @Select("SELECT id, tel FROM t_account ORDER BY id")
+        @ResultType(AccountPO.class)
+        void select(ResultHandler<AccountPO> handler);
+    }
+
+    @Test
+    public void testDecryptsEveryRowAndNestedObjects() throws Throwable {
+        CryptoEngine engine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding");
+        UserPO friend = new UserPO();
+        friend.tel = engine.encryptPrefixed("13900139000");
+        UserPO user = new UserPO();
+        user.tel = engine.encryptPrefixed("13800138000");
+        user.friends = Arrays.asList(friend);
+        GroupDTO group = new GroupDTO();
+        group.owner = user;
+
+        // 第一行不是敏感对象时, 后面的行仍然需要解密
+        List<Object> rows = new ArrayList<>(Arrays.asList("plain", group));
+        handleResultSets(newInterceptor(""), rows);
+
+        assertEquals("13800138000", user.tel);
+        assertEquals("13900139000", friend.tel);
+    }
+
+    @Test
+    public void testKeepsBinaryPlaintextThatLooksLikeHeader() throws Throwable {
+        CryptoEngine engine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding");
+        DocumentPO legacy = new DocumentPO();
+        // 历史明文: 带BOM的UTF-16 BE文本, 以及开头与首部相同但校验值不匹配的字节
+        legacy.content = "\uFEFF张三".getBytes(StandardCharsets.UTF_16BE);
+        DocumentPO forged = new DocumentPO();
+        forged.content = new byte[] { (byte) 0xFE, 'S', 'D', 2, 1, 2, 3, 4, 42 };
+        DocumentPO encrypted = new DocumentPO();
+        encrypted.content = engine.encryptToBinary(legacy.content, FieldCodecs.BYTES);
+        byte[] legacyContent = legacy.content;
+        byte[] forgedContent = forged.content;
+
+        handleResultSets(newInterceptor(""), new ArrayList<>(Arrays.asList(legacy, forged, encrypted)));
+
+        assertSame(legacyContent, legacy.content);
+        assertSame(forgedContent, forged.content);
+        assertArrayEquals(legacyContent, encrypted.content);
+    }
+
+    @Test
+    public void testDecryptsConfiguredMapColumns() throws Throwable {
+        CryptoEngine engine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding");
+        Map<String, Object> row = new HashMap<>();
+        row.put("TEL", engine.encryptPrefixed("13800138000"));
+        row.put("ID_CARD", engine.encryptPrefixed("110101"));
+
+        handleResultSets(newInterceptor("tel"), new ArrayList<>(Arrays.asList(row)));
+
+        // 列名不区分大小写, 未配置的列保持密文
+        assertEquals("13800138000", row.get("TEL"));
+        assertEquals(engine.encryptPrefixed("110101"), row.get("ID_CARD"));
+    }
+
+    @Test
+    public void testDecryptsCursorRowByRow() throws Throwable {
+        SqlSessionFactory sessionFactory = newSessionFactory(3);
+        try (SqlSession session = sessionFactory.openSession()) {
+            Cursor<AccountPO> cursor = session.getMapper(AccountMapper.class).selectCursor();
+            Iterator<AccountPO> iterator = cursor.iterator();
+            for (long id = 1; id <= 3; id++) {
+                // 每取出一行时该行已解密
+                AccountPO account = iterator.next();
+                assertEquals(id, account.id.longValue());
+                assertEquals("1380013800" + id, account.tel);
+                assertEquals(id - 1, cursor.getCurrentIndex());
+            }
+            assertFalse(iterator.hasNext());
+            assertTrue(cursor.isConsumed());
+        }
+    }
+
+    @Test
+    public void testDecryptsRowsBeforeCallerResultHandler() throws Throwable {
+        SqlSessionFactory sessionFactory = newSessionFactory(3);
+        List<String> seen = new ArrayList<>();
+        try (SqlSession session = sessionFactory.openSession()) {
+            // 调用方的ResultHandler收到的是明文, 记录收到时的值而不是最终的对象
+            session.getMapper(AccountMapper.class).select(context -> seen.add(context.getResultObject().tel));
+        }
+        assertEquals(Arrays.asList("13800138001", "13800138002", "13800138003"), seen);
+    }
+
+    @Test
+    public void testClosesWrappedCursor() throws Throwable {
+        CryptoEngine engine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding");
+        UserPO user = new UserPO();
+        user.tel = engine.encryptPrefixed("13800138000");
+        boolean[] closed = new boolean[1];
+        Cursor<UserPO> delegate = new Cursor<UserPO>() {
+
+            @Override
+            public boolean isOpen() {
+                return !closed[0];
+            }
+
+            @Override
+            public boolean isConsumed() {
+                return false;
+            }
+
+            @Override
+            public int getCurrentIndex() {
+                return 0;
+            }
+
+            @Override
+            public Iterator<UserPO> iterator() {
+                return Arrays.asList(user).iterator();
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        ResultSetHandler resultSetHandler = new ResultSetHandler() {
+
+            @Override
+            public <E> List<E> handleResultSets(Statement stmt) {
+                return null;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public <E> Cursor<E> handleCursorResultSets(Statement stmt) {
+                return (Cursor<E>) delegate;
+            }
+
+            @Override
+            public void handleOutputParameters(CallableStatement cs) {
+            }
+        };
+
+        @SuppressWarnings("unchecked")
+        Cursor<UserPO> cursor = (Cursor<UserPO>) newInterceptor("").intercept(new Invocation(resultSetHandler,
+                ResultSetHandler.class.getMethod("handleCursorResultSets", Statement.class), new Object[] { null }));
+        assertNotSame(delegate, cursor);
+        // 取出之前不解密
+        assertNotEquals("13800138000", user.tel);
+        assertEquals("13800138000", cursor.iterator().next().tel);
+
+        assertTrue(cursor.isOpen());
+        cursor.close();
+        assertTrue(closed[0]);
+        assertFalse(cursor.isOpen());
+    }
+
+    private static SqlSessionFactory newSessionFactory(int rows) throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        CryptoEngine engine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding");
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE t_account (id BIGINT PRIMARY KEY, tel VARCHAR(255))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO t_account VALUES (?, ?)")) {
+                for (int i = 1; i <= rows; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, engine.encryptPrefixed("1380013800" + i));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+
+        Configuration configuration = new Configuration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.addInterceptor(newInterceptor(""));
+        configuration.addMapper(AccountMapper.class);
+        return new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    private static DecryptInterceptor newInterceptor(String mapResultColumns) throws Exception {
+        DecryptInterceptor interceptor = new DecryptInterceptor();
+        set(interceptor, "enabled", true);
+        set(interceptor, "key", KEY);
+        set(interceptor, "keyAlgorithm", "AES");
+        set(interceptor, "cipherAlgorithm", "AES/ECB/PKCS5Padding");
+        set(interceptor, "mapResultColumns", mapResultColumns);
+        return interceptor;
+    }
+
+    private static void handleResultSets(DecryptInterceptor interceptor, List<Object> rows) throws Throwable {
+        ResultSetHandler resultSetHandler = new ResultSetHandler() {
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public <E> List<E> handleResultSets(Statement stmt) {
+                return (List<E>) rows;
+            }
+
+            @Override
+            public <E> Cursor<E> handleCursorResultSets(Statement stmt) {
+                return null;
+            }
+
+            @Override
+            public void handleOutputParameters(CallableStatement cs) {
+            }
+        };
+        interceptor.intercept(new Invocation(resultSetHandler,
+                ResultSetHandler.class.getMethod("handleResultSets", Statement.class), new Object[] { null }));
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
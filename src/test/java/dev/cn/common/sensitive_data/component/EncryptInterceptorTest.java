@@ -0,0 +1,468 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+
+import dev.cn.common.sensitive_data.annotation.BlindIndex;
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.annotation.SensitiveParam;
+import dev.cn.common.sensitive_data.crypto.BlindIndexer;
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.FieldCodecs;
+import dev.cn.common.sensitive_data.metrics.CryptoMetrics;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+import dev.cn.common.sensitive_data.util.CryptUtils;
+
+public class EncryptInterceptorTest {
+
+    private static final String KEY = "test-key-123456";
+
+    @SensitiveData
+    static class UserPO {
+
+        @SensitiveField
+        String tel;
+
+        UserPO(String tel) {
+            this.tel = tel;
+        }
+    }
+
+    @SensitiveData
+    static class DocumentPO {
+
+        @SensitiveField
+        byte[] content;
+
+        DocumentPO(byte[] content) {
+            this.content = content;
+        }
+    }
+
+    @SensitiveData
+    static class IndexedUserPO {
+
+        @SensitiveField(blindIndex = "tel_bidx")
+        String tel;
+
+        String telBidx;
+
+        IndexedUserPO(String tel) {
+            this.tel = tel;
+        }
+    }
+
+    @SensitiveData
+    static class ProfiledUserPO {
+
+        @SensitiveField(keyAlias = "phone", profile = "lookup")
+        String tel;
+
+        @SensitiveField
+        String remark;
+
+        ProfiledUserPO(String tel, String remark) {
+            this.tel = tel;
+            this.remark = remark;
+        }
+    }
+
+    interface UserMapper {
+
+        List<IndexedUserPO> selectByTel(@BlindIndex @Param("tel") String tel, @Param("name") String name);
+
+        List<IndexedUserPO> selectByTels(@SensitiveParam @Param("tels") List<String> tels, @Param("name") String name);
+
+        IndexedUserPO selectByMobile(@SensitiveParam String mobile);
+
+        List<IndexedUserPO> selectByTelsOrRemarks(@SensitiveParam @Param("tels") List<String> tels,
+                @Param("remarks") List<String> remarks);
+
+        List<IndexedUserPO> selectByAnyTel(@BlindIndex @Param("tels") List<String> tels);
+
+        ProfiledUserPO selectByPhone(@SensitiveParam(keyAlias = "phone", profile = "lookup") String phone);
+    }
+
+    @Test
+    public void testEncryptsEntitiesInsideContainers() throws Throwable {
+        List<UserPO> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            users.add(new UserPO("1380013800" + i));
+        }
+        UserPO[] array = { new UserPO("13900139000") };
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("users", Collections.singletonList(new UserPO("13700137000")));
+
+        // foreach批量插入时, 同一个List会以list、collection等多个键出现
+        ParamMap<Object> paramMap = new ParamMap<>();
+        paramMap.put("list", users);
+        paramMap.put("collection", users);
+        paramMap.put("array", array);
+        paramMap.put("nested", nested);
+
+        intercept(newInterceptor(false), paramMap);
+
+        for (int i = 0; i < 10; i++) {
+            assertEncrypted("1380013800" + i, users.get(i).tel);
+        }
+        assertEncrypted("13900139000", array[0].tel);
+        assertEncrypted("13700137000", ((UserPO) ((List<?>) nested.get("users")).get(0)).tel);
+    }
+
+    @Test
+    public void testEncryptsLargeBatchInParallel() throws Throwable {
+        List<UserPO> users = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            users.add(new UserPO("tel-" + i));
+        }
+
+        EncryptInterceptor interceptor = newInterceptor(true);
+        try {
+            intercept(interceptor, users);
+        } finally {
+            interceptor.destroy();
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            assertEncrypted("tel-" + i, users.get(i).tel);
+        }
+    }
+
+    @Test
+    public void testEncryptsEachObjectOncePerStatement() throws Throwable {
+        UserPO user = new UserPO("13800138000");
+        ParamMap<Object> paramMap = new ParamMap<>();
+        paramMap.put("et", user);
+        paramMap.put("param1", user);
+        paramMap.put("user", user);
+
+        EncryptInterceptor interceptor = newInterceptor(false);
+        List<Integer> fieldCounts = new ArrayList<>();
+        set(interceptor, "cryptoMetrics", (CryptoMetrics) (operation, statementId, fieldCount, bytes, nanos) ->
+                fieldCounts.add(fieldCount));
+        intercept(interceptor, paramMap);
+
+        assertEquals(Collections.singletonList(1), fieldCounts);
+        assertEncrypted("13800138000", user.tel);
+    }
+
+    @Test
+    public void testSkipsUnchangedObjects() throws Throwable {
+        UserPO user = new UserPO("13800138000");
+
+        EncryptInterceptor interceptor = newInterceptor(false);
+        set(interceptor, "skipUnchangedEnabled", true);
+        List<Integer> fieldCounts = new ArrayList<>();
+        set(interceptor, "cryptoMetrics", (CryptoMetrics) (operation, statementId, fieldCount, bytes, nanos) ->
+                fieldCounts.add(fieldCount));
+
+        intercept(interceptor, user);
+        String encrypted = user.tel;
+        // 重试时对象没有变化, 不再处理
+        intercept(interceptor, user);
+        assertSame(encrypted, user.tel);
+        assertEquals(Collections.singletonList(1), fieldCounts);
+
+        // 字段被修改后重新加密
+        user.tel = "13900139000";
+        intercept(interceptor, user);
+        assertEncrypted("13900139000", user.tel);
+        assertEquals(2, fieldCounts.size());
+    }
+
+    @Test
+    public void testEncryptCacheIsOptIn() throws Throwable {
+        // 加密缓存以明文为键, 默认不创建
+        EncryptInterceptor interceptor = newInterceptor(false);
+        intercept(interceptor, new UserPO("13800138000"));
+        assertNull(interceptor.getEncryptCache());
+
+        set(interceptor, "encryptCacheEnabled", true);
+        set(interceptor, "encryptCacheMaxEntries", 100);
+        set(interceptor, "encryptCacheMaxBytes", 1024 * 1024L);
+        UserPO user1 = new UserPO("13800138000");
+        UserPO user2 = new UserPO("13800138000");
+        intercept(interceptor, user1);
+        intercept(interceptor, user2);
+        assertEquals(user1.tel, user2.tel);
+        assertEquals(1, interceptor.getEncryptCache().getStats().getHitCount());
+
+        // 关闭时清空缓存中的明文
+        interceptor.destroy();
+        assertEquals(0, interceptor.getEncryptCache().getStats().getSize());
+    }
+
+    @Test
+    public void testEncryptsBinaryPlaintextThatLooksLikeHeader() throws Throwable {
+        EncryptInterceptor interceptor = newInterceptor(false);
+        CryptoEngine engine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding");
+        // 带BOM的UTF-16 BE文本以FE FF开头
+        byte[] utf16 = "\uFEFF张三".getBytes(StandardCharsets.UTF_16BE);
+        assertEquals((byte) 0xFE, utf16[0]);
+        // 与二进制格式首部开头相同但校验值不匹配的明文
+        byte[] forged = { (byte) 0xFE, 'S', 'D', 1, 0, 0, 0, 0, 42 };
+
+        for (byte[] plaintext : Arrays.asList(utf16, forged)) {
+            DocumentPO document = new DocumentPO(plaintext.clone());
+            intercept(interceptor, document);
+            byte[] encrypted = document.content;
+            assertTrue(ValueHelper.isEncrypted(encrypted));
+            assertArrayEquals(plaintext, engine.decryptBinary(encrypted, FieldCodecs.BYTES));
+
+            // 本拦截器加密过的实例再次写入时不重复加密
+            intercept(interceptor, document);
+            assertSame(encrypted, document.content);
+        }
+    }
+
+    @Test
+    public void testBlindIndex() throws Throwable {
+        EncryptInterceptor interceptor = newInterceptor(false);
+        String expected = interceptor.getBlindIndexer().index("13800138000");
+
+        // 写入时维护盲索引字段
+        IndexedUserPO user = new IndexedUserPO("13800138000");
+        intercept(interceptor, user);
+        assertEncrypted("13800138000", user.tel);
+        assertEquals(expected, user.telBidx);
+
+        // 查询时把@BlindIndex参数替换为盲索引, 其他参数不变
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> mappings = new ArrayList<>();
+        mappings.add(new ParameterMapping.Builder(configuration, "tel", String.class).build());
+        mappings.add(new ParameterMapping.Builder(configuration, "name", String.class).build());
+        ParamMap<Object> paramMap = new ParamMap<>();
+        paramMap.put("tel", "13800138000");
+        paramMap.put("name", "alice");
+        paramMap.put("param1", "13800138000");
+        paramMap.put("param2", "alice");
+        Map<Integer, Object> values = setParameters(interceptor, configuration, "selectByTel",
+                new StaticSqlSource(configuration, "SELECT * FROM user WHERE tel_bidx = ? AND name = ?", mappings),
+                paramMap);
+
+        assertEquals(expected, values.get(1));
+        assertEquals("alice", values.get(2));
+        assertEquals("13800138000", paramMap.get("tel"));
+    }
+
+    @Test
+    public void testEncryptsSensitiveParams() throws Throwable {
+        EncryptInterceptor interceptor = newInterceptor(false);
+        Configuration configuration = new Configuration();
+
+        // IN查询中foreach生成的每个参数都替换为密文
+        List<String> tels = Arrays.asList("13800138000", "13900139000");
+        ParamMap<Object> paramMap = new ParamMap<>();
+        paramMap.put("tels", tels);
+        paramMap.put("name", "alice");
+        paramMap.put("param1", tels);
+        paramMap.put("param2", "alice");
+        SqlSource sqlSource = configuration.getDefaultScriptingLanguageInstance().createSqlSource(configuration,
+                "<script>SELECT * FROM user WHERE tel IN <foreach collection='tels' item='tel' open='(' separator=','"
+                        + " close=')'>#{tel}</foreach> AND name = #{name}</script>", null);
+        Map<Integer, Object> values = setParameters(interceptor, configuration, "selectByTels", sqlSource, paramMap);
+
+        assertEncrypted("13800138000", (String) values.get(1));
+        assertEncrypted("13900139000", (String) values.get(2));
+        assertEquals("alice", values.get(3));
+        assertEquals(Arrays.asList("13800138000", "13900139000"), tels);
+
+        // 单个未加@Param的参数
+        List<ParameterMapping> mappings = Collections.singletonList(
+                new ParameterMapping.Builder(configuration, "tel", String.class).build());
+        values = setParameters(interceptor, configuration, "selectByMobile",
+                new StaticSqlSource(configuration, "SELECT * FROM user WHERE tel = ?", mappings), "13800138000");
+        assertEncrypted("13800138000", (String) values.get(1));
+    }
+
+    @Test
+    public void testMatchesForeachItemsByCollection() throws Throwable {
+        EncryptInterceptor interceptor = newInterceptor(false);
+        Configuration configuration = new Configuration();
+
+        // 未注解的集合中有同一个String实例(如常量或intern的字符串)时不能被加密
+        String shared = "13800138000";
+        List<String> tels = Arrays.asList(shared, "13900139000");
+        List<String> remarks = Arrays.asList(shared);
+        ParamMap<Object> paramMap = new ParamMap<>();
+        paramMap.put("tels", tels);
+        paramMap.put("remarks", remarks);
+        paramMap.put("param1", tels);
+        paramMap.put("param2", remarks);
+        SqlSource sqlSource = configuration.getDefaultScriptingLanguageInstance().createSqlSource(configuration,
+                "<script>SELECT * FROM user WHERE <where><if test='tels != null'>tel IN <foreach collection='param1'"
+                        + " item='tel' open='(' separator=',' close=')'>#{tel}</foreach></if>"
+                        + " OR remark IN <foreach collection='remarks' item='remark' open='(' separator=','"
+                        + " close=')'>#{remark}</foreach></where></script>", null);
+        Map<Integer, Object> values = setParameters(interceptor, configuration, "selectByTelsOrRemarks", sqlSource,
+                paramMap);
+
+        assertEncrypted("13800138000", (String) values.get(1));
+        assertEncrypted("13900139000", (String) values.get(2));
+        assertEquals("13800138000", values.get(3));
+    }
+
+    @Test
+    public void testRewritesRepeatedForeachItemOnce() throws Throwable {
+        EncryptInterceptor interceptor = newInterceptor(false);
+        Configuration configuration = new Configuration();
+
+        // 同一个foreach元素在SQL中引用两次, 两处都是盲索引而不是对盲索引再计算一次
+        List<String> tels = Arrays.asList("13800138000", "13900139000");
+        ParamMap<Object> paramMap = new ParamMap<>();
+        paramMap.put("tels", tels);
+        paramMap.put("param1", tels);
+        SqlSource sqlSource = configuration.getDefaultScriptingLanguageInstance().createSqlSource(configuration,
+                "<script>SELECT * FROM user WHERE <foreach collection='tels' item='tel' separator=' OR '>"
+                        + "(tel_bidx = #{tel} OR mobile_bidx = #{tel})</foreach></script>", null);
+        Map<Integer, Object> values = setParameters(interceptor, configuration, "selectByAnyTel", sqlSource, paramMap);
+
+        BlindIndexer indexer = interceptor.getBlindIndexer();
+        assertEquals(indexer.index("13800138000"), values.get(1));
+        assertEquals(indexer.index("13800138000"), values.get(2));
+        assertEquals(indexer.index("13900139000"), values.get(3));
+        assertEquals(indexer.index("13900139000"), values.get(4));
+    }
+
+    @Test
+    public void testPerFieldKeyAndProfile() throws Throwable {
+        EncryptInterceptor interceptor = newInterceptor(false);
+        set(interceptor, "cipherStrategy", "GCM");
+        set(interceptor, "keys", "1:second-key");
+        set(interceptor, "keyAliases", "phone:1");
+        set(interceptor, "profiles", "lookup:ECB");
+        CryptoEngine engine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding", "GCM", "1:second-key", 0);
+
+        ProfiledUserPO user1 = new ProfiledUserPO("13800138000", "备注");
+        ProfiledUserPO user2 = new ProfiledUserPO("13800138000", "备注");
+        intercept(interceptor, user1);
+        intercept(interceptor, user2);
+
+        // 按别名使用1号秘钥, 按算法配置使用确定性的ECB
+        assertEquals(1, CryptoEngine.getKeyId(user1.tel));
+        assertEquals(user1.tel, user2.tel);
+        assertEquals("13800138000", engine.decryptPrefixed(user1.tel));
+        // 其他字段使用全局配置的秘钥和GCM
+        assertEquals(0, CryptoEngine.getKeyId(user1.remark));
+        assertNotEquals(user1.remark, user2.remark);
+        assertEquals("备注", engine.decryptPrefixed(user1.remark));
+
+        // 查询参数使用相同的秘钥和算法, 可以按密文匹配
+        Configuration configuration = new Configuration();
+        List<ParameterMapping> mappings = Collections.singletonList(
+                new ParameterMapping.Builder(configuration, "phone", String.class).build());
+        Map<Integer, Object> values = setParameters(interceptor, configuration, "selectByPhone",
+                new StaticSqlSource(configuration, "SELECT * FROM user WHERE tel = ?", mappings), "13800138000");
+        assertEquals(user1.tel, values.get(1));
+    }
+
+    private static Map<Integer, Object> setParameters(EncryptInterceptor interceptor, Configuration configuration,
+            String method, SqlSource sqlSource, Object parameterObject) throws Throwable {
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration,
+                UserMapper.class.getName() + "." + method, sqlSource, SqlCommandType.SELECT).build();
+        BoundSql boundSql = mappedStatement.getBoundSql(parameterObject);
+
+        Map<Integer, Object> values = new HashMap<>();
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(EncryptInterceptorTest.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, m, args) -> {
+                    if (m.getName().equals("setString")) {
+                        values.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+        interceptor.intercept(new Invocation(new DefaultParameterHandler(mappedStatement, parameterObject, boundSql),
+                ParameterHandler.class.getMethod("setParameters", PreparedStatement.class), new Object[] { ps }));
+        return values;
+    }
+
+    private static void assertEncrypted(String plaintext, String value) throws Exception {
+        assertTrue(ValueHelper.isEncrypted(value));
+        assertEquals(plaintext, CryptUtils.decrypt(ValueHelper.unprefixEncryptedValue(value), KEY, "AES",
+                "AES/ECB/PKCS5Padding"));
+    }
+
+    private static EncryptInterceptor newInterceptor(boolean parallel) throws Exception {
+        EncryptInterceptor interceptor = new EncryptInterceptor();
+        set(interceptor, "enabled", true);
+        set(interceptor, "key", KEY);
+        set(interceptor, "keyAlgorithm", "AES");
+        set(interceptor, "cipherAlgorithm", "AES/ECB/PKCS5Padding");
+        set(interceptor, "parallelEnabled", parallel);
+        set(interceptor, "parallelThreshold", 1000);
+        set(interceptor, "parallelChunkSize", 128);
+        set(interceptor, "blindIndexKey", "");
+        set(interceptor, "blindIndexLength", 16);
+        return interceptor;
+    }
+
+    private static void intercept(EncryptInterceptor interceptor, Object parameterObject) throws Throwable {
+        ParameterHandler parameterHandler = new ParameterHandler() {
+
+            @Override
+            public Object getParameterObject() {
+                return parameterObject;
+            }
+
+            @Override
+            public void setParameters(PreparedStatement ps) {
+            }
+        };
+        interceptor.intercept(new Invocation(parameterHandler,
+                ParameterHandler.class.getMethod("setParameters", PreparedStatement.class), new Object[] { null }));
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
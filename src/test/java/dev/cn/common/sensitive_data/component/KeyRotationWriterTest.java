@@ -0,0 +1,230 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+
+public class KeyRotationWriterTest {
+
+    private static final String KEY = "test-key-123456";
+
+    private StubDataSource dataSource;
+    private CryptoEngine oldEngine;
+    private CryptoEngine engine;
+
+    /**
+     * 与关闭了自动提交的连接池一样, 连接默认不自动提交; 可以阻塞获取连接以控制回写的时机
+     */
+    static class StubDataSource implements DataSource {
+
+        private final JdbcDataSource delegate = new JdbcDataSource();
+        private final AtomicInteger connections = new AtomicInteger();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        StubDataSource() {
+            delegate.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        }
+
+        Connection open() throws SQLException {
+            return delegate.getConnection();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            connections.incrementAndGet();
+            Connection connection = delegate.getConnection();
+            connection.setAutoCommit(false);
+            return connection;
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException("not a wrapper");
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataSource = new StubDataSource();
+        oldEngine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding", "GCM", "1:second-key-1234", 0);
+        engine = CryptoEngine.getInstance(KEY, "AES", "AES/ECB/PKCS5Padding", "GCM", "1:second-key-1234", 1);
+
+        try (Connection connection = dataSource.open()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE t_user (id BIGINT PRIMARY KEY, tel VARCHAR(255))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO t_user VALUES (?, ?)")) {
+                for (int i = 1; i <= 100; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, oldEngine.encryptPrefixed("tel-" + i));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    @Test
+    public void testRewritesOnlyUnchangedRows() throws Exception {
+        String stale = oldEngine.encryptPrefixed("tel-old");
+        KeyRotationWriter writer = new KeyRotationWriter(dataSource, engine, 100, 10, 0);
+        try {
+            assertTrue(writer.submit("t_user", "id", 1L, "tel", tel(1)));
+            assertTrue(writer.submit("t_user", "id", 2L, "tel", tel(2)));
+            // 行在读取之后已被修改, 旧密文不再匹配
+            assertTrue(writer.submit("t_user", "id", 3L, "tel", stale));
+        } finally {
+            // 关闭时等待已提交的任务执行完
+            writer.close();
+        }
+        assertEquals(2, writer.getRewrittenCount());
+        assertEquals(1, writer.getSkippedCount());
+        assertEquals(0, writer.getFailedCount());
+
+        // 从另一个连接读取, 回写已提交
+        for (int i = 1; i <= 3; i++) {
+            String value = tel(i);
+            assertEquals(i < 3 ? 1 : 0, CryptoEngine.getKeyId(value), "id=" + i);
+            assertEquals("tel-" + i, engine.decryptPrefixed(value));
+        }
+    }
+
+    @Test
+    public void testDeduplicatesPendingTasks() throws Exception {
+        dataSource.gate = new CountDownLatch(1);
+        KeyRotationWriter writer = new KeyRotationWriter(dataSource, engine, 100, 10, 0);
+        try {
+            // 回写完成之前, 无论任务在队列中还是正在执行都不会重复提交
+            assertTrue(writer.submit("t_user", "id", 1L, "tel", tel(1)));
+            assertFalse(writer.submit("t_user", "id", 1L, "tel", tel(1)));
+            assertTrue(writer.submit("t_user", "id", 2L, "tel", tel(2)));
+            assertFalse(writer.submit("t_user", "id", 2L, "tel", tel(2)));
+            assertEquals(2, writer.getSubmittedCount());
+        } finally {
+            dataSource.gate.countDown();
+            writer.close();
+        }
+        assertEquals(2, writer.getRewrittenCount());
+    }
+
+    @Test
+    public void testContinuesAfterFailedStatement() throws Exception {
+        KeyRotationWriter writer = new KeyRotationWriter(dataSource, engine, 100, 10, 0);
+        try {
+            writer.submit("t_missing", "id", 1L, "tel", tel(1));
+            writer.submit("t_user", "id", 1L, "tel", tel(1));
+        } finally {
+            writer.close();
+        }
+        assertEquals(1, writer.getFailedCount());
+        assertEquals(1, writer.getRewrittenCount());
+        assertEquals(1, CryptoEngine.getKeyId(tel(1)));
+    }
+
+    @Test
+    public void testLimitsRowsPerSecond() throws Exception {
+        try (KeyRotationWriter writer = new KeyRotationWriter(dataSource, engine, 100, 10, 100)) {
+            long start = System.nanoTime();
+            for (int i = 1; i <= 30; i++) {
+                writer.submit("t_user", "id", (long) i, "tel", tel(i));
+            }
+            while (writer.getRewrittenCount() < 30) {
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+                Thread.sleep(5);
+            }
+            // 最后一批之前的20行至少需要200毫秒
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+            assertTrue(dataSource.connections.get() >= 3);
+        }
+    }
+
+    private String tel(long id) throws SQLException {
+        try (Connection connection = dataSource.open();
+                PreparedStatement select = connection.prepareStatement("SELECT tel FROM t_user WHERE id = ?")) {
+            select.setLong(1, id);
+            try (ResultSet resultSet = select.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getString(1);
+            }
+        }
+    }
+}
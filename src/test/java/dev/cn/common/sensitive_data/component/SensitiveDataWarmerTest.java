@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.component;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+
+import dev.cn.common.sensitive_data.annotation.EnableTransparentCrypt;
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+
+public class SensitiveDataWarmerTest {
+
+    @SensitiveData
+    static class AccountPO {
+
+        @SensitiveField
+        String tel;
+    }
+
+    @Configuration
+    @EnableTransparentCrypt(basePackageClasses = SensitiveDataWarmerTest.class)
+    static class AppConfig {
+    }
+
+    @AfterEach
+    public void tearDown() {
+        CryptoEngineHolder.set(null);
+    }
+
+    @Test
+    public void testScansAndWarmsUpAtStartup() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("sensitive-data.data-crypt.enabled", "true");
+        properties.put("sensitive-data.data-crypt.key", "test-key-123456");
+        properties.put("sensitive-data.data-crypt.warm-up.iterations", "100");
+        try (AnnotationConfigApplicationContext context = newContext(properties)) {
+            SensitiveDataWarmer warmer = context.getBean(SensitiveDataWarmer.class);
+            assertTrue(warmer.getSensitiveClasses().contains(AccountPO.class));
+            assertTrue(warmer.getWarmUpNanos() > 0);
+            assertNotNull(CryptoEngineHolder.get());
+        }
+    }
+
+    @Test
+    public void testRejectsUnsupportedFeaturesInTypeHandlerMode() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("sensitive-data.data-crypt.enabled", "true");
+        properties.put("sensitive-data.data-crypt.key", "test-key-123456");
+        properties.put("sensitive-data.data-crypt.mode", "type-handler");
+        properties.put("sensitive-data.data-crypt.warm-up.iterations", "0");
+        properties.put("sensitive-data.data-crypt.key-aliases", "phone:0");
+        Exception e = assertThrows(Exception.class, () -> newContext(properties).close());
+        assertTrue(rootMessage(e).contains("key-aliases"));
+
+        properties.remove("sensitive-data.data-crypt.key-aliases");
+        properties.put("sensitive-data.data-crypt.key-rotation.enabled", "true");
+        e = assertThrows(Exception.class, () -> newContext(properties).close());
+        assertTrue(rootMessage(e).contains("key-rotation"));
+
+        // 扫描到的实体中有使用盲索引、keyAlias和profile的字段
+        properties.remove("sensitive-data.data-crypt.key-rotation.enabled");
+        e = assertThrows(IllegalStateException.class, () -> newContext(properties).close());
+        assertTrue(e.getMessage().contains("blindIndex"));
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        EncryptInterceptor encryptInterceptor = new EncryptInterceptor();
+        DecryptInterceptor decryptInterceptor = new DecryptInterceptor();
+        // 未启用时不创建引擎
+        assertEquals(0, encryptInterceptor.warmUp(10));
+        assertEquals(0, decryptInterceptor.warmUp(10));
+
+        for (Object interceptor : new Object[] { encryptInterceptor, decryptInterceptor }) {
+            set(interceptor, "enabled", true);
+            set(interceptor, "key", "test-key-123456");
+            set(interceptor, "keyAlgorithm", "AES");
+            set(interceptor, "cipherAlgorithm", "AES/ECB/PKCS5Padding");
+            set(interceptor, "cipherStrategy", "");
+            set(interceptor, "keys", "");
+            set(interceptor, "activeKeyId", 0);
+        }
+        set(encryptInterceptor, "blindIndexKey", "");
+        set(encryptInterceptor, "blindIndexLength", 16);
+        assertEquals(10, encryptInterceptor.warmUp(10));
+        assertEquals(3, decryptInterceptor.warmUp(3));
+        assertEquals(0, decryptInterceptor.warmUp(0));
+    }
+
+    private static AnnotationConfigApplicationContext newContext(Map<String, Object> properties) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.register(AppConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    private static String rootMessage(Throwable e) {
+        while (e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e.getMessage();
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Base64;
+
+public class BlindIndexerTest {
+
+    @Test
+    public void testIndex() throws Exception {
+        BlindIndexer indexer = new BlindIndexer("test-key-123456", 16);
+        String index = indexer.index("13800138000");
+
+        // 相同明文得到相同索引, 长度按配置截断
+        assertEquals(index, indexer.index("13800138000"));
+        assertEquals(16, Base64.getDecoder().decode(index).length);
+        assertNotEquals(index, indexer.index("13800138001"));
+        assertNotEquals(index, new BlindIndexer("other-key", 16).index("13800138000"));
+        assertEquals(32, Base64.getDecoder().decode(new BlindIndexer("test-key-123456", 32).index("")).length);
+
+        assertThrows(IllegalArgumentException.class, () -> new BlindIndexer("test-key-123456", 0));
+        assertThrows(IllegalArgumentException.class, () -> new BlindIndexer("test-key-123456", 33));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Base64;
+
+import javax.crypto.AEADBadTagException;
+
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+public class CipherStrategyTest {
+
+    private static final String KEY = "test-key-123456";
+    private static final String KEY_ALGORITHM = "AES";
+    private static final String CIPHER_ALGORITHM = "AES/ECB/PKCS5Padding";
+
+    @Test
+    public void testRoundTripWithHeader() throws Exception {
+        for (String name : new String[] { "ECB", "GCM", "ctr" }) {
+            CryptoEngine engine = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, name);
+            for (String plaintext : new String[] { "", "13800138000", "中文姓名-😀" }) {
+                String prefixed = engine.encryptPrefixed(plaintext);
+
+                assertTrue(prefixed.startsWith(ValueHelper.getEncryptedPrefix() + "#"));
+                assertEquals(plaintext, engine.decryptPrefixed(prefixed));
+                assertEquals(plaintext, engine.decrypt(engine.encrypt(plaintext)));
+                assertEquals(plaintext, engine.decryptBinary(engine.encryptToBinary(plaintext)));
+            }
+        }
+    }
+
+    @Test
+    public void testRandomIv() throws Exception {
+        CryptoEngine gcm = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, "GCM");
+        CryptoEngine ecb = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, "ECB");
+
+        assertNotEquals(gcm.encrypt("13800138000"), gcm.encrypt("13800138000"));
+        assertFalse(gcm.isDeterministic());
+        assertEquals(ecb.encrypt("13800138000"), ecb.encrypt("13800138000"));
+        assertTrue(ecb.isDeterministic());
+    }
+
+    @Test
+    public void testDecryptsMixedFormats() throws Exception {
+        CryptoEngine legacy = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+        CryptoEngine gcm = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, "GCM");
+        CryptoEngine ctr = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, "CTR");
+
+        // 切换策略后, 历史数据和其他策略写入的数据都能解密
+        for (CryptoEngine engine : new CryptoEngine[] { legacy, gcm, ctr }) {
+            assertEquals("legacy", engine.decryptPrefixed(legacy.encryptPrefixed("legacy")));
+            assertEquals("gcm", engine.decryptPrefixed(gcm.encryptPrefixed("gcm")));
+            assertEquals("ctr", engine.decryptBinary(ctr.encryptToBinary("ctr")));
+        }
+    }
+
+    @Test
+    public void testFormatConversion() throws Exception {
+        CryptoEngine gcm = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, "GCM");
+        String prefixed = gcm.encryptPrefixed("13800138000");
+
+        byte[] binary = ValueHelper.toBinaryEncryptedValue(prefixed);
+
+        assertTrue(ValueHelper.isEncrypted(binary));
+        assertEquals(prefixed, ValueHelper.toPrefixedEncryptedValue(binary));
+        assertEquals("13800138000", gcm.decryptBinary(binary));
+    }
+
+    @Test
+    public void testGcmDetectsTampering() throws Exception {
+        CryptoEngine gcm = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, "GCM");
+        String encrypted = gcm.encrypt("13800138000");
+        byte[] bytes = Base64.getDecoder().decode(encrypted.substring(1));
+        bytes[bytes.length - 1] ^= 1;
+
+        assertThrows(AEADBadTagException.class, () -> gcm.decrypt("#" + Base64.getEncoder().encodeToString(bytes)));
+        assertEquals("13800138000", gcm.decrypt(encrypted));
+    }
+
+    @Test
+    public void testKeyRotation() throws Exception {
+        CryptoEngine before = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, "GCM");
+        CryptoEngine rotated = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, "GCM", "1:old-key, 2:new-key", 2);
+        CryptoEngine retired = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, null, "1:old-key", 1);
+        String legacy = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM).encryptPrefixed("legacy");
+        String underKey0 = before.encryptPrefixed("key-0");
+        String underKey1 = retired.encryptPrefixed("key-1");
+        String underKey2 = rotated.encryptPrefixed("key-2");
+
+        assertEquals(0, CryptoEngine.getKeyId(legacy));
+        assertEquals(0, CryptoEngine.getKeyId(underKey0));
+        assertEquals(1, CryptoEngine.getKeyId(underKey1));
+        assertEquals(2, CryptoEngine.getKeyId(underKey2));
+        assertEquals("legacy", rotated.decryptPrefixed(legacy));
+        assertEquals("key-0", rotated.decryptPrefixed(underKey0));
+        assertEquals("key-1", rotated.decryptPrefixed(underKey1));
+        assertEquals("key-2", rotated.decryptPrefixed(underKey2));
+        assertTrue(rotated.isStale(underKey1));
+        assertFalse(rotated.isStale(underKey2));
+        assertFalse(before.isStale(legacy));
+        // 没有配置策略时秘钥编号写在ECB首部中
+        assertTrue(retired.isDeterministic());
+        assertThrows(java.security.InvalidKeyException.class, () -> before.decryptPrefixed(underKey2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM, null, "1:old-key", 3));
+    }
+
+    @Test
+    public void testUnknownStrategy() {
+        assertThrows(IllegalArgumentException.class, () -> CipherStrategies.forName("XTS"));
+        assertThrows(IllegalArgumentException.class, () -> CipherStrategies.forId((byte) 0x7f));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CryptCacheTest {
+
+    @Test
+    public void testHitAndMissStatistics() {
+        CryptCache cache = new CryptCache(100, 1024 * 1024, false);
+
+        assertNull(cache.get("SENSITIVE_a"));
+        cache.put("SENSITIVE_a", "13800138000");
+        assertEquals("13800138000", cache.get("SENSITIVE_a"));
+
+        CryptCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getSize());
+        assertEquals(0.5, stats.getHitRate());
+    }
+
+    @Test
+    public void testEvictsByEntryCount() {
+        CryptCache cache = new CryptCache(16, 1024 * 1024, false);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("SENSITIVE_" + i, "value-" + i);
+        }
+
+        CryptCache.Stats stats = cache.getStats();
+        assertTrue(stats.getSize() <= 16);
+        assertEquals(1000 - stats.getSize(), stats.getEvictionCount());
+    }
+
+    @Test
+    public void testEntryLimitBelowSegmentCount() {
+        for (int maxEntries = 1; maxEntries <= 17; maxEntries++) {
+            CryptCache cache = new CryptCache(maxEntries, 1024 * 1024, false);
+            for (int i = 0; i < 1000; i++) {
+                cache.put("SENSITIVE_" + i, "value-" + i);
+            }
+            assertTrue(cache.getStats().getSize() <= maxEntries, "maxEntries=" + maxEntries);
+        }
+
+        CryptCache cache = new CryptCache(1, 1024 * 1024, false);
+        cache.put("SENSITIVE_a", "a");
+        cache.put("SENSITIVE_b", "b");
+        assertNull(cache.get("SENSITIVE_a"));
+        assertEquals("b", cache.get("SENSITIVE_b"));
+    }
+
+    @Test
+    public void testEvictsByBytes() {
+        CryptCache cache = new CryptCache(10000, 16 * 1024, false);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("SENSITIVE_" + i, "value-" + i);
+        }
+
+        assertTrue(cache.getStats().getBytes() <= 16 * 1024);
+    }
+
+    @Test
+    public void testOffHeapValues() {
+        CryptCache cache = new CryptCache(100, 1024 * 1024, true);
+
+        cache.put("SENSITIVE_a", "中文-13800138000");
+        cache.put("SENSITIVE_b", "");
+
+        assertEquals("中文-13800138000", cache.get("SENSITIVE_a"));
+        assertEquals("", cache.get("SENSITIVE_b"));
+
+        cache.clear();
+        assertNull(cache.get("SENSITIVE_a"));
+        assertEquals(0, cache.getStats().getBytes());
+    }
+
+    @Test
+    public void testOffHeapReusesSlab() {
+        CryptCache cache = new CryptCache(1000, 16 * 1024, true);
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            longValue.append("长值-").append(i);
+        }
+
+        // 反复淘汰和写入不同长度的值, 释放的块被复用且内容不会串
+        for (int i = 0; i < 5000; i++) {
+            String value = i % 3 == 0 ? longValue + "-" + i : "value-" + i;
+            cache.put("SENSITIVE_" + i, value);
+            assertEquals(value, cache.get("SENSITIVE_" + i));
+        }
+        assertTrue(cache.getStats().getBytes() <= 16 * 1024);
+        assertTrue(cache.getStats().getEvictionCount() > 0);
+
+        cache.put("SENSITIVE_4998", "replaced");
+        assertEquals("replaced", cache.get("SENSITIVE_4998"));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+
+import dev.cn.common.sensitive_data.support.ValueHelper;
+import dev.cn.common.sensitive_data.util.CryptUtils;
+
+public class CryptoEngineTest {
+
+    private static final String KEY = "test-key-123456";
+    private static final String KEY_ALGORITHM = "AES";
+    private static final String CIPHER_ALGORITHM = "AES/ECB/PKCS5Padding";
+
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 2000;
+
+    @Test
+    public void testGetInstanceReturnsSharedEngine() throws Exception {
+        CryptoEngine engine1 = CryptoEngine.getInstance(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+        CryptoEngine engine2 = CryptoEngine.getInstance(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+
+        assertSame(engine1, engine2);
+        assertNotSame(engine1, CryptoEngine.getInstance(KEY + "-other", KEY_ALGORITHM, CIPHER_ALGORITHM));
+    }
+
+    @Test
+    public void testCompatibleWithCryptUtils() throws Exception {
+        CryptoEngine engine = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+
+        String encrypted = engine.encrypt("13800138000");
+
+        assertEquals(encrypted, CryptUtils.encrypt("13800138000", KEY, KEY_ALGORITHM, CIPHER_ALGORITHM));
+        assertEquals("13800138000", CryptUtils.decrypt(encrypted, KEY, KEY_ALGORITHM, CIPHER_ALGORITHM));
+    }
+
+    @Test
+    public void testPrefixedMatchesStringFormat() throws Exception {
+        CryptoEngine engine = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            large.append((char) ('a' + i % 26));
+        }
+
+        for (String plaintext : new String[] { "", "1", "13800138000", "中文姓名", "emoji-\uD83D\uDE00",
+                "broken-\uD83D", large.toString() }) {
+            String prefixed = engine.encryptPrefixed(plaintext);
+
+            assertEquals(ValueHelper.prefixEncryptedValue(engine.encrypt(plaintext)), prefixed);
+            assertEquals(engine.decrypt(ValueHelper.unprefixEncryptedValue(prefixed)), engine.decryptPrefixed(prefixed));
+        }
+        assertThrows(IllegalArgumentException.class, () -> engine.decryptPrefixed(ValueHelper.prefixEncryptedValue("a*cd")));
+    }
+
+    @Test
+    public void testIsDeterministic() throws Exception {
+        assertTrue(new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM).isDeterministic());
+        assertTrue(CryptoEngine.isDeterministic("AES"));
+        assertTrue(CryptoEngine.isDeterministic("AES/SIV/NoPadding"));
+        assertFalse(CryptoEngine.isDeterministic("AES/GCM/NoPadding"));
+        assertFalse(CryptoEngine.isDeterministic("AES/CBC/PKCS5Padding"));
+    }
+
+    @Test
+    public void testConcurrentEncryptAndDecrypt() throws Exception {
+        CryptoEngine engine = CryptoEngine.getInstance(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+        // 单线程计算的基准结果
+        CryptoEngine reference = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit((Callable<Integer>) () -> {
+                    start.await();
+                    int verified = 0;
+                    for (int i = 0; i < ROUNDS; i++) {
+                        String content = "content-" + thread + "-" + i;
+                        String encrypted = engine.encrypt(content);
+                        assertEquals(content, engine.decrypt(encrypted));
+                        verified++;
+                    }
+                    return verified;
+                }));
+            }
+            start.countDown();
+
+            for (Future<Integer> future : futures) {
+                assertEquals(ROUNDS, future.get().intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(reference.encrypt("content-0-0"), engine.encrypt("content-0-0"));
+    }
+
+    @Test
+    public void testCipherRecoversAfterBadInput() throws Exception {
+        CryptoEngine engine = new CryptoEngine(KEY, KEY_ALGORITHM, CIPHER_ALGORITHM);
+
+        assertThrows(IllegalBlockSizeException.class, () -> engine.decrypt("AAAA"));
+        assertThrows(BadPaddingException.class,
+                () -> engine.decrypt(new CryptoEngine(KEY + "-other", KEY_ALGORITHM, CIPHER_ALGORITHM).encrypt("x")));
+
+        assertEquals("Hello, World!", engine.decrypt(engine.encrypt("Hello, World!")));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+public class FieldCodecsTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        CryptoEngine engine = CryptoEngine.getInstance("test-key-123456", "AES", "AES/ECB/PKCS5Padding");
+        for (long value : new long[] { 0, 7, -42, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            String encrypted = engine.encryptPrefixed(value, FieldCodecs.LONG);
+            assertEquals(value, engine.decryptPrefixed(encrypted, FieldCodecs.LONG).longValue());
+            // 数字按十进制形式加密, 与字符串加密的结果相同
+            assertEquals(engine.encryptPrefixed(Long.toString(value)), encrypted);
+        }
+        assertEquals(Integer.MIN_VALUE, engine.decryptPrefixed(
+                engine.encryptPrefixed(Integer.MIN_VALUE, FieldCodecs.INTEGER), FieldCodecs.INTEGER).intValue());
+
+        for (LocalDate date : new LocalDate[] { LocalDate.of(1990, 1, 2), LocalDate.of(-5, 12, 31),
+                LocalDate.of(12345, 6, 7) }) {
+            assertEquals(date, engine.decryptBinary(engine.encryptToBinary(date, FieldCodecs.LOCAL_DATE),
+                    FieldCodecs.LOCAL_DATE));
+            assertEquals(date.toString(), engine.decryptPrefixed(engine.encryptPrefixed(date, FieldCodecs.LOCAL_DATE)));
+        }
+
+        byte[] document = { 0, 1, (byte) 0xfe, (byte) 0xff, 42 };
+        assertArrayEquals(document, engine.decryptBinary(engine.encryptToBinary(document, FieldCodecs.BYTES),
+                FieldCodecs.BYTES));
+    }
+
+    @Test
+    public void testLookupAndInvalidInput() throws Exception {
+        assertSame(FieldCodecs.LONG, FieldCodecs.forType(long.class));
+        assertSame(FieldCodecs.LONG, FieldCodecs.forType(Long.class));
+        assertSame(FieldCodecs.BYTES, FieldCodecs.forType(byte[].class));
+        assertNull(FieldCodecs.forType(Double.class));
+
+        CryptoEngine engine = CryptoEngine.getInstance("test-key-123456", "AES", "AES/ECB/PKCS5Padding");
+        assertThrows(NumberFormatException.class,
+                () -> engine.decryptPrefixed(engine.encryptPrefixed("12a"), FieldCodecs.LONG));
+        assertThrows(NumberFormatException.class,
+                () -> engine.decryptPrefixed(engine.encryptPrefixed("9223372036854775808"), FieldCodecs.LONG));
+        assertThrows(NumberFormatException.class,
+                () -> engine.decryptPrefixed(engine.encryptPrefixed("2147483648"), FieldCodecs.INTEGER));
+    }
+
+    @Test
+    public void testServiceLoaderCodecs() throws Exception {
+        // 同一类型注册多个时使用第一个, 无法加载的编解码器被忽略
+        assertTrue(FieldCodecs.forType(BigDecimal.class) instanceof BigDecimalCodec);
+        // 注册的编解码器替换内置编解码器, 基本类型同样使用替换后的编解码器
+        assertTrue(FieldCodecs.forType(Integer.class) instanceof ReplacingIntegerCodec);
+        assertSame(FieldCodecs.forType(Integer.class), FieldCodecs.forType(int.class));
+
+        CryptoEngine engine = CryptoEngine.getInstance("test-key-123456", "AES", "AES/ECB/PKCS5Padding");
+        FieldCodec<BigDecimal> codec = FieldCodecs.forType(BigDecimal.class);
+        BigDecimal amount = new BigDecimal("-1234.5600");
+        assertEquals(amount, engine.decryptPrefixed(engine.encryptPrefixed(amount, codec), codec));
+    }
+
+    public static class BigDecimalCodec implements FieldCodec<BigDecimal> {
+
+        @Override
+        public Class<BigDecimal> getType() {
+            return BigDecimal.class;
+        }
+
+        @Override
+        public int getMaxLength(BigDecimal value) {
+            return value.toString().length();
+        }
+
+        @Override
+        public int encode(BigDecimal value, byte[] buffer) {
+            byte[] bytes = value.toString().getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+            return bytes.length;
+        }
+
+        @Override
+        public BigDecimal decode(byte[] buffer, int offset, int length) {
+            return parse(new String(buffer, offset, length, StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public BigDecimal parse(String plaintext) {
+            return new BigDecimal(plaintext);
+        }
+    }
+
+    public static class DuplicateBigDecimalCodec extends BigDecimalCodec {
+    }
+
+    public static class ReplacingIntegerCodec implements FieldCodec<Integer> {
+
+        @Override
+        public Class<Integer> getType() {
+            return Integer.class;
+        }
+
+        @Override
+        public int getMaxLength(Integer value) {
+            return FieldCodecs.INTEGER.getMaxLength(value);
+        }
+
+        @Override
+        public int encode(Integer value, byte[] buffer) {
+            return FieldCodecs.INTEGER.encode(value, buffer);
+        }
+
+        @Override
+        public Integer decode(byte[] buffer, int offset, int length) {
+            return FieldCodecs.INTEGER.decode(buffer, offset, length);
+        }
+
+        @Override
+        public Integer parse(String plaintext) {
+            return FieldCodecs.INTEGER.parse(plaintext);
+        }
+    }
+}
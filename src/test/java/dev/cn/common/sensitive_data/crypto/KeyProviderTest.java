@@ -0,0 +1,198 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+public class KeyProviderTest {
+
+    private static final Key MASTER_KEY = new SecretKeySpec(bytes(16, 7), "AES");
+
+    @Test
+    public void testEnvelopeEncryption(@TempDir Path dir) throws Exception {
+        Path keyStorePath = dir.resolve("master.jceks");
+        char[] password = "changeit".toCharArray();
+        KeyStore keyStore = KeyStore.getInstance("JCEKS");
+        keyStore.load(null, password);
+        keyStore.setEntry("master", new KeyStore.SecretKeyEntry((SecretKey) MASTER_KEY),
+                new KeyStore.PasswordProtection(password));
+        try (OutputStream out = Files.newOutputStream(keyStorePath)) {
+            keyStore.store(out, password);
+        }
+        Path dataKeysPath = dir.resolve("data-keys.properties");
+        try (Writer writer = Files.newBufferedWriter(dataKeysPath, StandardCharsets.UTF_8)) {
+            dataKeys().store(writer, null);
+        }
+
+        KeyProvider provider = LocalKeyProvider.load(keyStorePath, "JCEKS", password, "master", dataKeysPath);
+        CryptoEngine engine = new CryptoEngine("legacy-key", "AES", "AES/ECB/PKCS5Padding", null, null, provider,
+                60000);
+        String legacy = CryptoEngine.getInstance("legacy-key", "AES", "AES/ECB/PKCS5Padding")
+                .encryptPrefixed("13800138000");
+
+        String defaultValue = engine.encryptPrefixed("13800138000");
+        String userValue = engine.forKeyName("t_user").encryptPrefixed("13800138000");
+        assertEquals(1, CryptoEngine.getKeyId(defaultValue));
+        assertEquals(2, CryptoEngine.getKeyId(userValue));
+        assertEquals(1, CryptoEngine.getKeyId(engine.forKeyName("t_order").encryptPrefixed("13800138000")));
+        assertSame(engine, engine.forKeyName(null));
+        assertSame(engine.forKeyName("t_user"), engine.forKeyName("t_user"));
+
+        // 秘钥编号写在密文中, 任意引擎都能解密; 信封加密之前的数据仍使用0号秘钥
+        assertEquals("13800138000", engine.decryptPrefixed(userValue));
+        assertEquals("13800138000", engine.forKeyName("t_user").decryptPrefixed(defaultValue));
+        assertEquals("13800138000", engine.decryptPrefixed(legacy));
+        assertTrue(engine.forKeyName("t_user").isStale(defaultValue));
+        assertFalse(engine.forKeyName("t_user").isStale(userValue));
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        AtomicInteger unwraps = new AtomicInteger();
+        CountDownLatch unwrapping = new CountDownLatch(1);
+        KeyProvider provider = new CountingProvider(unwraps) {
+
+            @Override
+            public byte[] unwrapKey(int keyId) throws GeneralSecurityException {
+                try {
+                    // 模拟远程调用, 等其他线程都到达后再返回
+                    unwrapping.await(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.unwrapKey(keyId);
+            }
+        };
+        DataKeyCache cache = new DataKeyCache(provider, "AES", 60000);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Key>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit((Callable<Key>) () -> {
+                    start.await();
+                    return cache.get(1);
+                }));
+            }
+            start.countDown();
+            Thread.sleep(20);
+            unwrapping.countDown();
+            Key first = futures.get(0).get();
+            for (Future<Key> future : futures) {
+                assertSame(first, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, unwraps.get());
+    }
+
+    @Test
+    public void testTtlAndRetry() throws Exception {
+        AtomicInteger unwraps = new AtomicInteger();
+        AtomicLong now = new AtomicLong();
+        DataKeyCache cache = new DataKeyCache(new CountingProvider(unwraps), "AES", 1000, now::get);
+
+        Key key = cache.get(1);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertSame(key, cache.get(1));
+        assertEquals(1, unwraps.get());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertNotSame(key, cache.get(1));
+        assertEquals(2, unwraps.get());
+
+        // 解开失败不缓存, 下次请求重试
+        assertThrows(InvalidKeyException.class, () -> cache.get(9));
+        assertThrows(InvalidKeyException.class, () -> cache.get(9));
+        assertEquals(4, unwraps.get());
+    }
+
+    private static Properties dataKeys() throws GeneralSecurityException {
+        Properties properties = new Properties();
+        properties.setProperty("data-key.1", LocalKeyProvider.wrapKey(MASTER_KEY, bytes(16, 1)));
+        properties.setProperty("data-key.2", LocalKeyProvider.wrapKey(MASTER_KEY, bytes(16, 2)));
+        properties.setProperty("active.default", "1");
+        properties.setProperty("active.t_user", "2");
+        return properties;
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (seed * 31 + i);
+        }
+        return bytes;
+    }
+
+    private static class CountingProvider implements KeyProvider {
+
+        private final KeyProvider delegate;
+        private final AtomicInteger unwraps;
+
+        CountingProvider(AtomicInteger unwraps) throws GeneralSecurityException {
+            this.delegate = new LocalKeyProvider(MASTER_KEY, dataKeys());
+            this.unwraps = unwraps;
+        }
+
+        @Override
+        public int getActiveKeyId(String keyName) throws GeneralSecurityException {
+            return delegate.getActiveKeyId(keyName);
+        }
+
+        @Override
+        public byte[] unwrapKey(int keyId) throws GeneralSecurityException {
+            unwraps.incrementAndGet();
+            return delegate.unwrapKey(keyId);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.handler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.type.JdbcType;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+public class SensitiveBinaryTypeHandlerTest {
+
+    private final SensitiveBinaryTypeHandler handler = new SensitiveBinaryTypeHandler();
+
+    private CryptoEngine engine;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        engine = CryptoEngine.getInstance("test-key-123456", "AES", "AES/ECB/PKCS5Padding");
+        CryptoEngineHolder.set(engine);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        CryptoEngineHolder.set(null);
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        String plaintext = "13800138000";
+        byte[] stored = setParameter(plaintext);
+
+        assertTrue(ValueHelper.isEncrypted(stored));
+        // 8字节首部加上一个AES分组
+        assertEquals(ValueHelper.BINARY_HEADER_LENGTH + 16, stored.length);
+        assertTrue(stored.length < ValueHelper.prefixEncryptedValue(engine.encrypt(plaintext)).length());
+        assertEquals(plaintext, handler.getResult(resultSet(stored), 1));
+    }
+
+    @Test
+    public void testCoexistsWithStringFormat() throws Exception {
+        String plaintext = "13800138000";
+        String legacy = ValueHelper.prefixEncryptedValue(engine.encrypt(plaintext));
+
+        // 字符串格式的密文和历史明文以UTF-8字节保存时仍可读取
+        assertEquals(plaintext, handler.getResult(resultSet(legacy.getBytes(StandardCharsets.UTF_8)), 1));
+        assertEquals(plaintext, handler.getResult(resultSet(plaintext.getBytes(StandardCharsets.UTF_8)), 1));
+
+        // 写入字符串格式的密文时直接转换为二进制格式
+        byte[] converted = setParameter(legacy);
+        assertArrayEquals(setParameter(plaintext), converted);
+        assertEquals(legacy, ValueHelper.toPrefixedEncryptedValue(converted));
+    }
+
+    private byte[] setParameter(String value) throws Exception {
+        Map<Integer, Object> parameters = new HashMap<>();
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    if ("setBytes".equals(method.getName())) {
+                        parameters.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+        handler.setParameter(ps, 1, value, JdbcType.VARBINARY);
+        return (byte[]) parameters.get(1);
+    }
+
+    private ResultSet resultSet(byte[] value) {
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    if ("getBytes".equals(method.getName())) {
+                        return value;
+                    }
+                    if ("wasNull".equals(method.getName())) {
+                        return value == null;
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.handler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+public class SensitiveFieldTypeHandlerTest {
+
+    private CryptoEngine engine;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        engine = CryptoEngine.getInstance("test-key-123456", "AES", "AES/ECB/PKCS5Padding");
+        CryptoEngineHolder.set(engine);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        CryptoEngineHolder.set(null);
+    }
+
+    @Test
+    public void testTypedRoundTrip() throws Exception {
+        SensitiveLongTypeHandler longHandler = new SensitiveLongTypeHandler();
+        Object stored = setParameter(longHandler, 1250000L, "setString");
+        assertTrue(ValueHelper.isEncrypted((String) stored));
+        assertEquals(1250000L, longHandler.getResult(resultSet(stored), 1));
+        // 未加密的历史明文按字段类型解析
+        assertEquals(42L, longHandler.getResult(resultSet("42"), 1));
+
+        SensitiveLocalDateTypeHandler dateHandler = new SensitiveLocalDateTypeHandler();
+        LocalDate birthday = LocalDate.of(1990, 5, 17);
+        assertEquals(birthday, dateHandler.getResult(resultSet(setParameter(dateHandler, birthday, "setString")), 1));
+
+        SensitiveBytesTypeHandler bytesHandler = new SensitiveBytesTypeHandler();
+        byte[] document = { 1, 2, 3, 4, 5 };
+        byte[] encrypted = (byte[]) setParameter(bytesHandler, document, "setBytes");
+        assertTrue(ValueHelper.isEncrypted(encrypted));
+        assertArrayEquals(document, bytesHandler.getResult(resultSet(encrypted), 1));
+
+        // 以FE FF开头的明文写入时加密, 作为历史明文读取时原样返回
+        byte[] utf16 = "\uFEFF张三".getBytes(StandardCharsets.UTF_16BE);
+        encrypted = (byte[]) setParameter(bytesHandler, utf16, "setBytes");
+        assertTrue(ValueHelper.isEncrypted(encrypted));
+        assertArrayEquals(utf16, bytesHandler.getResult(resultSet(encrypted), 1));
+        assertArrayEquals(utf16, bytesHandler.getResult(resultSet(utf16), 1));
+    }
+
+    @Test
+    public void testRegisteredCodec() throws Exception {
+        // 通过ServiceLoader注册的类型可以直接使用本类
+        SensitiveFieldTypeHandler<BigDecimal> handler = new SensitiveFieldTypeHandler<>(BigDecimal.class);
+        BigDecimal amount = new BigDecimal("99.90");
+        Object stored = setParameter(handler, amount, "setString");
+        assertTrue(ValueHelper.isEncrypted((String) stored));
+        assertEquals(amount, handler.getResult(resultSet(stored), 1));
+        assertEquals(new BigDecimal("0.5"), handler.getResult(resultSet("0.5"), 1));
+
+        assertThrows(IllegalArgumentException.class, () -> new SensitiveFieldTypeHandler<>(Double.class));
+    }
+
+    private <T> Object setParameter(BaseTypeHandler<T> handler, T value, String setter) throws Exception {
+        Map<Integer, Object> parameters = new HashMap<>();
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    if (setter.equals(method.getName())) {
+                        parameters.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+        handler.setParameter(ps, 1, value, JdbcType.VARCHAR);
+        return parameters.get(1);
+    }
+
+    private ResultSet resultSet(Object value) {
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    if ("getString".equals(method.getName()) || "getBytes".equals(method.getName())) {
+                        return value;
+                    }
+                    if ("wasNull".equals(method.getName())) {
+                        return value == null;
+                    }
+                    return null;
+                });
+    }
+}
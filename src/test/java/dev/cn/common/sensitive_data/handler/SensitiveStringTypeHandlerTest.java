@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.handler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.type.JdbcType;
+
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoEngineHolder;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+public class SensitiveStringTypeHandlerTest {
+
+    private final SensitiveStringTypeHandler handler = new SensitiveStringTypeHandler();
+
+    @AfterEach
+    public void tearDown() {
+        CryptoEngineHolder.set(null);
+    }
+
+    @Test
+    public void testEncryptsParameterAndDecryptsResult() throws Exception {
+        CryptoEngineHolder.set(CryptoEngine.getInstance("test-key-123456", "AES", "AES/ECB/PKCS5Padding"));
+        Map<Integer, Object> parameters = new HashMap<>();
+
+        String plaintext = "13800138000";
+        handler.setParameter(preparedStatement(parameters), 1, plaintext, JdbcType.VARCHAR);
+
+        String stored = (String) parameters.get(1);
+        assertTrue(ValueHelper.isEncrypted(stored));
+        assertEquals(plaintext, handler.getResult(resultSet("tel", stored), "tel"));
+        // 历史明文数据原样返回
+        assertEquals(plaintext, handler.getResult(resultSet("tel", plaintext), "tel"));
+        assertNull(handler.getResult(resultSet("tel", null), "tel"));
+    }
+
+    @Test
+    public void testPassesThroughWhenDisabled() throws Exception {
+        Map<Integer, Object> parameters = new HashMap<>();
+
+        handler.setParameter(preparedStatement(parameters), 1, "13800138000", JdbcType.VARCHAR);
+
+        assertEquals("13800138000", parameters.get(1));
+    }
+
+    private static PreparedStatement preparedStatement(Map<Integer, Object> parameters) {
+        return (PreparedStatement) Proxy.newProxyInstance(SensitiveStringTypeHandlerTest.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    if ("setString".equals(method.getName())) {
+                        parameters.put((Integer) args[0], args[1]);
+                    }
+                    return null;
+                });
+    }
+
+    private static ResultSet resultSet(String column, String value) {
+        return (ResultSet) Proxy.newProxyInstance(SensitiveStringTypeHandlerTest.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    if ("getString".equals(method.getName()) && column.equals(args[0])) {
+                        return value;
+                    }
+                    if ("wasNull".equals(method.getName())) {
+                        return value == null;
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import dev.cn.common.sensitive_data.metrics.CryptoMetrics.Operation;
+
+public class JmxCryptoMetricsTest {
+
+    @Test
+    public void testRecordsPerStatementAndExportsMBean() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        JmxCryptoMetrics metrics = new JmxCryptoMetrics(server, 16);
+
+        metrics.record(Operation.DECRYPT, "demo.UserMapper.selectById", 2, 88, 1000);
+        metrics.record(Operation.DECRYPT, "demo.UserMapper.selectById", 2, 88, 3000);
+        metrics.record(Operation.ENCRYPT, "demo.UserMapper.insert", 1, 44, 500);
+
+        ObjectName name = new ObjectName(JmxCryptoMetrics.DOMAIN + ":type=CryptoMetrics,operation=DECRYPT,statement="
+                + ObjectName.quote("demo.UserMapper.selectById"));
+        assertEquals(2L, server.getAttribute(name, "Count"));
+        assertEquals(4L, server.getAttribute(name, "FieldCount"));
+        assertEquals(176L, server.getAttribute(name, "Bytes"));
+        assertEquals(2000L, server.getAttribute(name, "MeanNanos"));
+        assertEquals(3000L, server.getAttribute(name, "MaxNanos"));
+        assertEquals(2, metrics.getStatementMetrics().size());
+
+        metrics.destroy();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testMergesStatementsOverLimit() {
+        JmxCryptoMetrics metrics = new JmxCryptoMetrics(null, 2);
+
+        for (int i = 0; i < 10; i++) {
+            metrics.record(Operation.DECRYPT, "demo.Mapper.select" + i, 1, 44, 100);
+        }
+
+        assertEquals(3, metrics.getStatementMetrics().size());
+        long others = metrics.getStatementMetrics().stream()
+                .filter(m -> JmxCryptoMetrics.OTHER_STATEMENTS.equals(m.getStatementId()))
+                .mapToLong(StatementMetrics::getCount)
+                .sum();
+        assertEquals(8, others);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.migration;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.UUID;
+
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.crypto.CryptoEngine;
+import dev.cn.common.sensitive_data.crypto.CryptoProfiles;
+import dev.cn.common.sensitive_data.support.ValueHelper;
+
+public class MigrationRunnerTest {
+
+    private static final int ROWS = 2500;
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcDataSource dataSource;
+    private CryptoEngine engine;
+
+    @SensitiveData(table = "t_user")
+    static class UserPO {
+        private Long id;
+        @SensitiveField
+        private String tel;
+        @SensitiveField
+        private String idCard;
+    }
+
+    @SensitiveData(table = "t_user")
+    static class ProfiledUserPO {
+        private Long id;
+        @SensitiveField(keyAlias = "phone", profile = "lookup")
+        private String tel;
+        @SensitiveField
+        private String idCard;
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        engine = CryptoEngine.getInstance("test-key-123456", "AES", "AES/ECB/PKCS5Padding");
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE t_user (id BIGINT PRIMARY KEY, tel VARCHAR(255),"
+                        + " id_card VARCHAR(255), name VARCHAR(255))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO t_user VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= ROWS; i++) {
+                    insert.setLong(1, i * 2L);
+                    insert.setString(2, i % 10 == 0 ? engine.encryptPrefixed("tel-" + i) : "tel-" + i);
+                    insert.setString(3, i % 7 == 0 ? null : "card-" + i);
+                    insert.setString(4, "name-" + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    @Test
+    public void testEncryptsAllPlaintextValues() throws Exception {
+        MigrationRunner runner = new MigrationRunner(dataSource, engine, new JdbcMigrationCheckpoint(dataSource));
+        runner.setThreads(4);
+        runner.setRangeSize(300);
+
+        MigrationResult result = runner.run(MigrationTask.forEntity(UserPO.class));
+
+        assertEquals(ROWS, result.getScannedRows());
+        assertEquals(ROWS - ROWS / 10 + ROWS - ROWS / 7, result.getEncryptedValues());
+        assertEquals(ROWS * 2L, result.getLastId().longValue());
+        assertEquals(ROWS * 2L, new JdbcMigrationCheckpoint(dataSource).load("t_user").longValue());
+        verify(0);
+
+        // 再次执行时没有需要处理的行
+        assertEquals(0, runner.run(MigrationTask.of("t_user", "id", "tel", "id_card")).getScannedRows());
+    }
+
+    @Test
+    public void testResumesFromCheckpoint() throws Exception {
+        FileMigrationCheckpoint checkpoint = new FileMigrationCheckpoint(tempDir.resolve("checkpoint.properties"));
+        checkpoint.save("t_user", 2000);
+        MigrationRunner runner = new MigrationRunner(dataSource, engine, checkpoint);
+        runner.setThreads(2);
+        runner.setRangeSize(128);
+        runner.setMaxRowsPerSecond(100000);
+
+        MigrationResult result = runner.run(MigrationTask.of("t_user", "id", "tel", "id_card"));
+
+        assertEquals(ROWS - 1000, result.getScannedRows());
+        assertEquals(ROWS * 2L, checkpoint.load("t_user").longValue());
+        verify(2000);
+    }
+
+    @Test
+    public void testUsesFieldKeyAliasAndProfile() throws Exception {
+        CryptoEngine gcmEngine = CryptoEngine.getInstance("test-key-123456", "AES", "AES/ECB/PKCS5Padding", "GCM",
+                "1:second-key-1234", 0);
+        MigrationRunner runner = new MigrationRunner(dataSource, gcmEngine, new JdbcMigrationCheckpoint(dataSource));
+        runner.setCryptoProfiles(new CryptoProfiles("phone:1", "lookup:ECB", null));
+
+        runner.run(MigrationTask.forEntity(ProfiledUserPO.class));
+
+        // 与加密拦截器写入的密文一致: tel使用1号秘钥和确定性的ECB, id_card使用全局的GCM
+        CryptoEngine telEngine = gcmEngine.withKeyId(1).withCipherStrategy("ECB");
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT id, tel, id_card FROM t_user")) {
+            while (resultSet.next()) {
+                int i = (int) (resultSet.getLong(1) / 2);
+                if (i % 10 != 0) {
+                    assertEquals(telEngine.encryptPrefixed("tel-" + i), resultSet.getString(2));
+                }
+                String idCard = resultSet.getString(3);
+                if (idCard != null) {
+                    assertEquals(0, CryptoEngine.getKeyId(idCard));
+                    assertEquals("card-" + i, gcmEngine.decryptPrefixed(idCard));
+                    assertNotEquals(gcmEngine.withCipherStrategy("ECB").encryptPrefixed("card-" + i), idCard);
+                }
+            }
+        }
+    }
+
+    private void verify(long migratedAfter) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT id, tel, id_card, name FROM t_user")) {
+            while (resultSet.next()) {
+                long id = resultSet.getLong(1);
+                int i = (int) (id / 2);
+                for (String value : Arrays.asList(resultSet.getString(2), resultSet.getString(3))) {
+                    if (value != null && (id > migratedAfter || value.startsWith("SENSITIVE_"))) {
+                        assertTrue(ValueHelper.isEncrypted(value), "id=" + id);
+                        String plaintext = engine.decryptPrefixed(value);
+                        assertTrue(plaintext.equals("tel-" + i) || plaintext.equals("card-" + i));
+                    } else if (value != null) {
+                        assertFalse(ValueHelper.isEncrypted(value));
+                    }
+                }
+                assertEquals("name-" + i, resultSet.getString(4));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelRowProcessorTest {
+
+    @Test
+    public void testProcessesEveryRowInParallel() throws Exception {
+        List<AtomicInteger> rows = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            rows.add(new AtomicInteger());
+        }
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        try (ParallelRowProcessor processor = new ParallelRowProcessor(100, 64, 4, "test")) {
+            processor.forEach(rows, row -> {
+                threads.add(Thread.currentThread().getName());
+                ((AtomicInteger) row).incrementAndGet();
+            });
+        }
+
+        for (AtomicInteger row : rows) {
+            assertEquals(1, row.get());
+        }
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("test-")));
+    }
+
+    @Test
+    public void testRunsSmallListsOnCallerThread() throws Exception {
+        List<Object> rows = new ArrayList<>();
+        rows.add(new Object());
+        String caller = Thread.currentThread().getName();
+
+        try (ParallelRowProcessor processor = new ParallelRowProcessor(100, 64, 4, "test")) {
+            processor.forEach(rows, row -> assertEquals(caller, Thread.currentThread().getName()));
+        }
+    }
+
+    @Test
+    public void testPropagatesCheckedException() {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(i);
+        }
+
+        try (ParallelRowProcessor processor = new ParallelRowProcessor(10, 16, 4, "test")) {
+            Exception exception = assertThrows(Exception.class, () -> processor.forEach(rows, row -> {
+                if ((Integer) row == 500) {
+                    throw new java.security.GeneralSecurityException("bad row");
+                }
+            }));
+            assertEquals("bad row", exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+import dev.cn.common.sensitive_data.type.SensitiveValue;
+
+public class SensitiveClassMetadataTest {
+
+    @SensitiveData
+    static class BasePO {
+        @SensitiveField
+        private String idCard;
+        private String name;
+    }
+
+    static class ChildPO extends BasePO {
+        @SensitiveField
+        private String tel;
+        private Long notSensitive;
+    }
+
+    @SensitiveData
+    static class UnsupportedTypePO {
+        @SensitiveField
+        private Long salary;
+    }
+
+    @SensitiveData
+    static class LazyPO {
+        @SensitiveField(lazy = true)
+        private SensitiveValue idCard;
+    }
+
+    @SensitiveData
+    static class InvalidLazyPO {
+        @SensitiveField(lazy = true)
+        private String idCard;
+    }
+
+    @SensitiveData(table = "t_user", idField = "userId")
+    static class TablePO {
+        private Long userId;
+        @SensitiveField
+        private String idCard;
+        @SensitiveField(column = "mobile")
+        private String tel;
+    }
+
+    static class PlainPO {
+        @SensitiveField
+        private String tel;
+    }
+
+    @SensitiveData
+    public static class CodecPO {
+        @SensitiveField
+        private String tel;
+    }
+
+    /**
+     * 模拟注解处理器生成的编解码器, 在META-INF/services中注册
+     */
+    public static class CodecPOCodec implements SensitiveCodec<CodecPO> {
+
+        @Override
+        public Class<CodecPO> getType() {
+            return CodecPO.class;
+        }
+
+        @Override
+        public String[] getFieldNames() {
+            return new String[] { "tel" };
+        }
+
+        @Override
+        public String get(CodecPO entity, int index) {
+            return entity.tel;
+        }
+
+        @Override
+        public void set(CodecPO entity, int index, String value) {
+            entity.tel = "codec:" + value;
+        }
+    }
+
+    /**
+     * 字段上故意不加注解, 元数据只能来自编解码器的注解属性
+     */
+    @SensitiveData
+    public static class AttributedPO {
+        private Long userId;
+        private String tel;
+        private String telBidx;
+    }
+
+    /**
+     * 模拟注解处理器生成的带有注解属性的编解码器, 在META-INF/services中注册
+     */
+    public static class AttributedPOCodec implements SensitiveCodec<AttributedPO> {
+
+        private static final SensitiveCodecAttributes ATTRIBUTES = new SensitiveCodecAttributes("t_user", "userId", "")
+                .field("mobile", false, "tel_bidx", "phone", "lookup");
+
+        @Override
+        public Class<AttributedPO> getType() {
+            return AttributedPO.class;
+        }
+
+        @Override
+        public String[] getFieldNames() {
+            return new String[] { "tel" };
+        }
+
+        @Override
+        public String get(AttributedPO entity, int index) {
+            return entity.tel;
+        }
+
+        @Override
+        public void set(AttributedPO entity, int index, String value) {
+            entity.tel = value;
+        }
+
+        @Override
+        public SensitiveCodecAttributes getAttributes() {
+            return ATTRIBUTES;
+        }
+
+        @Override
+        public void setBlindIndex(AttributedPO entity, int index, String value) {
+            entity.telBidx = value;
+        }
+
+        @Override
+        public Object getId(AttributedPO entity) {
+            return entity.userId;
+        }
+    }
+
+    @Test
+    public void testCollectsSuperclassStringFields() {
+        SensitiveClassMetadata metadata = SensitiveClassMetadata.forClass(ChildPO.class);
+
+        assertTrue(metadata.isSensitive());
+        List<String> names = metadata.getFields().stream()
+                .map(SensitiveClassMetadata.FieldAccessor::getName)
+                .collect(Collectors.toList());
+        assertEquals(2, names.size());
+        assertTrue(names.contains("tel"));
+        assertTrue(names.contains("idCard"));
+    }
+
+    @Test
+    public void testRejectsUnsupportedFieldType() {
+        // 拦截器模式不会处理Long字段, 启动时直接失败并提示应使用的类型处理器
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> SensitiveClassMetadata.forClass(UnsupportedTypePO.class));
+        assertTrue(e.getMessage().contains("SensitiveLongTypeHandler"));
+    }
+
+    @Test
+    public void testAccessorReadsAndWrites() {
+        ChildPO po = new ChildPO();
+        po.tel = "13800138000";
+
+        for (SensitiveClassMetadata.FieldAccessor field : SensitiveClassMetadata.forClass(ChildPO.class).getFields()) {
+            if ("tel".equals(field.getName())) {
+                assertEquals("13800138000", field.get(po));
+                field.set(po, "SENSITIVE_xxx");
+            }
+        }
+
+        assertEquals("SENSITIVE_xxx", po.tel);
+    }
+
+    @Test
+    public void testUsesGeneratedCodecWhenPresent() {
+        CodecPO po = new CodecPO();
+
+        SensitiveClassMetadata.FieldAccessor field = SensitiveClassMetadata.forClass(CodecPO.class).getFields().get(0);
+        field.set(po, "13800138000");
+
+        assertEquals("tel", field.getName());
+        assertEquals("codec:13800138000", field.get(po));
+    }
+
+    @Test
+    public void testBuildsFromCodecAttributes() {
+        AttributedPO po = new AttributedPO();
+        po.userId = 7L;
+        SensitiveClassMetadata metadata = SensitiveClassMetadata.forClass(AttributedPO.class);
+
+        assertEquals("t_user", metadata.getTable());
+        assertEquals("user_id", metadata.getIdColumn());
+        assertEquals(7L, metadata.getId(po));
+        SensitiveClassMetadata.FieldAccessor field = metadata.getFields().get(0);
+        assertEquals("tel", field.getName());
+        assertEquals("mobile", field.getColumn());
+        assertEquals("phone", field.getKeyAlias());
+        assertEquals("lookup", field.getProfile());
+        assertFalse(field.isLazy());
+        assertTrue(field.hasBlindIndex());
+        field.set(po, "13800138000");
+        field.setBlindIndex(po, "bidx");
+        assertEquals("13800138000", po.tel);
+        assertEquals("bidx", po.telBidx);
+    }
+
+    @Test
+    public void testLazyFields() {
+        SensitiveClassMetadata.FieldAccessor field = SensitiveClassMetadata.forClass(LazyPO.class).getFields().get(0);
+
+        assertTrue(field.isLazy());
+        assertEquals(SensitiveValue.class, field.getFieldType());
+        assertThrows(IllegalStateException.class, () -> SensitiveClassMetadata.forClass(InvalidLazyPO.class));
+    }
+
+    @Test
+    public void testTableAndColumns() {
+        TablePO po = new TablePO();
+        po.userId = 42L;
+        SensitiveClassMetadata metadata = SensitiveClassMetadata.forClass(TablePO.class);
+
+        assertEquals("t_user", metadata.getTable());
+        assertEquals("user_id", metadata.getIdColumn());
+        assertEquals(42L, metadata.getId(po));
+        assertEquals("id_card", metadata.getFields().get(0).getColumn());
+        assertEquals("mobile", metadata.getFields().get(1).getColumn());
+        assertNull(SensitiveClassMetadata.forClass(ChildPO.class).getTable());
+    }
+
+    @Test
+    public void testNonSensitiveClassIsCachedAsEmpty() {
+        SensitiveClassMetadata metadata = SensitiveClassMetadata.forClass(PlainPO.class);
+
+        assertFalse(metadata.isSensitive());
+        assertTrue(metadata.getFields().isEmpty());
+        assertSame(metadata, SensitiveClassMetadata.forClass(String.class));
+    }
+}
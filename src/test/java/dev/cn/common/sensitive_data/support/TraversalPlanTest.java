@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dev.cn.common.sensitive_data.annotation.SensitiveData;
+import dev.cn.common.sensitive_data.annotation.SensitiveField;
+
+public class TraversalPlanTest {
+
+    @SensitiveData
+    static class AddressPO {
+
+        @SensitiveField
+        String detail;
+    }
+
+    @SensitiveData
+    static class UserPO {
+
+        @SensitiveField
+        String tel;
+
+        String name;
+
+        AddressPO address;
+
+        // 嵌套结果映射中的双向关联
+        OrderDTO lastOrder;
+    }
+
+    static class OrderDTO {
+
+        String orderNo;
+
+        List<Integer> amounts;
+
+        UserPO buyer;
+
+        List<AddressPO> addresses;
+
+        Map<String, UserPO> contacts;
+
+        Object[] extras;
+    }
+
+    static class PartyDTO {
+
+        AddressPO address;
+    }
+
+    static class DeliveryDTO {
+
+        PartyDTO buyer;
+
+        PartyDTO seller;
+    }
+
+    static class PlainDTO {
+
+        String name;
+
+        List<String> tags;
+
+        PlainDTO parent;
+    }
+
+    @Test
+    public void testVisitsNestedObjects() throws Exception {
+        UserPO buyer = new UserPO();
+        buyer.address = new AddressPO();
+        AddressPO shipping = new AddressPO();
+        UserPO contact = new UserPO();
+        OrderDTO order = new OrderDTO();
+        order.buyer = buyer;
+        order.addresses = Arrays.asList(shipping, null, buyer.address);
+        order.contacts = Collections.singletonMap("contact", contact);
+        order.extras = new Object[] { "text", new AddressPO() };
+        buyer.lastOrder = order;
+
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Class<?>> types = new ArrayList<>();
+        TraversalPlan.forClass(OrderDTO.class).visit(order, (entity, metadata) -> {
+            // 循环引用和共享对象都只访问一次
+            assertTrue(visited.add(entity));
+            types.add(metadata.getType());
+        });
+
+        assertEquals(5, visited.size());
+        assertTrue(visited.containsAll(Arrays.asList(buyer, buyer.address, shipping, contact, order.extras[1])));
+        assertEquals(2, Collections.frequency(types, UserPO.class));
+    }
+
+    @Test
+    public void testVisitsSiblingFieldsOfSameType() throws Exception {
+        DeliveryDTO delivery = new DeliveryDTO();
+        delivery.buyer = new PartyDTO();
+        delivery.buyer.address = new AddressPO();
+        delivery.seller = new PartyDTO();
+        delivery.seller.address = new AddressPO();
+
+        List<Object> visited = new ArrayList<>();
+        TraversalPlan.forClass(DeliveryDTO.class).visit(delivery, (entity, metadata) -> visited.add(entity));
+
+        // 同一类型的两个字段都要进入
+        assertEquals(Arrays.asList(delivery.buyer.address, delivery.seller.address), visited);
+    }
+
+    @Test
+    public void testSkipsPlainTypes() {
+        assertFalse(TraversalPlan.forClass(UserPO.class).isEmpty());
+        assertFalse(TraversalPlan.forClass(OrderDTO.class).isEmpty());
+        assertTrue(TraversalPlan.forClass(PlainDTO.class).isEmpty());
+        assertTrue(TraversalPlan.forClass(String.class).isEmpty());
+        assertTrue(TraversalPlan.forClass(ArrayList.class).isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2024 Mergen
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.cn.common.sensitive_data.type;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SensitiveValueTest {
+
+    @Test
+    public void testDecryptsOnlyOnFirstAccess() {
+        AtomicInteger decryptions = new AtomicInteger();
+        SensitiveValue value = SensitiveValue.ofStored("SENSITIVE_abc");
+        value.bind(encrypted -> {
+            decryptions.incrementAndGet();
+            return "13800138000";
+        });
+
+        assertFalse(value.isDecrypted());
+        assertEquals(0, decryptions.get());
+
+        assertEquals("13800138000", value.get());
+        assertEquals("13800138000", value.get());
+        assertEquals(1, decryptions.get());
+        assertEquals("SENSITIVE_abc", value.getStoredValue());
+    }
+
+    @Test
+    public void testLegacyPlaintextNeedsNoDecryption() {
+        SensitiveValue value = SensitiveValue.ofStored("13800138000");
+
+        assertTrue(value.isDecrypted());
+        assertFalse(value.isEncrypted());
+        assertEquals("13800138000", value.get());
+    }
+
+    @Test
+    public void testUnboundCiphertextFails() {
+        SensitiveValue value = SensitiveValue.ofStored("SENSITIVE_abc");
+
+        assertThrows(IllegalStateException.class, value::get);
+    }
+
+    @Test
+    public void testStoredValueAfterEncryption() {
+        SensitiveValue value = SensitiveValue.of("13800138000");
+        assertEquals("13800138000", value.getStoredValue());
+
+        value.encrypted("SENSITIVE_abc");
+
+        assertEquals("SENSITIVE_abc", value.getStoredValue());
+        assertEquals("13800138000", value.get());
+    }
+
+    @Test
+    public void testToStringAndEqualityDoNotDecrypt() {
+        AtomicInteger decryptions = new AtomicInteger();
+        SensitiveValue value = SensitiveValue.ofStored("SENSITIVE_abc");
+        value.bind(encrypted -> {
+            decryptions.incrementAndGet();
+            return "13800138000";
+        });
+        SensitiveValue same = SensitiveValue.ofStored("SENSITIVE_abc");
+        same.bind(encrypted -> {
+            decryptions.incrementAndGet();
+            return "13800138000";
+        });
+
+        assertEquals("******", value.toString());
+        assertEquals(value, same);
+        assertEquals(value.hashCode(), same.hashCode());
+        assertNotEquals(value, SensitiveValue.ofStored("SENSITIVE_def"));
+        assertEquals(0, decryptions.get());
+
+        // 已解密后同样不输出明文
+        assertEquals("13800138000", value.get());
+        assertEquals("******", value.toString());
+        assertEquals("******", SensitiveValue.of("13800138000").toString());
+    }
+
+    @Test
+    public void testEqualityFollowsStoredValue() {
+        SensitiveValue plain = SensitiveValue.of("13800138000");
+        assertEquals(plain, SensitiveValue.ofStored("13800138000"));
+
+        // 加密后按密文比较, 与同一明文的另一个未加密对象不再相等
+        plain.encrypted("SENSITIVE_abc");
+        assertNotEquals(plain, SensitiveValue.of("13800138000"));
+        assertEquals(plain, SensitiveValue.ofStored("SENSITIVE_abc"));
+    }
+}